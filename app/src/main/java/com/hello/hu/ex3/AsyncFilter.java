@@ -0,0 +1,138 @@
+package com.hello.hu.ex3;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+
+/**
+ * [Class Overview]
+ * Run a slow FrameFilter on a worker thread, so it does not hold up the camera preview.
+ * The camera thread only copies the frame into a queue slot, and returns the most recently
+ * completed result straight away. When the queue is full, the oldest queued frame is dropped.
+ * Until the first result is ready, the camera frame itself is shown.
+ *
+ * The wrapped filter runs on the worker thread only, so it must not share scratch buffers with
+ * the filters that run on the camera thread. MainActivity gives it its own FrameBufferPool.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class AsyncFilter implements FrameFilter {
+
+    /**
+     * Number of frames that can wait for the worker. Small, so results stay fresh.
+     */
+    private static final int QUEUE_CAPACITY = 2;
+
+    private volatile FrameFilter filter;
+    private AsyncFrameProcessor<FrameSlot, Mat> processor;
+    private FrameSlot[] frameSlots;
+    private Mat[] resultSlots;
+
+
+    /**
+     * @param filter the filter to run on the worker thread.
+     */
+    public AsyncFilter(FrameFilter filter)
+    {
+        this.filter = filter;
+    }
+
+    /**
+     * Change the filter run by the worker. Frames already queued use the new filter.
+     * @param filter the filter to run on the worker thread.
+     */
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Create the slots and start the worker. Call this method in onCameraViewStarted(),
+     * when OpenCV is loaded.
+     */
+    public synchronized void start()
+    {
+        if (processor != null)
+            return;
+        frameSlots = new FrameSlot[QUEUE_CAPACITY + 2];
+        for (int i = 0; i < frameSlots.length; i++)
+            frameSlots[i] = new FrameSlot();
+        resultSlots = new Mat[]{new Mat(), new Mat(), new Mat()};
+        processor = new AsyncFrameProcessor<FrameSlot, Mat>(QUEUE_CAPACITY, frameSlots, resultSlots,
+                new AsyncFrameProcessor.Stage<FrameSlot, Mat>() {
+                    @Override
+                    public void process(FrameSlot frame, Mat result) {
+                        filter.apply(frame).copyTo(result);
+                    }
+                });
+        processor.start();
+    }
+
+    /**
+     * Stop the worker and release the slots. Call this method in onCameraViewStopped().
+     */
+    public synchronized void stop()
+    {
+        if (processor == null)
+            return;
+        processor.stop();
+        Log.i("Async", processor.getStatsSummary());
+        for (FrameSlot slot : frameSlots)
+            slot.release();
+        for (Mat result : resultSlots)
+            result.release();
+        processor = null;
+    }
+
+    /**
+     * Getter of the queue, for its metrics.
+     * @return the queue, null when stopped.
+     */
+    public synchronized AsyncFrameProcessor<FrameSlot, Mat> getProcessor() {
+        return processor;
+    }
+
+    @Override
+    public Mat apply(VideoFrame inputFrame)
+    {
+        AsyncFrameProcessor<FrameSlot, Mat> processor = getProcessor();
+        if (processor == null)
+            return filter.apply(inputFrame);
+        FrameSlot slot = processor.beginSubmit();
+        Mat rgba = inputFrame.rgba();
+        rgba.copyTo(slot.rgba);
+        inputFrame.gray().copyTo(slot.gray);
+        processor.endSubmit();
+
+        Mat result = processor.latestResult();
+        return result != null ? result : rgba;
+    }
+
+
+    /**
+     * A copy of a camera frame, owned by the queue.
+     */
+    static final class FrameSlot implements VideoFrame {
+        private final Mat rgba = new Mat();
+        private final Mat gray = new Mat();
+
+        @Override
+        public Mat rgba() {
+            return rgba;
+        }
+
+        @Override
+        public Mat gray() {
+            return gray;
+        }
+
+        void release() {
+            rgba.release();
+            gray.release();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Producer/consumer core of the asynchronous camera mode. No OpenCV inside, so it runs on a plain JVM.
+ *
+ * Producer (camera thread, only one):
+ *  1) beginSubmit() to get a free frame slot, and copy the camera frame into it;
+ *  2) endSubmit() to queue it. If the queue is full, the oldest queued frame is dropped;
+ *  3) latestResult() to get the most recently completed result straight away.
+ * Worker (its own thread, or processOne() in tests):
+ *  takes the oldest queued frame, and lets the Stage write the result into a result slot.
+ *
+ * Frames and results are preallocated slots that are recycled, nothing is allocated per frame.
+ * Results are triple buffered: the producer owns the front result, the worker owns the back result,
+ * and the last completed one waits in between. So the mat returned to the camera is never written
+ * while it is drawn.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class AsyncFrameProcessor<F, R> {
+
+    /**
+     * The processing done by the worker.
+     */
+    public interface Stage<F, R> {
+        /**
+         * Process one frame.
+         * @param frame queued frame. The worker owns it until this method returns.
+         * @param result result slot to write into. The worker owns it until this method returns.
+         */
+        void process(F frame, R result);
+    }
+
+    private final F[] frames;
+    private final long[] submitTimes;
+    private final R[] results;
+    private final Stage<F, R> stage;
+
+    // Frame slot indices. queue is a circular FIFO, free is a stack.
+    private final int[] queue;
+    private int queueHead;
+    private int queueSize;
+    private final int[] free;
+    private int freeCount;
+    private int producerSlot = -1;
+
+    // Result slot indices of the triple buffer.
+    private int front = 0;
+    private int ready = 1;
+    private int back = 2;
+    private boolean readyIsFresh;
+    private boolean hasResult;
+
+    private long submittedCount;
+    private long droppedCount;
+    private long completedCount;
+    private long lastLatencyNanos;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    private Thread worker;
+    private volatile boolean running;
+
+
+    /**
+     * @param capacity maximum number of queued frames.
+     * @param frames frame slots, at least capacity + 2 (one filled by the producer, one processed by the worker).
+     * @param results exactly 3 result slots.
+     * @param stage processing done by the worker.
+     */
+    public AsyncFrameProcessor(int capacity, F[] frames, R[] results, Stage<F, R> stage)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        if (frames.length < capacity + 2)
+            throw new IllegalArgumentException("need at least " + (capacity + 2) + " frame slots");
+        if (results.length != 3)
+            throw new IllegalArgumentException("need exactly 3 result slots");
+        this.frames = frames;
+        this.results = results;
+        this.stage = stage;
+        this.submitTimes = new long[frames.length];
+        this.queue = new int[capacity];
+        this.free = new int[frames.length];
+        for (int i = frames.length - 1; i >= 0; i--)
+            free[freeCount++] = i;
+    }
+
+    /**
+     * Get a free frame slot to copy the next camera frame into. Producer only.
+     * @return the frame slot.
+     */
+    public synchronized F beginSubmit()
+    {
+        if (producerSlot < 0)
+            producerSlot = free[--freeCount];
+        return frames[producerSlot];
+    }
+
+    /**
+     * Queue the frame slot got from beginSubmit(). Drops the oldest queued frame if the queue is full.
+     * Producer only.
+     */
+    public synchronized void endSubmit()
+    {
+        if (producerSlot < 0)
+            throw new IllegalStateException("endSubmit() without beginSubmit()");
+        if (queueSize == queue.length) {
+            free[freeCount++] = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            droppedCount++;
+        }
+        submitTimes[producerSlot] = System.nanoTime();
+        queue[(queueHead + queueSize) % queue.length] = producerSlot;
+        queueSize++;
+        submittedCount++;
+        producerSlot = -1;
+        notifyAll();
+    }
+
+    /**
+     * Get the most recently completed result. Producer only.
+     * The returned slot is not written by the worker until the next call of this method.
+     * @return the result slot, or null if no frame has been completed yet.
+     */
+    public synchronized R latestResult()
+    {
+        if (readyIsFresh) {
+            int swap = front;
+            front = ready;
+            ready = swap;
+            readyIsFresh = false;
+        }
+        return hasResult ? results[front] : null;
+    }
+
+    /**
+     * Process the oldest queued frame on the calling thread.
+     * @return false if the queue was empty.
+     */
+    public boolean processOne()
+    {
+        int slot;
+        synchronized (this) {
+            if (queueSize == 0)
+                return false;
+            slot = takeLocked();
+        }
+        processSlot(slot);
+        return true;
+    }
+
+    /**
+     * Start the worker thread.
+     */
+    public synchronized void start()
+    {
+        if (worker != null)
+            return;
+        running = true;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                workerLoop();
+            }
+        }, "AsyncFrameProcessor");
+        worker.start();
+    }
+
+    /**
+     * Stop the worker thread, and wait for the frame in progress to finish.
+     * Queued frames are dropped.
+     */
+    public void stop()
+    {
+        Thread stopping;
+        synchronized (this) {
+            running = false;
+            stopping = worker;
+            worker = null;
+            notifyAll();
+        }
+        if (stopping == null)
+            return;
+        try {
+            stopping.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            while (queueSize > 0) {
+                free[freeCount++] = takeLocked();
+                droppedCount++;
+            }
+        }
+    }
+
+    public synchronized long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queueSize;
+    }
+
+    /**
+     * @return time from endSubmit() to the end of processing of the last completed frame.
+     */
+    public synchronized long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public synchronized long getAverageLatencyNanos() {
+        return completedCount == 0 ? 0 : totalLatencyNanos / completedCount;
+    }
+
+    public synchronized long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * One line summary of the metrics, for the log.
+     * @return summary.
+     */
+    public synchronized String getStatsSummary() {
+        return "submitted " + submittedCount + ", completed " + completedCount + ", dropped " + droppedCount
+                + ", queue depth " + queueSize + ", latency avg " + getAverageLatencyNanos() / 1000000
+                + " ms, max " + maxLatencyNanos / 1000000 + " ms";
+    }
+
+
+    private void workerLoop()
+    {
+        while (true) {
+            int slot;
+            synchronized (this) {
+                while (running && queueSize == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running)
+                    return;
+                slot = takeLocked();
+            }
+            processSlot(slot);
+        }
+    }
+
+    private int takeLocked()
+    {
+        int slot = queue[queueHead];
+        queueHead = (queueHead + 1) % queue.length;
+        queueSize--;
+        return slot;
+    }
+
+    /**
+     * Only one thread processes at a time, so the back result is owned by it without the lock.
+     */
+    private void processSlot(int slot)
+    {
+        R result;
+        synchronized (this) {
+            result = results[back];
+        }
+        stage.process(frames[slot], result);
+        long now = System.nanoTime();
+        synchronized (this) {
+            int swap = back;
+            back = ready;
+            ready = swap;
+            readyIsFresh = true;
+            hasResult = true;
+            long latency = now - submitTimes[slot];
+            lastLatencyNanos = latency;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            completedCount++;
+            free[freeCount++] = slot;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.hello.hu.ex3;
+
+import android.util.Log;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Random;
+
+/**
+ * [Class Overview]
+ * The OpenCV filters behind the spinner menu of MainActivity.
+ * They only need a camera frame and a FrameBufferPool, not the activity,
+ * so they can also be run by the JVM benchmarks.
+ * cornerMat() and houghMat() can detect on a 1/2 or 1/4 scale copy of the frame, see setProcessingScale().
+ * meanBlurMat() and adptThresholdMat() use an IntegralImage, so large windows are cheap.
+ * dilationMat() and erosionMat() work on a packed BinaryImage, see Morphology, so large kernels are cheap:
+ * 64 pixels per word operation, and only O(log k) of them per word horizontally.
+ * houghFromEdges() is the hough stage of a pipeline after cannyEdgeMat(): it reads the edges as they are.
+ * differenceofGaussianMat() streams both blurs through a ring of rows, see DifferenceOfGaussian.
+ * sobelMat() and cannyEdgeMat() read one GradientField, and can skip the tiles that did not change since the previous frames,
+ * see setChangeGating(). houghMat() has a GradientField of its own, because it works on the downscaled frame.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class BasicFilters {
+
+    /**
+     * Scratch mats shared with MyAlgorithm. Prepared and released by the caller.
+     */
+    private FrameBufferPool framePool;
+
+    /**
+     * Normalized (0-255) Harris response a corner must exceed.
+     */
+    private static final float CORNER_THRESHOLD = 150;
+
+    /**
+     * Default cap of the corners drawn per frame.
+     */
+    public static final int DEFAULT_MAX_CORNERS = 500;
+
+    /**
+     * Corners of the current frame, and the objects used to draw them. Reused across frames.
+     */
+    private CornerList cornerList = new CornerList(DEFAULT_MAX_CORNERS);
+    private final Point cornerPoint = new Point();
+    private final Scalar cornerColor = new Scalar(0);
+    private final Random random = new Random();
+
+    /**
+     * Output of Imgproc.HoughLines() in houghMat(), created lazily, and the objects used to draw it.
+     */
+    private Mat houghLines;
+    private final HoughPostProcessor houghPostProcessor = new HoughPostProcessor(Math.PI / 180);
+    private static final Scalar HOUGH_LINE_COLOR = new Scalar(0,0,255);
+
+    /**
+     * cornerMat() and houghMat() detect on the frame downscaled by this factor, see ProcessingScale.
+     */
+    private int processingScale = ProcessingScale.FULL;
+
+    /**
+     * Window of meanBlurMat(), and window and method of adptThresholdMat(). Both are computed with integralImage.
+     */
+    private int meanBlurWindow = 3;
+    private int adaptiveThresholdWindow = 31;
+    private boolean sauvolaThreshold;
+    private final IntegralImage integralImage = new IntegralImage();
+
+    /**
+     * Constant subtracted from the window mean by the adaptive mean threshold. Keeps flat areas from turning to noise.
+     */
+    private static final int ADAPTIVE_THRESHOLD_C = 5;
+
+    /**
+     * Sauvola weight of the standard deviation, and dynamic range of the standard deviation of 8 bit images.
+     */
+    private static final double SAUVOLA_K = 0.34;
+    private static final double SAUVOLA_RANGE = 128;
+
+    /**
+     * Threshold, kernel size and scratch of dilationMat() and erosionMat(). The mask is packed, 64 pixels per long.
+     */
+    private static final int MORPHOLOGY_THRESHOLD = 50;
+    private int morphologyKernel = 7;
+    private final Morphology morphology = new Morphology();
+    private BinaryImage binaryImage;
+
+    /**
+     * Blurs of differenceofGaussianMat(), and the largest blur difference still drawn white.
+     */
+    private final DifferenceOfGaussian differenceOfGaussian = new DifferenceOfGaussian(15,21,5);
+    private static final int DOG_MAX_DIFFERENCE = 0;
+
+    /**
+     * Gradient of the last gray frame, shared by sobelMat() and cannyEdgeMat().
+     * With change gating its clean tiles are kept across frames, so nothing else may compute into it.
+     */
+    private final GradientField gradientField = new GradientField();
+
+    /**
+     * Gradient of the downscaled frame of houghMat(), always computed fully.
+     */
+    private final GradientField houghGradient = new GradientField();
+
+    /**
+     * Canny hysteresis thresholds on the L1 gradient magnitude.
+     */
+    private static final int CANNY_LOW = 10;
+    private static final int CANNY_HIGH = 100;
+
+    /**
+     * Dirty tiles of the gradient of sobelMat() and cannyEdgeMat(), or null to recompute every frame fully.
+     * The gradient is kept across frames, so only the dirty tiles are recomputed.
+     */
+    private ChangeDetector gradientChanges;
+
+
+    /**
+     * Lease all per-frame mats from the given pool.
+     * @param framePool pool shared with the caller.
+     */
+    public BasicFilters(FrameBufferPool framePool)
+    {
+        this.framePool = framePool;
+    }
+
+    /**
+     * Cap the number of corners cornerMat() draws. The strongest corners are kept.
+     * @param maxCorners the most corners drawn per frame.
+     */
+    public void setMaxCorners(int maxCorners) {
+        cornerList = new CornerList(maxCorners);
+    }
+
+    /**
+     * Detect corners and hough lines on a downscaled copy of the frame. Results are drawn on the full frame.
+     * @param processingScale ProcessingScale.FULL, HALF or QUARTER.
+     */
+    public void setProcessingScale(int processingScale) {
+        this.processingScale = ProcessingScale.check(processingScale);
+    }
+
+    /**
+     * Window size of meanBlurMat().
+     * @param window odd, 3 or more.
+     */
+    public void setMeanBlurWindow(int window) {
+        meanBlurWindow = checkWindow(window);
+    }
+
+    /**
+     * Window size and method of adptThresholdMat().
+     * @param window odd, 3 or more. 31 and up work at full frame rate.
+     * @param sauvola true for a Sauvola threshold, false for the window mean minus a constant.
+     */
+    public void setAdaptiveThreshold(int window, boolean sauvola) {
+        adaptiveThresholdWindow = checkWindow(window);
+        sauvolaThreshold = sauvola;
+    }
+
+    /**
+     * Square kernel size of dilationMat() and erosionMat().
+     * The vertical pass costs the same for any size, the horizontal pass grows with log3 of the size, see Morphology.
+     * @param size odd, 3 or more.
+     */
+    public void setMorphologyKernel(int size) {
+        morphologyKernel = checkWindow(size);
+    }
+
+    private static int checkWindow(int window)
+    {
+        if (window < 3 || window % 2 == 0)
+            throw new IllegalArgumentException("Window size must be odd and at least 3, not " + window);
+        return window;
+    }
+
+    /**
+     * Only recompute the gradient of the tiles that changed since the previous frames in sobelMat() and cannyEdgeMat().
+     * Meant for a fixed camera.
+     * @param enabled true to gate the gradient by a ChangeDetector.
+     */
+    public void setChangeGating(boolean enabled) {
+        gradientChanges = enabled ? new ChangeDetector("gradient") : null;
+    }
+
+    /**
+     * @return the ChangeDetector of the gradient of sobelMat() and cannyEdgeMat(), or null if change gating is off.
+     */
+    public ChangeDetector getGradientChangeDetector() {
+        return gradientChanges;
+    }
+
+    /**
+     * Getter of the corners found by the last cornerMat(), in the coordinates of the processing scale.
+     * @return the corner list, overwritten by the next frame.
+     */
+    public CornerList getCornerList() {
+        return cornerList;
+    }
+
+    public Mat thresholdMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing thresholding");
+        Mat mat = inputFrame.gray();
+        Imgproc.threshold(mat,mat,50.0,255.0,Imgproc.THRESH_BINARY);
+        return mat;
+    }
+
+    /**
+     * Mean blur of the color channels with an IntegralImage, so the cost does not grow with the window.
+     * Alpha is kept.
+     */
+    public Mat meanBlurMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing mean blur");
+        Mat mat = inputFrame.rgba();
+        int width = mat.cols();
+        int height = mat.rows();
+        byte[] pixels = framePool.bytes(FrameBufferPool.SLOT_COLOR,width,height,CvType.CV_8UC4);
+        mat.get(0,0,pixels);
+        for (int channel = 0; channel < 3; channel++) {
+            // The tables are complete before the channel is overwritten, so the blur can be in place.
+            integralImage.compute(pixels,width,height,4,channel,false);
+            integralImage.meanBlur(pixels,4,channel,meanBlurWindow / 2);
+        }
+        mat.put(0,0,pixels);
+        return mat;
+    }
+
+    public Mat gaussianBlurMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing gaussian blur");
+        Mat mat = inputFrame.rgba();
+        Imgproc.GaussianBlur(mat,mat,new Size(3,3),0);
+        return mat;
+    }
+
+    /**
+     * Threshold at 50 packed into a BinaryImage, then a packed rectangular dilation, see Morphology.
+     */
+    public Mat dilationMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing dilation");
+        return morphologyMat(inputFrame,false);
+    }
+
+
+    /**
+     * Threshold at 50 packed into a BinaryImage, then a packed rectangular erosion, see Morphology.
+     */
+    public Mat erosionMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing erosion");
+        return morphologyMat(inputFrame,true);
+    }
+
+    private Mat morphologyMat(VideoFrame inputFrame, boolean erode)
+    {
+        Mat mat = inputFrame.gray();
+        int width = mat.cols();
+        int height = mat.rows();
+        byte[] gray = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        mat.get(0,0,gray);
+        if (binaryImage == null)
+            binaryImage = new BinaryImage(width,height);
+        else
+            binaryImage.resize(width,height);
+        binaryImage.fromThreshold(gray,MORPHOLOGY_THRESHOLD);
+        if (erode)
+            morphology.erode(binaryImage,binaryImage,morphologyKernel,morphologyKernel);
+        else
+            morphology.dilate(binaryImage,binaryImage,morphologyKernel,morphologyKernel);
+        binaryImage.toBytes(gray);
+        mat.put(0,0,gray);
+        return mat;
+    }
+
+    /**
+     * Adaptive mean or Sauvola threshold with an IntegralImage, so a large window costs the same as a small one.
+     */
+    public Mat adptThresholdMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing adaptive thresholding");
+        Mat mat = inputFrame.gray();
+        int width = mat.cols();
+        int height = mat.rows();
+        byte[] gray = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        mat.get(0,0,gray);
+        integralImage.compute(gray,width,height,sauvolaThreshold);
+        if (sauvolaThreshold)
+            integralImage.sauvolaThreshold(gray,gray,adaptiveThresholdWindow / 2,SAUVOLA_K,SAUVOLA_RANGE);
+        else
+            integralImage.adaptiveMeanThreshold(gray,gray,adaptiveThresholdWindow / 2,ADAPTIVE_THRESHOLD_C);
+        mat.put(0,0,gray);
+        return mat;
+    }
+
+
+    /**
+     * Difference of the 15*15 and 21*21 sigma 5 gaussian blurs in one streaming pass, see DifferenceOfGaussian.
+     * White where the rounded blurs are equal, same as absdiff() * 100 and THRESH_BINARY_INV at 50.
+     */
+    public Mat differenceofGaussianMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing Difference of Gaussian");
+        Mat mat = inputFrame.gray();
+        int width = mat.cols();
+        int height = mat.rows();
+        byte[] gray = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        byte[] doG = framePool.bytes(FrameBufferPool.SLOT_TEMP,width,height,CvType.CV_8UC1);
+        mat.get(0,0,gray);
+        differenceOfGaussian.apply(gray,doG,width,height,DOG_MAX_DIFFERENCE);
+        mat.put(0,0,doG);
+        return mat;
+    }
+
+    /**
+     * Non-maximum suppression and hysteresis on the shared gradient, L1 magnitude like Imgproc.Canny().
+     * With change gating, only the gradient of the dirty tiles is recomputed, and hysteresis still runs on the whole frame.
+     */
+    public Mat cannyEdgeMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing Canny Edge");
+        Mat mat = inputFrame.gray();
+        updateGradient(gradientField,mat,gradientChanges);
+        byte[] edges = framePool.bytes(FrameBufferPool.SLOT_TEMP,mat.cols(),mat.rows(),CvType.CV_8UC1);
+        gradientField.canny(edges,CANNY_LOW,CANNY_HIGH);
+        mat.put(0,0,edges);
+        return mat;
+    }
+
+
+    /**
+     * 0.5 * |Gx| + 0.5 * |Gy| + 1 of the shared gradient, same as two Imgproc.Sobel(), convertScaleAbs() and addWeighted().
+     * With change gating, only the gradient of the dirty tiles is recomputed.
+     */
+    public Mat sobelMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing sobel");
+        Mat mat = inputFrame.gray();
+        updateGradient(gradientField,mat,gradientChanges);
+        byte[] sobel = framePool.bytes(FrameBufferPool.SLOT_TEMP,mat.cols(),mat.rows(),CvType.CV_8UC1);
+        gradientField.sobel(sobel);
+        mat.put(0,0,sobel);
+        return mat;
+    }
+
+    /**
+     * Bring a gradient field up to date with a gray frame.
+     * Without a ChangeDetector the whole gradient is computed, unless the field already holds this frame.
+     * With one, only the dirty tiles are. The detector is invalidated if the field holds another frame size.
+     * @param field gradient to update. With a ChangeDetector, only this detector may update it.
+     * @param changeDetector dirty tiles, or null.
+     */
+    private void updateGradient(GradientField field, Mat gray, ChangeDetector changeDetector)
+    {
+        long t = StageTimer.start();
+        int width = gray.cols();
+        int height = gray.rows();
+        byte[] grayArray = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        gray.get(0,0,grayArray);
+        if (changeDetector == null) {
+            field.compute(grayArray,width,height);
+        } else {
+            if (field.getWidth() != width || field.getHeight() != height)
+                changeDetector.invalidate();
+            if (changeDetector.update(grayArray,width,height)) {
+                field.compute(grayArray,width,height);
+            } else {
+                for (int run = 0; run < changeDetector.getRunCount(); run++) {
+                    int x = changeDetector.getRunX(run);
+                    int y = changeDetector.getRunY(run);
+                    field.computeRegion(grayArray,width,height,x,y,
+                            x + changeDetector.getRunWidth(run),y + changeDetector.getRunHeight(run));
+                }
+            }
+        }
+        StageTimer.lap(StageTimer.Stage.GRADIENT,t);
+    }
+
+    public Mat cornerMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing Harris Corner");
+        int scale = processingScale;
+        Mat frame = inputFrame.gray();
+        Mat mat = ProcessingScale.down(frame,scale,framePool);
+        Mat corners = framePool.mat(FrameBufferPool.SLOT_TEMP,mat.rows(),mat.cols(),CvType.CV_8UC1);
+        Mat tempDst = framePool.mat(FrameBufferPool.SLOT_TEMP2,mat.rows(),mat.cols(),CvType.CV_32FC1);
+        Mat tempDstNorm = framePool.mat(FrameBufferPool.SLOT_TEMP3,mat.rows(),mat.cols(),CvType.CV_32FC1);
+        Imgproc.cornerHarris(mat,tempDst,2,3,0.04);
+        Core.normalize(tempDst,tempDstNorm,0,255,Core.NORM_MINMAX);
+
+        Core.convertScaleAbs(tempDstNorm,corners);
+        if (scale != ProcessingScale.FULL) {
+            Mat fullCorners = framePool.mat(FrameBufferPool.SLOT_TEMP,frame.rows(),frame.cols(),CvType.CV_8UC1);
+            Imgproc.resize(corners,fullCorners,fullCorners.size(),0,0,Imgproc.INTER_LINEAR);
+            corners = fullCorners;
+        }
+        // One bulk read instead of one JNI call per pixel, then threshold and non-maximum suppression in Java.
+        int width = tempDstNorm.cols();
+        int height = tempDstNorm.rows();
+        float[] response = framePool.floats(FrameBufferPool.SLOT_TEMP3,width,height,CvType.CV_32FC1);
+        tempDstNorm.get(0,0,response);
+        cornerList.extract(response,width,height,CORNER_THRESHOLD);
+        for (int i = 0; i < cornerList.size();i++){
+            cornerPoint.x = ProcessingScale.toFull(cornerList.getX(i),scale);
+            cornerPoint.y = ProcessingScale.toFull(cornerList.getY(i),scale);
+            cornerColor.val[0] = random.nextInt(255);
+            Imgproc.circle(corners,cornerPoint,5,cornerColor,2);
+        }
+        return corners;
+    }
+
+    public Mat houghMat(VideoFrame inputFrame){
+        Log.i("SPINNER","performing Hough transformations");
+        Mat imageMat = inputFrame.rgba();
+        Mat greyMat = framePool.mat(FrameBufferPool.SLOT_GRAY,imageMat.rows(),imageMat.cols(),CvType.CV_8UC1);
+        Imgproc.cvtColor(imageMat,greyMat,Imgproc.COLOR_RGBA2GRAY);
+        int scale = processingScale;
+        greyMat = ProcessingScale.down(greyMat,scale,framePool);
+        updateGradient(houghGradient,greyMat,null);
+        byte[] edges = framePool.bytes(FrameBufferPool.SLOT_TEMP,greyMat.cols(),greyMat.rows(),CvType.CV_8UC1);
+        houghGradient.canny(edges,CANNY_LOW,CANNY_HIGH);
+        greyMat.put(0,0,edges);
+
+        findHoughLines(greyMat);
+        houghPostProcessor.draw(imageMat,scale,HOUGH_LINE_COLOR,null);
+        return imageMat;
+    }
+
+    /**
+     * Hough stage of a pipeline whose previous stage already made the edges, e.g. cannyEdgeMat().
+     * The edge mat is read as it is: no gray conversion and no second Canny.
+     * It is only widened to RGBA once at the end, so the lines can be drawn in color.
+     * @param edges 1 channel edge map, non-zero pixels are edges.
+     * @return the edges with the hough lines drawn in.
+     */
+    public Mat houghFromEdges(Mat edges){
+        Log.i("SPINNER","performing Hough transformations on edges");
+        findHoughLines(edges);
+        long t = StageTimer.start();
+        Mat imageMat = framePool.mat(FrameBufferPool.SLOT_COLOR,edges.rows(),edges.cols(),CvType.CV_8UC4);
+        Imgproc.cvtColor(edges,imageMat,Imgproc.COLOR_GRAY2RGBA);
+        houghPostProcessor.draw(imageMat,ProcessingScale.FULL,HOUGH_LINE_COLOR,null);
+        StageTimer.lap(StageTimer.Stage.DRAW,t);
+        return imageMat;
+    }
+
+    /**
+     * Imgproc.HoughLines() on an edge map, read into houghPostProcessor.
+     * A line needs the votes of half the shorter side of the map.
+     */
+    private void findHoughLines(Mat edges)
+    {
+        long t = StageTimer.start();
+        int threshold_line = Math.min(edges.rows(),edges.cols()) / 2;
+        if (houghLines == null)
+            houghLines = new Mat();
+        Imgproc.HoughLines(edges,houghLines,1,Math.PI / 180,threshold_line);
+        houghPostProcessor.read(houghLines);
+        StageTimer.lap(StageTimer.Stage.HOUGH,t);
+    }
+
+    public Mat randomMat(VideoFrame inputFrame){
+        Random rand = new Random(System.currentTimeMillis());
+        Mat imageMat = new Mat();
+        if (rand.nextGaussian() < 0.5)
+        {
+            Log.d("SPINNER","return color");
+            imageMat = inputFrame.rgba();
+        }
+        else
+        {
+            Log.d("SPINNER","return greyscale");
+            imageMat = inputFrame.gray();
+        }
+        return imageMat;
+    }
+}
@@ -0,0 +1,317 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * A binary image packed 64 pixels per long, for thresholded masks that only ever hold 0 or 255.
+ * Row y starts at word y * getWordsPerRow(), and pixel x of a row is bit (x & 63) of word x >>> 6,
+ * so the lowest bit is the leftmost pixel. Bits past the width in the last word of a row are always 0.
+ *
+ * fromThreshold() / fromMask() - Pack an 8 bit image.
+ * toBytes()                    - Unpack to 255 and 0.
+ * and() / or() / andNot() / not() - Combine whole images 64 pixels at a time.
+ * shift()                      - Move an image by (dx, dy), for morphology.
+ * count() / countRow()         - Number of set pixels, with Long.bitCount().
+ * nextSetPixel()               - Walk the set pixels with Long.numberOfTrailingZeros(), skipping empty words.
+ * Hot loops can also walk getWords() the same way, see FusedHough.
+ * The buffer is reused by resize(), so one instance can follow the frames of a filter.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class BinaryImage {
+
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private long[] words = new long[0];
+
+    /**
+     * One row, for shift() in place.
+     */
+    private long[] rowScratch = new long[0];
+
+
+    public BinaryImage(int width, int height)
+    {
+        resize(width, height);
+    }
+
+    /**
+     * Change the size, and clear every pixel. The buffer only grows.
+     */
+    public void resize(int width, int height)
+    {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Image must not be empty, not " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        int size = wordsPerRow * height;
+        if (words.length < size)
+            words = new long[size];
+        else
+            java.util.Arrays.fill(words, 0, size, 0);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @return the packed pixels, at least getWordsPerRow() * getHeight() words. Writes must keep the bits past
+     * the width at 0, see getLastWordMask().
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * @return the bits of the last word of a row that are inside the image.
+     */
+    public long getLastWordMask() {
+        int bits = width & 63;
+        return bits == 0 ? -1L : (1L << bits) - 1;
+    }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y, boolean value)
+    {
+        int i = y * wordsPerRow + (x >>> 6);
+        if (value)
+            words[i] |= 1L << x;
+        else
+            words[i] &= ~(1L << x);
+    }
+
+    /**
+     * Set every pixel to 0.
+     */
+    public void clear() {
+        java.util.Arrays.fill(words, 0, wordsPerRow * height, 0);
+    }
+
+    /**
+     * Pack the pixels of a gray image above a threshold, same as Imgproc.threshold() with THRESH_BINARY.
+     * @param gray gray image of this size, unsigned bytes.
+     * @param threshold pixels above it are set.
+     */
+    public void fromThreshold(byte[] gray, int threshold)
+    {
+        for (int r = 0; r < height; r++) {
+            int row = r * width;
+            int wordIndex = r * wordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int end = Math.min(64, width - x0);
+                long word = 0;
+                for (int b = 0; b < end; b++)
+                    if ((gray[row + x0 + b] & 0xFF) > threshold)
+                        word |= 1L << b;
+                words[wordIndex++] = word;
+            }
+        }
+    }
+
+    /**
+     * Pack a mask: non-zero pixels are set.
+     * @param mask mask of this size.
+     */
+    public void fromMask(byte[] mask)
+    {
+        fromThreshold(mask, 0);
+    }
+
+    /**
+     * Unpack to 255 for set pixels and 0 elsewhere.
+     * @param dst receives width * height bytes.
+     */
+    public void toBytes(byte[] dst)
+    {
+        for (int r = 0; r < height; r++) {
+            int row = r * width;
+            int wordIndex = r * wordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int end = Math.min(64, width - x0);
+                long word = words[wordIndex++];
+                for (int b = 0; b < end; b++)
+                    dst[row + x0 + b] = (word & (1L << b)) != 0 ? (byte) 255 : 0;
+            }
+        }
+    }
+
+    /**
+     * this = this AND other.
+     */
+    public void and(BinaryImage other)
+    {
+        long[] o = checkSize(other);
+        for (int i = 0; i < wordsPerRow * height; i++)
+            words[i] &= o[i];
+    }
+
+    /**
+     * this = this OR other.
+     */
+    public void or(BinaryImage other)
+    {
+        long[] o = checkSize(other);
+        for (int i = 0; i < wordsPerRow * height; i++)
+            words[i] |= o[i];
+    }
+
+    /**
+     * this = this AND NOT other.
+     */
+    public void andNot(BinaryImage other)
+    {
+        long[] o = checkSize(other);
+        for (int i = 0; i < wordsPerRow * height; i++)
+            words[i] &= ~o[i];
+    }
+
+    /**
+     * Invert every pixel. Bits past the width stay 0.
+     */
+    public void not()
+    {
+        long lastMask = getLastWordMask();
+        for (int r = 0; r < height; r++) {
+            int row = r * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++)
+                words[row + i] = ~words[row + i];
+            words[row + wordsPerRow - 1] &= lastMask;
+        }
+    }
+
+    /**
+     * this pixel (x, y) = src pixel (x - dx, y - dy), 0 where that is outside the image.
+     * @param src image of the same size. May be this.
+     */
+    public void shift(BinaryImage src, int dx, int dy)
+    {
+        long[] s = checkSize(src);
+        long lastMask = getLastWordMask();
+        // Walk rows away from where they come from, so a shift in place never reads a row it already wrote.
+        int start = dy > 0 ? height - 1 : 0;
+        int step = dy > 0 ? -1 : 1;
+        long[] row = null;
+        if (dx != 0 && s == words) {
+            if (rowScratch.length < wordsPerRow)
+                rowScratch = new long[wordsPerRow];
+            row = rowScratch;
+        }
+        for (int r = start; r >= 0 && r < height; r += step) {
+            int out = r * wordsPerRow;
+            int y = r - dy;
+            if (y < 0 || y >= height) {
+                java.util.Arrays.fill(words, out, out + wordsPerRow, 0);
+                continue;
+            }
+            if (row != null) {
+                System.arraycopy(s, y * wordsPerRow, row, 0, wordsPerRow);
+                shiftRow(row, 0, words, out, wordsPerRow, -dx);
+            } else {
+                shiftRow(s, y * wordsPerRow, words, out, wordsPerRow, -dx);
+            }
+            words[out + wordsPerRow - 1] &= lastMask;
+        }
+    }
+
+    /**
+     * @return the number of set pixels.
+     */
+    public int count()
+    {
+        int count = 0;
+        for (int i = 0; i < wordsPerRow * height; i++)
+            count += Long.bitCount(words[i]);
+        return count;
+    }
+
+    /**
+     * @return the number of set pixels of row y.
+     */
+    public int countRow(int y)
+    {
+        int count = 0;
+        for (int i = y * wordsPerRow; i < (y + 1) * wordsPerRow; i++)
+            count += Long.bitCount(words[i]);
+        return count;
+    }
+
+    /**
+     * First set pixel at or after a pixel index, in row order.
+     * @param from pixel index y * width + x to start at.
+     * @return the pixel index y * width + x of the set pixel, or -1 if there is none.
+     */
+    public int nextSetPixel(int from)
+    {
+        if (from < 0)
+            from = 0;
+        int y = from / width;
+        int x = from - y * width;
+        while (y < height) {
+            int i = y * wordsPerRow + (x >>> 6);
+            int end = (y + 1) * wordsPerRow;
+            long word = words[i] & (-1L << x);
+            while (word == 0 && ++i < end)
+                word = words[i];
+            if (word != 0)
+                return y * width + ((i - y * wordsPerRow) << 6) + Long.numberOfTrailingZeros(word);
+            y++;
+            x = 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Shift one packed row: dst pixel x = src pixel x + offset, 0 where that is outside the row.
+     * Bits past the width of the result are not cleared.
+     * @param src words of the source row, from srcStart.
+     * @param dst words of the shifted row, from dstStart. Must not overlap src.
+     * @param words words per row.
+     */
+    static void shiftRow(long[] src, int srcStart, long[] dst, int dstStart, int words, int offset)
+    {
+        int wordShift = Math.abs(offset) >>> 6;
+        int bitShift = Math.abs(offset) & 63;
+        for (int i = 0; i < words; i++) {
+            long value;
+            if (offset >= 0) {
+                int j = i + wordShift;
+                value = j < words ? src[srcStart + j] >>> bitShift : 0;
+                if (bitShift != 0 && j + 1 < words)
+                    value |= src[srcStart + j + 1] << (64 - bitShift);
+            } else {
+                int j = i - wordShift;
+                value = j >= 0 ? src[srcStart + j] << bitShift : 0;
+                if (bitShift != 0 && j - 1 >= 0)
+                    value |= src[srcStart + j - 1] >>> (64 - bitShift);
+            }
+            dst[dstStart + i] = value;
+        }
+    }
+
+
+    private long[] checkSize(BinaryImage other)
+    {
+        if (other.width != width || other.height != height)
+            throw new IllegalArgumentException("Image sizes differ: " + width + "x" + height
+                    + " and " + other.width + "x" + other.height);
+        return other.words;
+    }
+}
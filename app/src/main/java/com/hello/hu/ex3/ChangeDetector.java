@@ -0,0 +1,288 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Find the parts of a gray frame that changed since the previous frames, so a filter can recompute only those
+ * and keep its cached output everywhere else. Meant for a fixed camera, where most of the frame is static.
+ * update() does
+ *  1) Split the frame into TILE_SIZE * TILE_SIZE tiles, and sum the absolute differences (SAD) of every tile
+ *     against a reference frame. A tile changed if its mean difference is above MAX_MEAN_DIFFERENCE;
+ *  2) Copy the changed tiles into the reference. Unchanged tiles keep their old reference, so a slow drift
+ *     still adds up until the tile counts as changed;
+ *  3) Mark the changed tiles and their 8 neighbours dirty, because a 3*3 kernel on a tile border reads the next tile;
+ *  4) Merge the dirty tiles of each tile row into runs, so a filter can process a run with one call.
+ * The whole frame is dirty on the first frame, after invalidate(), every REFRESH_INTERVAL frames (so cached output
+ * never gets too stale), and when more than FULL_FRAME_FRACTION of the tiles are dirty (one full pass is cheaper).
+ *
+ * getSkippedFraction() is the fraction of tiles that were not recomputed, over all frames so far.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class ChangeDetector {
+
+    /**
+     * Tile width and height in pixels.
+     */
+    public static final int TILE_SIZE = 16;
+
+    /**
+     * Recompute the whole frame at least every this many frames.
+     */
+    public static final int REFRESH_INTERVAL = 30;
+
+    /**
+     * Mean absolute difference (0-255) above which a tile changed. Above sensor noise.
+     */
+    private static final int MAX_MEAN_DIFFERENCE = 4;
+
+    /**
+     * Dirty fraction above which the whole frame is recomputed.
+     */
+    private static final double FULL_FRAME_FRACTION = 0.5;
+
+    private final String name;
+    private byte[] reference = new byte[0];
+    private int width;
+    private int height;
+    private int tilesX;
+    private int tilesY;
+    private boolean[] changed = new boolean[0];
+    private boolean[] dirty = new boolean[0];
+    private int[] tileSad = new int[0];
+    private boolean valid;
+    private boolean fullFrame;
+    private int dirtyCount;
+    private int framesSinceRefresh;
+
+    /**
+     * Runs of dirty tiles, in pixels, ordered by tile row. rowRunStart[ty] is the first run of tile row ty.
+     */
+    private int[] runX = new int[0];
+    private int[] runY = new int[0];
+    private int[] runWidth = new int[0];
+    private int[] runHeight = new int[0];
+    private int[] rowRunStart = new int[1];
+    private int runCount;
+
+    private long frameCount;
+    private long tileCount;
+    private long skippedTileCount;
+
+
+    /**
+     * @param name name shown in the summary.
+     */
+    public ChangeDetector(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Make the next update() mark the whole frame dirty, e.g. when the cached output of the caller was lost.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Compare a frame to the reference, and find its dirty tiles and runs.
+     * @param gray gray frame, unsigned bytes.
+     * @param width frame width.
+     * @param height frame height.
+     * @return true if the whole frame is dirty. The caller should then run its full pass.
+     */
+    public boolean update(byte[] gray, int width, int height)
+    {
+        if (width != this.width || height != this.height)
+            resize(width, height);
+
+        int tiles = tilesX * tilesY;
+        if (!valid || framesSinceRefresh + 1 >= REFRESH_INTERVAL) {
+            System.arraycopy(gray, 0, reference, 0, width * height);
+            markAll();
+        } else {
+            findChangedTiles(gray);
+            dirtyCount = 0;
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tx = 0; tx < tilesX; tx++) {
+                    boolean near = false;
+                    for (int y = Math.max(0, ty - 1); y <= Math.min(tilesY - 1, ty + 1) && !near; y++)
+                        for (int x = Math.max(0, tx - 1); x <= Math.min(tilesX - 1, tx + 1) && !near; x++)
+                            near = changed[y * tilesX + x];
+                    dirty[ty * tilesX + tx] = near;
+                    if (near)
+                        dirtyCount++;
+                }
+            }
+            if (dirtyCount > FULL_FRAME_FRACTION * tiles)
+                markAll();
+            else {
+                fullFrame = false;
+                framesSinceRefresh++;
+            }
+        }
+        buildRuns();
+
+        frameCount++;
+        tileCount += tiles;
+        skippedTileCount += tiles - dirtyCount;
+        return fullFrame;
+    }
+
+    /**
+     * @return true if the last update() marked the whole frame dirty.
+     */
+    public boolean isFullFrame() {
+        return fullFrame;
+    }
+
+    public boolean isDirty(int tileX, int tileY) {
+        return dirty[tileY * tilesX + tileX];
+    }
+
+    public int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    public int getTileCount() {
+        return tilesX * tilesY;
+    }
+
+    /**
+     * Runs of the last update(). A run is a rectangle of consecutive dirty tiles in one tile row, clipped to the frame.
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public int getRunX(int run) {
+        return runX[run];
+    }
+
+    public int getRunY(int run) {
+        return runY[run];
+    }
+
+    public int getRunWidth(int run) {
+        return runWidth[run];
+    }
+
+    public int getRunHeight(int run) {
+        return runHeight[run];
+    }
+
+    /**
+     * First run of a tile row. The runs of tile row ty are [getFirstRun(ty), getFirstRun(ty + 1)).
+     * @param tileY tile row, 0 - tile rows.
+     */
+    public int getFirstRun(int tileY) {
+        return rowRunStart[tileY];
+    }
+
+    /**
+     * Fraction of tiles not recomputed, over all frames so far.
+     * @return 0 - 1.
+     */
+    public double getSkippedFraction() {
+        return tileCount == 0 ? 0 : (double) skippedTileCount / tileCount;
+    }
+
+    /**
+     * @return e.g. "sobel frames=300 skipped=81.2%".
+     */
+    public String getStatsSummary() {
+        return String.format(java.util.Locale.US, "%s frames=%d skipped=%.1f%%",
+                name, frameCount, 100 * getSkippedFraction());
+    }
+
+
+    private void resize(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int tiles = tilesX * tilesY;
+        reference = new byte[width * height];
+        changed = new boolean[tiles];
+        dirty = new boolean[tiles];
+        tileSad = new int[tilesX];
+        runX = new int[tiles];
+        runY = new int[tiles];
+        runWidth = new int[tiles];
+        runHeight = new int[tiles];
+        rowRunStart = new int[tilesY + 1];
+        valid = false;
+    }
+
+    private void markAll()
+    {
+        java.util.Arrays.fill(dirty, true);
+        dirtyCount = tilesX * tilesY;
+        fullFrame = true;
+        valid = true;
+        framesSinceRefresh = 0;
+    }
+
+    /**
+     * SAD of every tile, one tile row at a time, and copy of the changed tiles into the reference.
+     */
+    private void findChangedTiles(byte[] gray)
+    {
+        for (int ty = 0; ty < tilesY; ty++) {
+            int rowStart = ty * TILE_SIZE;
+            int rowEnd = Math.min(height, rowStart + TILE_SIZE);
+            java.util.Arrays.fill(tileSad, 0);
+            for (int r = rowStart; r < rowEnd; r++) {
+                int row = r * width;
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int colEnd = Math.min(width, (tx + 1) * TILE_SIZE);
+                    int sad = 0;
+                    for (int c = tx * TILE_SIZE; c < colEnd; c++)
+                        sad += Math.abs((gray[row + c] & 0xFF) - (reference[row + c] & 0xFF));
+                    tileSad[tx] += sad;
+                }
+            }
+            for (int tx = 0; tx < tilesX; tx++) {
+                int colStart = tx * TILE_SIZE;
+                int colEnd = Math.min(width, colStart + TILE_SIZE);
+                int pixels = (rowEnd - rowStart) * (colEnd - colStart);
+                boolean tileChanged = tileSad[tx] > MAX_MEAN_DIFFERENCE * pixels;
+                changed[ty * tilesX + tx] = tileChanged;
+                if (tileChanged) {
+                    for (int r = rowStart; r < rowEnd; r++)
+                        System.arraycopy(gray, r * width + colStart, reference, r * width + colStart, colEnd - colStart);
+                }
+            }
+        }
+    }
+
+    private void buildRuns()
+    {
+        runCount = 0;
+        for (int ty = 0; ty < tilesY; ty++) {
+            rowRunStart[ty] = runCount;
+            int tx = 0;
+            while (tx < tilesX) {
+                if (!dirty[ty * tilesX + tx]) {
+                    tx++;
+                    continue;
+                }
+                int start = tx;
+                while (tx < tilesX && dirty[ty * tilesX + tx])
+                    tx++;
+                runX[runCount] = start * TILE_SIZE;
+                runY[runCount] = ty * TILE_SIZE;
+                runWidth[runCount] = Math.min(width, tx * TILE_SIZE) - start * TILE_SIZE;
+                runHeight[runCount] = Math.min(height, (ty + 1) * TILE_SIZE) - ty * TILE_SIZE;
+                runCount++;
+            }
+        }
+        rowRunStart[tilesY] = runCount;
+    }
+}
@@ -0,0 +1,276 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * A pure Java convolution engine working on primitive arrays.
+ * All images are stored row by row in one array, index = row * width + col.
+ * Gray values are read from short arrays (0-255, as copied out of a CV_16UC1 mat),
+ * and all sums are done with int accumulators.
+ * laplacian3x3() can also read a byte array copied straight out of a CV_8UC1 mat, so the gray mat does not need widening.
+ *
+ * laplacian3x3()  - Fixed 3*3 laplacian kernel {{0,1,0},{1,-4,1},{0,1,0}}. Can run on a range of rows.
+ * gaussian3x3()   - Separable [1 2 1] gaussian.
+ * gaussian5x5()   - Separable [1 4 6 4 1] gaussian.
+ * box()           - Separable box filter of any radius, with running sums.
+ * separable()     - Any separable integer kernel.
+ * convolve()      - Generic fallback for any 2D integer kernel.
+ *
+ * Only the pixels whose whole neighbourhood lies inside the image are written.
+ * The border of dst (half kernel size wide) is left untouched, same as myEdgy2() did.
+ * The fast paths walk the image with row pointers (index of the row above, current row, row below)
+ * instead of indexing a 2D kernel for every pixel.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public final class Convolution {
+
+    /**
+     * [1 2 1] / 4 on each axis.
+     */
+    private static final int[] GAUSSIAN3 = {1, 2, 1};
+
+    /**
+     * [1 4 6 4 1] / 16 on each axis.
+     */
+    private static final int[] GAUSSIAN5 = {1, 4, 6, 4, 1};
+
+    private Convolution() {
+    }
+
+
+    /**
+     * 3*3 laplacian: up + down + left + right - 4 * center.
+     * @param src gray image.
+     * @param dst laplacian response. Can hold negative values.
+     * @param width image width.
+     * @param height image height.
+     */
+    public static void laplacian3x3(short[] src, int[] dst, int width, int height)
+    {
+        laplacian3x3(src, dst, width, height, 1, height - 1);
+    }
+
+    /**
+     * 3*3 laplacian on the rows [rowStart, rowEnd) only.
+     * Reads one more row above and below the range, so strips of one image can run in parallel.
+     * @param src gray image.
+     * @param dst laplacian response. Can hold negative values.
+     * @param width image width.
+     * @param height image height.
+     * @param rowStart first row to compute, clamped to 1.
+     * @param rowEnd row after the last row to compute, clamped to height - 1.
+     */
+    public static void laplacian3x3(short[] src, int[] dst, int width, int height, int rowStart, int rowEnd)
+    {
+        rowStart = Math.max(rowStart, 1);
+        rowEnd = Math.min(rowEnd, height - 1);
+        for (int r = rowStart; r < rowEnd; r++) {
+            int up = (r - 1) * width;
+            int center = r * width;
+            int down = (r + 1) * width;
+            for (int c = 1; c < width - 1; c++) {
+                dst[center + c] = src[up + c] + src[down + c] + src[center + c - 1] + src[center + c + 1]
+                        - 4 * src[center + c];
+            }
+        }
+    }
+
+    /**
+     * 3*3 laplacian of an 8 bit gray image.
+     * @param src gray image, unsigned bytes as copied out of a CV_8UC1 mat.
+     * @param dst laplacian response. Can hold negative values.
+     * @param width image width.
+     * @param height image height.
+     */
+    public static void laplacian3x3(byte[] src, int[] dst, int width, int height)
+    {
+        laplacian3x3(src, dst, width, height, 1, height - 1);
+    }
+
+    /**
+     * 3*3 laplacian of an 8 bit gray image on the rows [rowStart, rowEnd) only.
+     * @param src gray image, unsigned bytes as copied out of a CV_8UC1 mat.
+     * @param dst laplacian response. Can hold negative values.
+     * @param width image width.
+     * @param height image height.
+     * @param rowStart first row to compute, clamped to 1.
+     * @param rowEnd row after the last row to compute, clamped to height - 1.
+     */
+    public static void laplacian3x3(byte[] src, int[] dst, int width, int height, int rowStart, int rowEnd)
+    {
+        rowStart = Math.max(rowStart, 1);
+        rowEnd = Math.min(rowEnd, height - 1);
+        for (int r = rowStart; r < rowEnd; r++) {
+            int up = (r - 1) * width;
+            int center = r * width;
+            int down = (r + 1) * width;
+            for (int c = 1; c < width - 1; c++) {
+                dst[center + c] = laplacian3x3(src, up + c, center + c, down + c);
+            }
+        }
+    }
+
+    /**
+     * 3*3 laplacian of one pixel of an 8 bit gray image, given the indices of the pixel and the pixels above and below.
+     */
+    static int laplacian3x3(byte[] src, int up, int center, int down)
+    {
+        return (src[up] & 0xFF) + (src[down] & 0xFF) + (src[center - 1] & 0xFF) + (src[center + 1] & 0xFF)
+                - 4 * (src[center] & 0xFF);
+    }
+
+    /**
+     * Separable 3*3 gaussian, rounded back to the gray scale.
+     * @param src gray image.
+     * @param dst blurred image.
+     * @param tmp scratch array of width * height elements, holds the horizontal pass.
+     * @param width image width.
+     * @param height image height.
+     */
+    public static void gaussian3x3(short[] src, int[] dst, int[] tmp, int width, int height)
+    {
+        separable(src, dst, tmp, width, height, GAUSSIAN3, 2);
+    }
+
+    /**
+     * Separable 5*5 gaussian, rounded back to the gray scale.
+     * @param src gray image.
+     * @param dst blurred image.
+     * @param tmp scratch array of width * height elements, holds the horizontal pass.
+     * @param width image width.
+     * @param height image height.
+     */
+    public static void gaussian5x5(short[] src, int[] dst, int[] tmp, int width, int height)
+    {
+        separable(src, dst, tmp, width, height, GAUSSIAN5, 4);
+    }
+
+    /**
+     * Separable (2 * radius + 1)^2 box filter (mean), rounded back to the gray scale.
+     * Uses running sums, so the cost does not depend on the radius.
+     * @param src gray image.
+     * @param dst blurred image.
+     * @param tmp scratch array of width * height elements, holds the horizontal sums.
+     * @param width image width.
+     * @param height image height.
+     * @param radius half kernel size. 1 means 3*3.
+     * @throws IllegalArgumentException if the radius is negative, or the kernel is wider or taller than the image.
+     */
+    public static void box(short[] src, int[] dst, int[] tmp, int width, int height, int radius)
+    {
+        int size = 2 * radius + 1;
+        if (radius < 0 || size > width || size > height)
+            throw new IllegalArgumentException("Box of " + size + "x" + size + " does not fit a " + width + "x" + height + " image");
+        // Horizontal running sums.
+        for (int r = 0; r < height; r++) {
+            int row = r * width;
+            int sum = 0;
+            for (int c = 0; c < size; c++)
+                sum += src[row + c];
+            tmp[row + radius] = sum;
+            for (int c = radius + 1; c < width - radius; c++) {
+                sum += src[row + c + radius] - src[row + c - radius - 1];
+                tmp[row + c] = sum;
+            }
+        }
+        // Vertical running sums, one running sum per column.
+        int area = size * size;
+        int half = area / 2;
+        for (int c = radius; c < width - radius; c++) {
+            int sum = 0;
+            for (int r = 0; r < size; r++)
+                sum += tmp[r * width + c];
+            dst[radius * width + c] = (sum + half) / area;
+            for (int r = radius + 1; r < height - radius; r++) {
+                sum += tmp[(r + radius) * width + c] - tmp[(r - radius - 1) * width + c];
+                dst[r * width + c] = (sum + half) / area;
+            }
+        }
+    }
+
+    /**
+     * Convolve with kernel^T * kernel, then shift the result right by 2 * shift bits with rounding.
+     * @param src gray image.
+     * @param dst filtered image.
+     * @param tmp scratch array of width * height elements, holds the horizontal pass.
+     * @param width image width.
+     * @param height image height.
+     * @param kernel odd-sized 1D integer kernel, applied on both axes.
+     * @param shift log2 of the sum of the 1D kernel. 0 keeps the raw sum.
+     */
+    public static void separable(short[] src, int[] dst, int[] tmp, int width, int height, int[] kernel, int shift)
+    {
+        int half = kernel.length / 2;
+        int size = kernel.length;
+        // Horizontal pass.
+        for (int r = 0; r < height; r++) {
+            int row = r * width;
+            for (int c = half; c < width - half; c++) {
+                int sum = 0;
+                int start = row + c - half;
+                for (int k = 0; k < size; k++)
+                    sum += src[start + k] * kernel[k];
+                tmp[row + c] = sum;
+            }
+        }
+        // Vertical pass.
+        int totalShift = 2 * shift;
+        int rounding = totalShift == 0 ? 0 : 1 << (totalShift - 1);
+        for (int r = half; r < height - half; r++) {
+            int row = r * width;
+            int top = (r - half) * width;
+            for (int c = half; c < width - half; c++) {
+                int sum = 0;
+                int index = top + c;
+                for (int k = 0; k < size; k++, index += width)
+                    sum += tmp[index] * kernel[k];
+                dst[row + c] = (sum + rounding) >> totalShift;
+            }
+        }
+    }
+
+    /**
+     * Generic fallback for any odd-sized square integer kernel.
+     * The kernel is flattened into offsets once, so the inner loop is a plain dot product.
+     * @param src gray image.
+     * @param dst raw (unnormalized) response.
+     * @param width image width.
+     * @param height image height.
+     * @param kernel odd-sized square kernel, kernel[row][col].
+     */
+    public static void convolve(short[] src, int[] dst, int width, int height, int[][] kernel)
+    {
+        int half = kernel.length / 2;
+        int taps = 0;
+        for (int[] row : kernel)
+            for (int weight : row)
+                if (weight != 0)
+                    taps++;
+        int[] offsets = new int[taps];
+        int[] weights = new int[taps];
+        int t = 0;
+        for (int y = 0; y < kernel.length; y++)
+            for (int x = 0; x < kernel.length; x++)
+                if (kernel[y][x] != 0) {
+                    offsets[t] = (y - half) * width + (x - half);
+                    weights[t] = kernel[y][x];
+                    t++;
+                }
+
+        for (int r = half; r < height - half; r++) {
+            int row = r * width;
+            for (int c = half; c < width - half; c++) {
+                int center = row + c;
+                int sum = 0;
+                for (int k = 0; k < taps; k++)
+                    sum += src[center + offsets[k]] * weights[k];
+                dst[center] = sum;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * A compact list of corner coordinates, stored in primitive arrays.
+ * extract() finds the corners of a corner response image (e.g. normalized Harris response) in plain Java:
+ *  1) Threshold;
+ *  2) 3*3 non-maximum suppression, so one corner gives one point instead of a blob;
+ *  3) Keep at most maxCorners, the strongest ones (min-heap, O(n log maxCorners)).
+ * The arrays are allocated once, so extracting the corners of a frame allocates nothing.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class CornerList {
+    private final int[] xs;
+    private final int[] ys;
+    private final float[] scores;
+    private int size;
+
+
+    /**
+     * @param maxCorners the most corners this list can hold.
+     */
+    public CornerList(int maxCorners)
+    {
+        xs = new int[maxCorners];
+        ys = new int[maxCorners];
+        scores = new float[maxCorners];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return xs.length;
+    }
+
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    public float getScore(int i) {
+        return scores[i];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replace the content of this list with the corners of a response image.
+     * A pixel is a corner if its response is above the threshold and it is the maximum of its 3*3 neighbourhood.
+     * On a plateau, only the first pixel in row order is kept.
+     * If there are more corners than the capacity, the strongest ones are kept, in no particular order.
+     * @param response row-major response image.
+     * @param width image width.
+     * @param height image height.
+     * @param threshold minimum response, exclusive.
+     * @return number of corners found.
+     */
+    public int extract(float[] response, int width, int height, float threshold)
+    {
+        size = 0;
+        int capacity = xs.length;
+        if (capacity == 0)
+            return 0;
+        for (int r = 1; r < height - 1; r++) {
+            int up = (r - 1) * width;
+            int center = r * width;
+            int down = (r + 1) * width;
+            for (int c = 1; c < width - 1; c++) {
+                float value = response[center + c];
+                if (value <= threshold)
+                    continue;
+                // Strictly bigger than the neighbours already visited, not smaller than the ones to come.
+                if (value <= response[up + c - 1] || value <= response[up + c] || value <= response[up + c + 1]
+                        || value <= response[center + c - 1]
+                        || value < response[center + c + 1]
+                        || value < response[down + c - 1] || value < response[down + c] || value < response[down + c + 1])
+                    continue;
+                if (size < capacity) {
+                    xs[size] = c;
+                    ys[size] = r;
+                    scores[size] = value;
+                    size++;
+                    if (size == capacity)
+                        buildHeap();
+                } else if (value > scores[0]) {
+                    xs[0] = c;
+                    ys[0] = r;
+                    scores[0] = value;
+                    siftDown(0);
+                }
+            }
+        }
+        return size;
+    }
+
+
+    /**
+     * Once full, the list is kept as a min-heap on the score, so the weakest corner is at index 0.
+     */
+    private void buildHeap()
+    {
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(i);
+    }
+
+    private void siftDown(int i)
+    {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size)
+                return;
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && scores[right] < scores[left])
+                smallest = right;
+            if (scores[i] <= scores[smallest])
+                return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b)
+    {
+        int x = xs[a];
+        xs[a] = xs[b];
+        xs[b] = x;
+        int y = ys[a];
+        ys[a] = ys[b];
+        ys[b] = y;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
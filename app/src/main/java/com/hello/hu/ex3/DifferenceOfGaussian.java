@@ -0,0 +1,232 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * A streaming Difference of Gaussian: two separable gaussian blurs of the same sigma and different kernel sizes,
+ * compared pixel by pixel, in one pass over the frame.
+ * Only a ring of 2 * outer radius + 1 rows of horizontal sums is kept. Each source row is blurred horizontally once,
+ * and each output row is written as soon as the rows below it are in the ring, so the working set stays in cache
+ * instead of going through two full size blurred images, a difference image and a threshold pass.
+ *
+ * The blurs share their work: the inner kernel is the middle taps of the outer kernel, so
+ *   horizontal: outer sum = inner sum + sum of the outer taps only;
+ *   vertical:   outer blur = inner blur + the remaining terms.
+ * Both use the same integer tap weights, and are only normalized (by the squared weight sum of each kernel)
+ * when a pixel is written. The weights are scaled so that all sums fit in int.
+ * Borders are BORDER_REFLECT_101, same as Imgproc.GaussianBlur().
+ *
+ * apply() - 255 where the rounded blurs differ by at most maxDifference, 0 elsewhere.
+ * blur()  - The two rounded blurs themselves.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class DifferenceOfGaussian {
+
+    private final int innerRadius;
+    private final int outerRadius;
+
+    /**
+     * Tap weights of distance 0 - outer radius, and the squared weight sums of the two kernels.
+     */
+    private final int[] weights;
+    private final int innerNorm;
+    private final int outerNorm;
+
+    /**
+     * Ring of horizontal sums: inner taps, and outer taps only. Row y is at (y % ringRows) * width.
+     */
+    private final int ringRows;
+    private int width;
+    private int[] innerRing = new int[0];
+    private int[] outerRing = new int[0];
+
+    /**
+     * Vertical sums of the output row being written.
+     */
+    private int[] innerRow = new int[0];
+    private int[] outerRow = new int[0];
+
+
+    /**
+     * Build the kernels.
+     * @param innerSize kernel size of the narrow blur, odd.
+     * @param outerSize kernel size of the wide blur, odd and larger than innerSize.
+     * @param sigma gaussian sigma of both blurs.
+     */
+    public DifferenceOfGaussian(int innerSize, int outerSize, double sigma)
+    {
+        if (innerSize % 2 == 0 || outerSize % 2 == 0 || innerSize >= outerSize)
+            throw new IllegalArgumentException("Kernel sizes must be odd and increasing, not " + innerSize + " and " + outerSize);
+        innerRadius = innerSize / 2;
+        outerRadius = outerSize / 2;
+        ringRows = outerSize;
+
+        double[] gaussian = new double[outerRadius + 1];
+        double outerSum = 0;
+        for (int i = 0; i <= outerRadius; i++) {
+            gaussian[i] = Math.exp(-i * i / (2 * sigma * sigma));
+            outerSum += i == 0 ? gaussian[i] : 2 * gaussian[i];
+        }
+        // 255 * (sum of weights)^2, plus half of it for rounding, must fit in int.
+        double scale = Math.floor(Math.sqrt(Integer.MAX_VALUE / 256.0)) / outerSum;
+        weights = new int[outerRadius + 1];
+        int innerSum = 0;
+        int outerWeightSum = 0;
+        for (int i = 0; i <= outerRadius; i++) {
+            weights[i] = (int) (gaussian[i] * scale);
+            int taps = i == 0 ? weights[i] : 2 * weights[i];
+            outerWeightSum += taps;
+            if (i <= innerRadius)
+                innerSum += taps;
+        }
+        innerNorm = innerSum * innerSum;
+        outerNorm = outerWeightSum * outerWeightSum;
+    }
+
+    /**
+     * Difference of the two blurs, thresholded.
+     * @param src gray image, unsigned bytes.
+     * @param dst receives 255 where the rounded blurs differ by at most maxDifference, 0 elsewhere. Not src.
+     * @param width image width, larger than the outer radius.
+     * @param height image height, larger than the outer radius.
+     * @param maxDifference largest difference (0-255) still written as 255.
+     */
+    public void apply(byte[] src, byte[] dst, int width, int height, int maxDifference)
+    {
+        run(src, width, height, dst, maxDifference, null, null);
+    }
+
+    /**
+     * The two blurs.
+     * @param src gray image, unsigned bytes.
+     * @param inner receives the narrow blur, rounded. Not src.
+     * @param outer receives the wide blur, rounded. Not src.
+     * @param width image width, larger than the outer radius.
+     * @param height image height, larger than the outer radius.
+     */
+    public void blur(byte[] src, byte[] inner, byte[] outer, int width, int height)
+    {
+        run(src, width, height, null, 0, inner, outer);
+    }
+
+
+    private void run(byte[] src, int width, int height, byte[] dst, int maxDifference, byte[] inner, byte[] outer)
+    {
+        if (width <= outerRadius || height <= outerRadius)
+            throw new IllegalArgumentException("Image must be larger than " + outerRadius + ", not " + width + "x" + height);
+        resize(width);
+        int innerHalf = innerNorm / 2;
+        int outerHalf = outerNorm / 2;
+        int next = 0;
+        for (int r = 0; r < height; r++) {
+            // Rows up to outerRadius below r; rows above r are still in the ring.
+            int last = Math.min(height - 1, r + outerRadius);
+            for (; next <= last; next++)
+                horizontal(src, next);
+            vertical(r, height);
+
+            int row = r * width;
+            for (int c = 0; c < width; c++) {
+                int innerSum = innerRow[c];
+                int narrow = (innerSum + innerHalf) / innerNorm;
+                int wide = (innerSum + outerRow[c] + outerHalf) / outerNorm;
+                if (dst != null)
+                    dst[row + c] = Math.abs(narrow - wide) <= maxDifference ? (byte) 255 : 0;
+                if (inner != null) {
+                    inner[row + c] = (byte) narrow;
+                    outer[row + c] = (byte) wide;
+                }
+            }
+        }
+    }
+
+    private void resize(int width)
+    {
+        this.width = width;
+        int size = ringRows * width;
+        if (innerRing.length < size) {
+            innerRing = new int[size];
+            outerRing = new int[size];
+        }
+        if (innerRow.length < width) {
+            innerRow = new int[width];
+            outerRow = new int[width];
+        }
+    }
+
+    /**
+     * Horizontal sums of source row y into the ring: inner taps, and outer taps only.
+     */
+    private void horizontal(byte[] src, int y)
+    {
+        int row = y * width;
+        int slot = (y % ringRows) * width;
+        int end = width - outerRadius;
+        for (int c = 0; c < width; c++) {
+            int innerSum = weights[0] * (src[row + c] & 0xFF);
+            int outerSum = 0;
+            if (c >= outerRadius && c < end) {
+                for (int i = 1; i <= innerRadius; i++)
+                    innerSum += weights[i] * ((src[row + c - i] & 0xFF) + (src[row + c + i] & 0xFF));
+                for (int i = innerRadius + 1; i <= outerRadius; i++)
+                    outerSum += weights[i] * ((src[row + c - i] & 0xFF) + (src[row + c + i] & 0xFF));
+            } else {
+                for (int i = 1; i <= outerRadius; i++) {
+                    int sum = (src[row + reflect(c - i, width)] & 0xFF) + (src[row + reflect(c + i, width)] & 0xFF);
+                    if (i <= innerRadius)
+                        innerSum += weights[i] * sum;
+                    else
+                        outerSum += weights[i] * sum;
+                }
+            }
+            innerRing[slot + c] = innerSum;
+            outerRing[slot + c] = outerSum;
+        }
+    }
+
+    /**
+     * Vertical sums of output row r: innerRow gets the narrow blur, outerRow what the wide blur adds to it.
+     * One tap at a time over the whole row, so every ring row is read sequentially.
+     */
+    private void vertical(int r, int height)
+    {
+        int center = (r % ringRows) * width;
+        int w0 = weights[0];
+        for (int c = 0; c < width; c++) {
+            innerRow[c] = w0 * innerRing[center + c];
+            outerRow[c] = w0 * outerRing[center + c];
+        }
+        for (int i = 1; i <= outerRadius; i++) {
+            int above = (reflect(r - i, height) % ringRows) * width;
+            int below = (reflect(r + i, height) % ringRows) * width;
+            int w = weights[i];
+            if (i <= innerRadius) {
+                for (int c = 0; c < width; c++) {
+                    innerRow[c] += w * (innerRing[above + c] + innerRing[below + c]);
+                    outerRow[c] += w * (outerRing[above + c] + outerRing[below + c]);
+                }
+            } else {
+                for (int c = 0; c < width; c++)
+                    outerRow[c] += w * (innerRing[above + c] + innerRing[below + c]
+                            + outerRing[above + c] + outerRing[below + c]);
+            }
+        }
+    }
+
+    /**
+     * BORDER_REFLECT_101 index, for an index at most size - 1 outside the image.
+     */
+    private static int reflect(int i, int size)
+    {
+        if (i < 0)
+            return -i;
+        if (i >= size)
+            return 2 * size - 2 - i;
+        return i;
+    }
+}
@@ -0,0 +1,78 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * All the items of the spinner menu, in the order of R.array.spinner_menu.
+ * The label must be exactly the text of the spinner item.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public enum FilterMode {
+    RANDOM("Random"),
+    THRESHOLD("Threshold"),
+    MEAN_BLUR("Mean Blur"),
+    GAUSSIAN_BLUR("Gaussian Blur"),
+    DILATION("Dialation"),
+    EROSION("Erosion"),
+    ADAPTIVE_THRESHOLD("Adaptive Thresholding"),
+    DIFFERENCE_OF_GAUSSIAN("Difference of Gaussian"),
+    CANNY_EDGE("Canny Edge"),
+    SOBEL_EDGE("Sobel Edge"),
+    CORNER("Corner Detection", true),
+    HOUGH("Hough Line Transform"),
+    EDGY("Edgy", true),
+    BEST_LINES("Best Lines", true),
+    BLUR_CANNY_HOUGH("Blur + Canny + Hough"),
+    BEST_SEGMENTS("Best Segments", true);
+
+    private final String label;
+
+    /**
+     * Too slow to keep up with the camera, so MainActivity runs it on a worker thread.
+     */
+    private final boolean heavy;
+
+    FilterMode(String label) {
+        this(label, false);
+    }
+
+    FilterMode(String label, boolean heavy) {
+        this.label = label;
+        this.heavy = heavy;
+    }
+
+    /**
+     * Getter of the spinner text.
+     * @return spinner text.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Getter of the heavy flag.
+     * @return true if the filter can not keep up with the camera frame rate.
+     */
+    public boolean isHeavy() {
+        return heavy;
+    }
+
+    /**
+     * Find the mode of a spinner item.
+     * @param label spinner text.
+     * @return the mode, RANDOM if no mode has this label (same as the default branch of the old switch).
+     */
+    public static FilterMode fromLabel(String label)
+    {
+        for (FilterMode mode : values()) {
+            if (mode.label.equals(label))
+                return mode;
+        }
+        return RANDOM;
+    }
+}
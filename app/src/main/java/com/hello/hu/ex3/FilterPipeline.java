@@ -0,0 +1,101 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * [Class Overview]
+ * Chain several FrameFilters, e.g. Gaussian Blur -> Canny -> Hough.
+ * The first stage gets the camera frame. Every next stage gets the output mat of the previous stage,
+ * wrapped as a frame:
+ *  gray() returns the mat itself if it already has 1 channel, otherwise converts it once;
+ *  rgba() returns the mat itself if it already has 4 channels, otherwise converts it once.
+ * The converted mats are leased from the FrameBufferPool, and two slots are used in turn,
+ * so a stage never writes into the mat the next stage reads from. Every conversion is timed as CONVERT_COLOR.
+ * A stage that works on the output of the previous stage as it is, e.g. BasicFilters.houghFromEdges() after
+ * cannyEdgeMat(), should read gray() of a 1 channel output, so nothing is converted.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FilterPipeline implements FrameFilter {
+
+    private final FrameFilter[] stages;
+    private final StageFrame[] frames;
+
+
+    /**
+     * @param framePool pool of the intermediate mats.
+     * @param stages filters, in the order they run.
+     */
+    public FilterPipeline(FrameBufferPool framePool, FrameFilter... stages)
+    {
+        this.stages = stages.clone();
+        this.frames = new StageFrame[stages.length];
+        for (int i = 1; i < stages.length; i++)
+            frames[i] = new StageFrame(framePool, i % 2 == 0 ? FrameBufferPool.SLOT_STAGE_A : FrameBufferPool.SLOT_STAGE_B);
+    }
+
+    @Override
+    public Mat apply(VideoFrame inputFrame)
+    {
+        Mat mat = stages[0].apply(inputFrame);
+        for (int i = 1; i < stages.length; i++) {
+            frames[i].set(mat);
+            mat = stages[i].apply(frames[i]);
+        }
+        return mat;
+    }
+
+
+    /**
+     * The output mat of a stage, seen as a frame by the next stage.
+     */
+    static final class StageFrame implements VideoFrame {
+        private final FrameBufferPool framePool;
+        private final int slot;
+        private Mat mat;
+        private Mat converted;
+
+        StageFrame(FrameBufferPool framePool, int slot) {
+            this.framePool = framePool;
+            this.slot = slot;
+        }
+
+        void set(Mat mat) {
+            this.mat = mat;
+            this.converted = null;
+        }
+
+        @Override
+        public Mat gray() {
+            if (mat.channels() == 1)
+                return mat;
+            if (converted == null || converted.channels() != 1) {
+                long t = StageTimer.start();
+                converted = framePool.mat(slot, mat.rows(), mat.cols(), CvType.CV_8UC1);
+                Imgproc.cvtColor(mat, converted, Imgproc.COLOR_RGBA2GRAY);
+                StageTimer.lap(StageTimer.Stage.CONVERT_COLOR, t);
+            }
+            return converted;
+        }
+
+        @Override
+        public Mat rgba() {
+            if (mat.channels() == 4)
+                return mat;
+            if (converted == null || converted.channels() != 4) {
+                long t = StageTimer.start();
+                converted = framePool.mat(slot, mat.rows(), mat.cols(), CvType.CV_8UC4);
+                Imgproc.cvtColor(mat, converted, Imgproc.COLOR_GRAY2RGBA);
+                StageTimer.lap(StageTimer.Stage.CONVERT_COLOR, t);
+            }
+            return converted;
+        }
+    }
+}
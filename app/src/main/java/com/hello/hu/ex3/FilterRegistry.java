@@ -0,0 +1,188 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+
+import java.util.EnumMap;
+
+/**
+ * [Class Overview]
+ * Map every spinner item to its FrameFilter.
+ * MainActivity resolves the selection once in onItemSelected(), so onCameraFrame() does not
+ * need to switch on the spinner string for every frame.
+ * Every filter is wrapped so its latency is recorded by StageTimer under its mode.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FilterRegistry {
+
+    /**
+     * Threshold value of myEdgy2() and myBestLines2(). Chosen per frame from the laplacian response.
+     */
+    private static final int EDGE_THRESHOLD = MyAlgorithm.ADAPTIVE_THRESHOLD;
+
+    private final EnumMap<FilterMode, FrameFilter> filters = new EnumMap<FilterMode, FrameFilter>(FilterMode.class);
+    private final FrameBufferPool framePool;
+
+
+    /**
+     * Create one filter per mode.
+     * @param framePool pool shared by all filters.
+     * @param basicFilters the OpenCV filters.
+     * @param myAlgorithm my own algorithms.
+     */
+    public FilterRegistry(FrameBufferPool framePool, final BasicFilters basicFilters, final MyAlgorithm myAlgorithm)
+    {
+        this.framePool = framePool;
+        put(FilterMode.RANDOM, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.randomMat(inputFrame);
+            }
+        });
+        put(FilterMode.THRESHOLD, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.thresholdMat(inputFrame);
+            }
+        });
+        put(FilterMode.MEAN_BLUR, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.meanBlurMat(inputFrame);
+            }
+        });
+        put(FilterMode.GAUSSIAN_BLUR, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.gaussianBlurMat(inputFrame);
+            }
+        });
+        put(FilterMode.DILATION, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.dilationMat(inputFrame);
+            }
+        });
+        put(FilterMode.EROSION, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.erosionMat(inputFrame);
+            }
+        });
+        put(FilterMode.ADAPTIVE_THRESHOLD, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.adptThresholdMat(inputFrame);
+            }
+        });
+        put(FilterMode.DIFFERENCE_OF_GAUSSIAN, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.differenceofGaussianMat(inputFrame);
+            }
+        });
+        put(FilterMode.CANNY_EDGE, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.cannyEdgeMat(inputFrame);
+            }
+        });
+        put(FilterMode.SOBEL_EDGE, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.sobelMat(inputFrame);
+            }
+        });
+        put(FilterMode.CORNER, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.cornerMat(inputFrame);
+            }
+        });
+        put(FilterMode.HOUGH, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return basicFilters.houghMat(inputFrame);
+            }
+        });
+        put(FilterMode.EDGY, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                //return myAlgorithm.myEdgy(inputFrame,EDGE_THRESHOLD);
+                return myAlgorithm.myEdgy2(inputFrame, EDGE_THRESHOLD);
+            }
+        });
+        put(FilterMode.BEST_LINES, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return myAlgorithm.myBestLines2(inputFrame, EDGE_THRESHOLD);
+            }
+        });
+        // The hough stage reads the canny edges as they are, instead of running houghMat() on them.
+        put(FilterMode.BLUR_CANNY_HOUGH, new FilterPipeline(framePool,
+                filters.get(FilterMode.GAUSSIAN_BLUR), filters.get(FilterMode.CANNY_EDGE), new FrameFilter() {
+                    @Override
+                    public Mat apply(VideoFrame inputFrame) {
+                        return basicFilters.houghFromEdges(inputFrame.gray());
+                    }
+                }));
+        put(FilterMode.BEST_SEGMENTS, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                return myAlgorithm.myBestSegments(inputFrame);
+            }
+        });
+    }
+
+    /**
+     * Register the filter of a mode, timed as a whole by StageTimer.
+     */
+    private void put(final FilterMode mode, final FrameFilter filter)
+    {
+        filters.put(mode, new FrameFilter() {
+            @Override
+            public Mat apply(VideoFrame inputFrame) {
+                long start = StageTimer.start();
+                Mat result = filter.apply(inputFrame);
+                StageTimer.filter(mode, start);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Getter of the filter of a mode.
+     * @param mode spinner mode.
+     * @return its filter.
+     */
+    public FrameFilter get(FilterMode mode) {
+        return filters.get(mode);
+    }
+
+    /**
+     * Getter of the filter of a spinner item.
+     * @param label spinner text.
+     * @return its filter. The Random filter for an unknown label.
+     */
+    public FrameFilter resolve(String label) {
+        return filters.get(FilterMode.fromLabel(label));
+    }
+
+    /**
+     * Chain the filters of several modes.
+     * @param modes modes, in the order they run.
+     * @return the pipeline.
+     */
+    public FrameFilter pipeline(FilterMode... modes)
+    {
+        FrameFilter[] stages = new FrameFilter[modes.length];
+        for (int i = 0; i < modes.length; i++)
+            stages[i] = filters.get(modes[i]);
+        return new FilterPipeline(framePool, stages);
+    }
+}
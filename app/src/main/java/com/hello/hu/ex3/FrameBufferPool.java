@@ -0,0 +1,228 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * [Class Overview]
+ * A pool of per-frame scratch buffers.
+ * Every frame of a camera preview has the same size, so the arrays and mats a filter needs
+ * can be created once and reused, instead of allocating them again on every onCameraFrame().
+ *
+ * Each buffer is keyed by (slot, width, height, CvType). The slot tells apart buffers that
+ * have the same shape but different usages, e.g. the gray array and the laplacian array.
+ * The lookup is a linear scan over a small array, so leasing a buffer never allocates.
+ *
+ * Usage:
+ *  1) prepare(width, height) in onCameraViewStarted();
+ *  2) shorts()/bytes()/ints()/mat() in every frame;
+ *  3) release() in onCameraViewStopped().
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FrameBufferPool {
+
+    /**
+     * Slots used by MyAlgorithm and MainActivity.
+     */
+    public static final int SLOT_GRAY = 0;
+    public static final int SLOT_COLOR = 1;
+    public static final int SLOT_LAPLACIAN = 2;
+    public static final int SLOT_TEMP = 3;
+    public static final int SLOT_TEMP2 = 4;
+    public static final int SLOT_TEMP3 = 5;
+    public static final int SLOT_STAGE_A = 6;
+    public static final int SLOT_STAGE_B = 7;
+    public static final int SLOT_SMALL = 8;
+    public static final int SLOT_SMALL2 = 9;
+
+    /**
+     * Maximum number of different buffers this pool can hold.
+     */
+    private static final int MAX_ENTRIES = 64;
+
+    private final int[] slots = new int[MAX_ENTRIES];
+    private final int[] widths = new int[MAX_ENTRIES];
+    private final int[] heights = new int[MAX_ENTRIES];
+    private final int[] types = new int[MAX_ENTRIES];
+    private final Object[] buffers = new Object[MAX_ENTRIES];
+    private int entryCount;
+
+    private int frameWidth;
+    private int frameHeight;
+
+    /**
+     * How many buffers have been created since the pool was prepared.
+     * Stays constant in a steady state, which is what we want.
+     */
+    private int allocationCount;
+
+
+    /**
+     * Drop all buffers and remember the new frame size.
+     * Call this method in onCameraViewStarted().
+     * @param width frame width.
+     * @param height frame height.
+     */
+    public synchronized void prepare(int width, int height)
+    {
+        release();
+        frameWidth = width;
+        frameHeight = height;
+    }
+
+    /**
+     * Drop all buffers. Mats are released right away, arrays are left to GC.
+     * Call this method in onCameraViewStopped().
+     */
+    public synchronized void release()
+    {
+        for (int i = 0; i < entryCount; i++) {
+            if (buffers[i] instanceof Mat)
+                ((Mat) buffers[i]).release();
+            buffers[i] = null;
+        }
+        entryCount = 0;
+        allocationCount = 0;
+    }
+
+    /**
+     * Getter of the frame width given in prepare().
+     * @return frame width.
+     */
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    /**
+     * Getter of the frame height given in prepare().
+     * @return frame height.
+     */
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    /**
+     * Getter of the number of buffers created since the last prepare().
+     * @return allocation count.
+     */
+    public synchronized int getAllocationCount() {
+        return allocationCount;
+    }
+
+    /**
+     * Lease a short array that can hold width * height * channels(cvType) elements.
+     * @param slot usage of the buffer. One of the SLOT_* constants.
+     * @param width image width.
+     * @param height image height.
+     * @param cvType CvType of the image, decides the number of channels.
+     * @return the cached array.
+     */
+    public synchronized short[] shorts(int slot, int width, int height, int cvType)
+    {
+        int index = find(slot, width, height, cvType, short[].class);
+        if (index < 0)
+            index = add(slot, width, height, cvType, new short[length(width, height, cvType)]);
+        return (short[]) buffers[index];
+    }
+
+    /**
+     * Lease a byte array that can hold width * height * channels(cvType) elements.
+     * @param slot usage of the buffer. One of the SLOT_* constants.
+     * @param width image width.
+     * @param height image height.
+     * @param cvType CvType of the image, decides the number of channels.
+     * @return the cached array.
+     */
+    public synchronized byte[] bytes(int slot, int width, int height, int cvType)
+    {
+        int index = find(slot, width, height, cvType, byte[].class);
+        if (index < 0)
+            index = add(slot, width, height, cvType, new byte[length(width, height, cvType)]);
+        return (byte[]) buffers[index];
+    }
+
+    /**
+     * Lease an int array that can hold width * height * channels(cvType) elements.
+     * @param slot usage of the buffer. One of the SLOT_* constants.
+     * @param width image width.
+     * @param height image height.
+     * @param cvType CvType of the image, decides the number of channels.
+     * @return the cached array.
+     */
+    public synchronized int[] ints(int slot, int width, int height, int cvType)
+    {
+        int index = find(slot, width, height, cvType, int[].class);
+        if (index < 0)
+            index = add(slot, width, height, cvType, new int[length(width, height, cvType)]);
+        return (int[]) buffers[index];
+    }
+
+    /**
+     * Lease a float array that can hold width * height * channels(cvType) elements.
+     * @param slot usage of the buffer. One of the SLOT_* constants.
+     * @param width image width.
+     * @param height image height.
+     * @param cvType CvType of the image, decides the number of channels.
+     * @return the cached array.
+     */
+    public synchronized float[] floats(int slot, int width, int height, int cvType)
+    {
+        int index = find(slot, width, height, cvType, float[].class);
+        if (index < 0)
+            index = add(slot, width, height, cvType, new float[length(width, height, cvType)]);
+        return (float[]) buffers[index];
+    }
+
+    /**
+     * Lease a mat with the given size and type.
+     * The content of the mat is whatever the last user left there.
+     * @param slot usage of the buffer. One of the SLOT_* constants.
+     * @param rows image height.
+     * @param cols image width.
+     * @param cvType CvType of the mat.
+     * @return the cached mat.
+     */
+    public synchronized Mat mat(int slot, int rows, int cols, int cvType)
+    {
+        int index = find(slot, cols, rows, cvType, Mat.class);
+        if (index < 0)
+            index = add(slot, cols, rows, cvType, new Mat(rows, cols, cvType));
+        return (Mat) buffers[index];
+    }
+
+
+    private int find(int slot, int width, int height, int cvType, Class<?> kind)
+    {
+        for (int i = 0; i < entryCount; i++) {
+            if (slots[i] == slot && widths[i] == width && heights[i] == height
+                    && types[i] == cvType && buffers[i].getClass() == kind)
+                return i;
+        }
+        return -1;
+    }
+
+    private int add(int slot, int width, int height, int cvType, Object buffer)
+    {
+        if (entryCount == MAX_ENTRIES)
+            throw new IllegalStateException("FrameBufferPool is full, " + MAX_ENTRIES + " buffers are leased");
+        int index = entryCount++;
+        slots[index] = slot;
+        widths[index] = width;
+        heights[index] = height;
+        types[index] = cvType;
+        buffers[index] = buffer;
+        allocationCount++;
+        return index;
+    }
+
+    private static int length(int width, int height, int cvType)
+    {
+        return width * height * CvType.channels(cvType);
+    }
+}
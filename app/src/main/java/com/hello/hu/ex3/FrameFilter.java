@@ -0,0 +1,26 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+
+/**
+ * [Class Overview]
+ * One stage of the camera pipeline: takes a frame and returns the processed mat.
+ * Filters are resolved once by FilterRegistry when the spinner selection changes,
+ * and can be chained with FilterPipeline.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public interface FrameFilter {
+
+    /**
+     * Process one frame.
+     * @param inputFrame frame captured by onCameraFrame, or the output of the previous stage.
+     * @return the post processed result.
+     */
+    Mat apply(VideoFrame inputFrame);
+}
@@ -0,0 +1,146 @@
+package com.hello.hu.ex3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * [Class Overview]
+ * Replay a recording written by FrameRecordWriter, as a FrameSource.
+ * The frames are memory-mapped like a raw dump, and the index gives the timestamp and spinner mode of every frame.
+ * Only plain java.nio is used for the file, so recordings pulled off the phone replay on desktop Linux,
+ * e.g. with the benchmark module's BatchRunner.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FrameRecordReader extends MappedFileFrameSource {
+
+    /**
+     * Fields of the header of a recording.
+     */
+    static final class Header {
+        int width;
+        int height;
+        int format;
+        int frameCount;
+        long indexOffset;
+        long dataOffset;
+        long createdMillis;
+        ByteBuffer index;
+    }
+
+    private final Header header;
+
+
+    /**
+     * Open a recording.
+     * @param path recording file.
+     * @return the reader.
+     * @throws IOException if the file is not a recording, or cannot be read.
+     */
+    public static FrameRecordReader open(File path) throws IOException
+    {
+        return new FrameRecordReader(path, readHeader(path));
+    }
+
+    /**
+     * @return true if the file starts like a recording.
+     */
+    public static boolean isRecording(File path)
+    {
+        byte[] magic = new byte[FrameRecordWriter.MAGIC.length];
+        try {
+            RandomAccessFile file = new RandomAccessFile(path, "r");
+            try {
+                file.readFully(magic);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return Arrays.equals(magic, FrameRecordWriter.MAGIC);
+    }
+
+    private FrameRecordReader(File path, Header header) throws IOException
+    {
+        super(path, header.width, header.height, header.format, header.dataOffset, header.frameCount);
+        this.header = header;
+    }
+
+    public int getFormat() {
+        return header.format;
+    }
+
+    public long getCreatedMillis() {
+        return header.createdMillis;
+    }
+
+    /**
+     * @return capture time of a frame, in ns.
+     */
+    public long getTimestampNanos(int index)
+    {
+        checkIndex(index);
+        return header.index.getLong(index * FrameRecordWriter.INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * @return the spinner mode active when a frame was captured, or null if none was recorded.
+     */
+    public FilterMode getMode(int index)
+    {
+        checkIndex(index);
+        int mode = header.index.getInt(index * FrameRecordWriter.INDEX_ENTRY_SIZE + 8);
+        return mode >= 0 && mode < FilterMode.values().length ? FilterMode.values()[mode] : null;
+    }
+
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= getFrameCount())
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + getFrameCount());
+    }
+
+    private static Header readHeader(File path) throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < FrameRecordWriter.HEADER_SIZE)
+                throw new IOException(path + " is not a frame recording");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, FrameRecordWriter.HEADER_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[FrameRecordWriter.MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, FrameRecordWriter.MAGIC))
+                throw new IOException(path + " is not a frame recording");
+            int version = buffer.getInt();
+            if (version != FrameRecordWriter.VERSION)
+                throw new IOException(path + " has recording version " + version + ", not " + FrameRecordWriter.VERSION);
+            Header header = new Header();
+            header.width = buffer.getInt(FrameRecordWriter.OFFSET_WIDTH);
+            header.height = buffer.getInt(FrameRecordWriter.OFFSET_HEIGHT);
+            header.format = buffer.getInt(FrameRecordWriter.OFFSET_FORMAT);
+            header.frameCount = buffer.getInt(FrameRecordWriter.OFFSET_FRAME_COUNT);
+            header.indexOffset = buffer.getLong(FrameRecordWriter.OFFSET_INDEX);
+            header.dataOffset = buffer.getLong(FrameRecordWriter.OFFSET_DATA);
+            header.createdMillis = buffer.getLong(FrameRecordWriter.OFFSET_CREATED);
+            header.index = channel.map(FileChannel.MapMode.READ_ONLY, header.indexOffset,
+                    (long) header.frameCount * FrameRecordWriter.INDEX_ENTRY_SIZE);
+            header.index.order(ByteOrder.LITTLE_ENDIAN);
+            return header;
+        } finally {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.hello.hu.ex3;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * [Class Overview]
+ * Write raw frames into a recording file, read back by FrameRecordReader. No OpenCV inside, so it runs on a plain JVM.
+ * The file is preallocated for a fixed number of frames and memory-mapped, so appending a frame is a memory copy:
+ * no write() call, and no file growth while recording.
+ *
+ * Layout, little endian:
+ *   header, HEADER_SIZE bytes:
+ *      0  magic "EX3FRAME"      8  version             12 width          16 height
+ *     20  RawFrame format      24  capacity (frames)   28 frame count    32 index offset (long)
+ *     40  data offset (long)   48  creation time, ms since the epoch (long)
+ *   index, INDEX_ENTRY_SIZE bytes per frame of the capacity:
+ *      0  timestamp, ns (long)  8  FilterMode ordinal, -1 for none    12 reserved
+ *   frames, starting on a page boundary, RawFrame.frameSize() bytes each.
+ * Frame i is at data offset + i * frame size, so any frame is found in O(1).
+ * The frame count is written after the frame and its index entry, so a reader never sees a half written frame.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FrameRecordWriter implements Closeable {
+
+    static final byte[] MAGIC = "EX3FRAME".getBytes(Charset.forName("US-ASCII"));
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final int OFFSET_WIDTH = 12;
+    static final int OFFSET_HEIGHT = 16;
+    static final int OFFSET_FORMAT = 20;
+    static final int OFFSET_CAPACITY = 24;
+    static final int OFFSET_FRAME_COUNT = 28;
+    static final int OFFSET_INDEX = 32;
+    static final int OFFSET_DATA = 40;
+    static final int OFFSET_CREATED = 48;
+
+    /**
+     * Frames start on a page boundary.
+     */
+    private static final int PAGE_SIZE = 4096;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int frameSize;
+    private final int capacity;
+    private final long dataOffset;
+    private final int framesPerRegion;
+    private final MappedByteBuffer[] regions;
+    private int frameCount;
+
+
+    /**
+     * Create a recording, replacing any file at the path.
+     * @param path recording file.
+     * @param width frame width.
+     * @param height frame height.
+     * @param format RawFrame.FORMAT_GRAY, FORMAT_RGBA or FORMAT_NV21.
+     * @param capacity the most frames the file holds.
+     * @throws IOException if the file cannot be created.
+     */
+    public FrameRecordWriter(File path, int width, int height, int format, int capacity) throws IOException
+    {
+        this.frameSize = RawFrame.frameSize(width, height, format);
+        this.capacity = capacity;
+        long indexSize = (long) capacity * INDEX_ENTRY_SIZE;
+        dataOffset = (HEADER_SIZE + indexSize + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        file.setLength(dataOffset + (long) capacity * frameSize);
+        channel = file.getChannel();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + indexSize);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(OFFSET_WIDTH, width);
+        header.putInt(OFFSET_HEIGHT, height);
+        header.putInt(OFFSET_FORMAT, format);
+        header.putInt(OFFSET_CAPACITY, capacity);
+        header.putInt(OFFSET_FRAME_COUNT, 0);
+        header.putLong(OFFSET_INDEX, HEADER_SIZE);
+        header.putLong(OFFSET_DATA, dataOffset);
+        header.putLong(OFFSET_CREATED, System.currentTimeMillis());
+        framesPerRegion = Math.max(1, Integer.MAX_VALUE / frameSize);
+        regions = new MappedByteBuffer[(capacity + framesPerRegion - 1) / framesPerRegion];
+    }
+
+    /**
+     * Bytes one frame takes in the file.
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    public synchronized boolean isFull() {
+        return frameCount == capacity;
+    }
+
+    /**
+     * Append a frame.
+     * @param data getFrameSize() bytes of the frame, in the format of the recording.
+     * @param timestampNanos capture time, e.g. System.nanoTime().
+     * @param mode FilterMode ordinal active when the frame was captured, -1 for none.
+     * @return false if the recording is full. The frame is not written then.
+     * @throws IOException if the region of the frame cannot be mapped.
+     */
+    public synchronized boolean append(byte[] data, long timestampNanos, int mode) throws IOException
+    {
+        if (frameCount == capacity)
+            return false;
+        if (data.length < frameSize)
+            throw new IllegalArgumentException("Frame has " + data.length + " bytes, not " + frameSize);
+        MappedByteBuffer region = region(frameCount / framesPerRegion);
+        region.position((frameCount % framesPerRegion) * frameSize);
+        region.put(data, 0, frameSize);
+        int entry = HEADER_SIZE + frameCount * INDEX_ENTRY_SIZE;
+        header.putLong(entry, timestampNanos);
+        header.putInt(entry + 8, mode);
+        header.putInt(entry + 12, 0);
+        frameCount++;
+        header.putInt(OFFSET_FRAME_COUNT, frameCount);
+        return true;
+    }
+
+    /**
+     * Flush the mapped pages and close the file. The file keeps its preallocated size.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        for (MappedByteBuffer region : regions)
+            if (region != null)
+                region.force();
+        header.force();
+        channel.close();
+        file.close();
+    }
+
+
+    private MappedByteBuffer region(int i) throws IOException
+    {
+        if (regions[i] == null) {
+            int frames = Math.min(framesPerRegion, capacity - i * framesPerRegion);
+            long start = dataOffset + (long) i * framesPerRegion * frameSize;
+            regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) frames * frameSize);
+        }
+        return regions[i];
+    }
+}
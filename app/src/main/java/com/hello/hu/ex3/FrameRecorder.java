@@ -0,0 +1,153 @@
+package com.hello.hu.ex3;
+
+import android.util.Log;
+
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * [Class Overview]
+ * Record what onCameraFrame() saw, with the time and the spinner mode, into a FrameRecordWriter file.
+ * The camera thread only copies the frame into a queue slot (one native copy, like AsyncFilter), and a worker
+ * thread copies it into the mapped file. So the camera thread never waits for storage.
+ * When the worker falls behind, the oldest queued frame is dropped and counted, see getStatsSummary().
+ *
+ * The camera frame is not handed to the file without a copy: the camera reuses its buffer for the next frame,
+ * and the OpenCV Java API cannot put a Mat on a mapped buffer. One copy on each side is the least it takes.
+ * Record before the filter runs, because most filters write into the frame.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FrameRecorder {
+
+    /**
+     * Frames that can wait for the worker. Larger than AsyncFilter's, because every frame matters.
+     */
+    private static final int QUEUE_CAPACITY = 8;
+
+    /**
+     * How long stop() waits for the queued frames to be written.
+     */
+    private static final long FLUSH_TIMEOUT_MS = 1000;
+
+    private final FrameRecordWriter writer;
+    private final int format;
+    private final RecordSlot[] slots;
+    private final AsyncFrameProcessor<RecordSlot, Object> processor;
+    private volatile boolean failed;
+
+
+    /**
+     * Create the recording file. Call start() before record().
+     * @param path recording file, replaced if it exists.
+     * @param width frame width.
+     * @param height frame height.
+     * @param format RawFrame.FORMAT_GRAY or FORMAT_RGBA.
+     * @param capacity the most frames recorded. Later frames are ignored.
+     * @throws IOException if the file cannot be created.
+     */
+    public FrameRecorder(File path, int width, int height, int format, int capacity) throws IOException
+    {
+        if (format != RawFrame.FORMAT_GRAY && format != RawFrame.FORMAT_RGBA)
+            throw new IllegalArgumentException("Only gray or RGBA frames can be recorded");
+        this.format = format;
+        writer = new FrameRecordWriter(path, width, height, format, capacity);
+        slots = new RecordSlot[QUEUE_CAPACITY + 2];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = new RecordSlot(writer.getFrameSize());
+        processor = new AsyncFrameProcessor<RecordSlot, Object>(QUEUE_CAPACITY, slots,
+                new Object[]{new Object(), new Object(), new Object()},
+                new AsyncFrameProcessor.Stage<RecordSlot, Object>() {
+                    @Override
+                    public void process(RecordSlot slot, Object result) {
+                        write(slot);
+                    }
+                });
+    }
+
+    public void start() {
+        processor.start();
+    }
+
+    /**
+     * Queue a copy of the frame. Camera thread only.
+     * @param frame the camera frame, before any filter wrote into it.
+     * @param mode active spinner mode, or null.
+     */
+    public void record(VideoFrame frame, FilterMode mode)
+    {
+        if (failed || writer.isFull())
+            return;
+        RecordSlot slot = processor.beginSubmit();
+        (format == RawFrame.FORMAT_GRAY ? frame.gray() : frame.rgba()).copyTo(slot.mat);
+        slot.timestampNanos = System.nanoTime();
+        slot.mode = mode != null ? mode.ordinal() : -1;
+        processor.endSubmit();
+    }
+
+    /**
+     * Write the queued frames, stop the worker and close the file.
+     */
+    public void stop()
+    {
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MS;
+        while (processor.getQueueDepth() > 0 && !failed && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        processor.stop();
+        Log.i("Recorder", getStatsSummary());
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.e("Recorder", "Cannot close the recording: " + e);
+        }
+        for (RecordSlot slot : slots)
+            slot.mat.release();
+    }
+
+    /**
+     * @return e.g. "recorded 300 of 600 frames, dropped 2".
+     */
+    public String getStatsSummary() {
+        return "recorded " + writer.getFrameCount() + " of " + writer.getCapacity() + " frames, dropped "
+                + processor.getDroppedCount();
+    }
+
+
+    private void write(RecordSlot slot)
+    {
+        slot.mat.get(0, 0, slot.data);
+        try {
+            writer.append(slot.data, slot.timestampNanos, slot.mode);
+        } catch (IOException e) {
+            failed = true;
+            Log.e("Recorder", "Cannot write the recording: " + e);
+        }
+    }
+
+    /**
+     * A queued frame: its mat, filled on the camera thread, and its bytes, filled on the worker.
+     */
+    static final class RecordSlot {
+        final Mat mat = new Mat();
+        final byte[] data;
+        long timestampNanos;
+        int mode;
+
+        RecordSlot(int frameSize) {
+            data = new byte[frameSize];
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.hello.hu.ex3;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * [Class Overview]
+ * Frames that do not come from the camera, e.g. a recording on disk, so the filters can run headless.
+ * Frames are accessed by index, so a source can be replayed, looped or sampled.
+ * MappedFileFrameSource     - Raw gray, RGBA or NV21 frame dumps, memory-mapped.
+ * ImageSequenceFrameSource  - A directory of image files, one frame per file.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public interface FrameSource extends Closeable {
+
+    int getWidth();
+
+    int getHeight();
+
+    int getFrameCount();
+
+    /**
+     * Load a frame.
+     * @param index 0 - getFrameCount().
+     * @return the frame. It is reused, and only valid until the next getFrame().
+     * @throws IOException if the frame cannot be read.
+     */
+    VideoFrame getFrame(int index) throws IOException;
+}
@@ -0,0 +1,274 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Laplacian, threshold and hough voting in one pass over an 8 bit gray image, in pure Java.
+ * Every pixel whose laplacian is above the threshold votes straight into the (rho, theta) accumulator,
+ * so no binary image is written, copied into a mat or scanned again by Imgproc.HoughLines().
+ *
+ * Only the angles within +/- 30 degrees of vertical are voted for: theta in [0, 30] and [150, 180) degrees,
+ * 1 degree apart, with cos/sin tables computed once. That is 61 angles instead of 180.
+ * Rho is 1 pixel apart. Peaks are picked the same way as Imgproc.HoughLines(): above the vote threshold,
+ * and a local maximum among the 4 neighbours in the accumulator, where row 179 degrees wraps around to row 0
+ * with the sign of rho flipped.
+ *
+ * Edges that are already binary (a BinaryImage) can vote too, skipping the empty words.
+ * The accumulator is reused across frames and only reallocated when the frame size changes.
+ * If a response histogram is set, every laplacian computed by the pass is also counted there (see ThresholdSelector).
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class FusedHough {
+
+    /**
+     * Angle step, same as drawHoughLines() passes to Imgproc.HoughLines().
+     */
+    private static final double THETA_STEP = Math.PI / 180;
+
+    /**
+     * Widest angle from vertical voted for, in degrees.
+     */
+    private static final int BAND_DEGREES = 30;
+
+    /**
+     * Hough angle of every accumulator row, and the same angle normalized to (-90, 90] degrees (see LineTracker).
+     * Rows are ordered by normalized angle, [150, 180) first, then [0, 30], so neighbouring rows are neighbouring angles.
+     */
+    private final double[] theta;
+    private final double[] normalizedTheta;
+    private final float[] cosTable;
+    private final float[] sinTable;
+    private final int numAngles;
+
+    private int[] accumulator = new int[0];
+    private int width;
+    private int height;
+    private int numRho;
+    private int rhoOffset;
+
+    /**
+     * First and last accumulator row voted for in the current frame.
+     */
+    private int angleStart;
+    private int angleEnd;
+    private final double[] clippedLine = new double[4];
+
+    /**
+     * Histogram of the laplacian response counted by the pass, or null.
+     */
+    private int[] responseHistogram;
+
+
+    public FusedHough()
+    {
+        numAngles = 2 * BAND_DEGREES + 1;
+        theta = new double[numAngles];
+        normalizedTheta = new double[numAngles];
+        cosTable = new float[numAngles];
+        sinTable = new float[numAngles];
+        for (int a = 0; a < numAngles; a++) {
+            int degrees = a - BAND_DEGREES;
+            normalizedTheta[a] = degrees * THETA_STEP;
+            theta[a] = (degrees < 0 ? degrees + 180 : degrees) * THETA_STEP;
+            cosTable[a] = (float) Math.cos(theta[a]);
+            sinTable[a] = (float) Math.sin(theta[a]);
+        }
+    }
+
+    /**
+     * Number of accumulator rows, one per angle.
+     */
+    public int getAngleCount() {
+        return numAngles;
+    }
+
+    /**
+     * Count the laplacian response of every pixel into a histogram during findLines().
+     * @param responseHistogram histogram of ThresholdSelector.MAX_RESPONSE + 1 bins, or null to count nothing.
+     */
+    public void setResponseHistogram(int[] responseHistogram) {
+        this.responseHistogram = responseHistogram;
+    }
+
+    /**
+     * Find the lines within +/- 30 degrees of vertical.
+     * @param gray gray image, unsigned bytes as copied out of a CV_8UC1 mat.
+     * @param width image width.
+     * @param height image height.
+     * @param thresValue laplacian threshold, exclusive.
+     * @param voteThreshold minimum votes of a line, exclusive, same as the threshold of Imgproc.HoughLines().
+     * @param out receives the lines, clipped to the frame, with their votes. It is not cleared first.
+     * @return number of lines found.
+     */
+    public int findLines(byte[] gray, int width, int height, int thresValue, int voteThreshold, LineBuffer out)
+    {
+        return findLines(gray, width, height, thresValue, voteThreshold, -Math.PI / 2, Math.PI / 2, out);
+    }
+
+    /**
+     * Same as findLines(), but only vote for the angles in [minTheta, maxTheta], normalized to (-90, 90] degrees
+     * as LineTracker.getThetaRange() gives them. Used between keyframes.
+     */
+    public int findLines(byte[] gray, int width, int height, int thresValue, int voteThreshold,
+                         double minTheta, double maxTheta, LineBuffer out)
+    {
+        if (!prepare(width, height, minTheta, maxTheta))
+            return 0;
+        vote(gray, thresValue);
+        return findPeaks(voteThreshold, out);
+    }
+
+    /**
+     * Find the lines within +/- 30 degrees of vertical from an edge image that is already binary, e.g. Canny edges.
+     * Only set pixels vote. Empty words (64 pixels) and empty images are skipped without looking at their pixels.
+     * @param edges edge pixels.
+     * @param voteThreshold minimum votes of a line, exclusive.
+     * @param out receives the lines, clipped to the frame, with their votes. It is not cleared first.
+     * @return number of lines found.
+     */
+    public int findLines(BinaryImage edges, int voteThreshold, double minTheta, double maxTheta, LineBuffer out)
+    {
+        if (!prepare(edges.getWidth(), edges.getHeight(), minTheta, maxTheta))
+            return 0;
+        // Not enough edge pixels in the whole frame for any line.
+        if (edges.count() <= voteThreshold)
+            return 0;
+        vote(edges);
+        return findPeaks(voteThreshold, out);
+    }
+
+    /**
+     * Votes of one accumulator cell, for tests.
+     * @param angle accumulator row.
+     * @param rho hough distance.
+     */
+    int getVotes(int angle, int rho) {
+        return accumulator[angle * numRho + rho + rhoOffset];
+    }
+
+    /**
+     * Hough angle of one accumulator row.
+     */
+    double getTheta(int angle) {
+        return theta[angle];
+    }
+
+
+    private void setFrameSize(int width, int height)
+    {
+        if (width == this.width && height == this.height)
+            return;
+        this.width = width;
+        this.height = height;
+        rhoOffset = (int) Math.ceil(Math.sqrt((double) width * width + (double) height * height));
+        numRho = 2 * rhoOffset + 1;
+        accumulator = new int[numAngles * numRho];
+    }
+
+    /**
+     * Size the accumulator, pick the angle rows of [minTheta, maxTheta] and clear them.
+     * @return false if no angle is in the range.
+     */
+    private boolean prepare(int width, int height, double minTheta, double maxTheta)
+    {
+        setFrameSize(width, height);
+        angleStart = 0;
+        while (angleStart < numAngles && normalizedTheta[angleStart] < minTheta)
+            angleStart++;
+        angleEnd = numAngles - 1;
+        while (angleEnd >= 0 && normalizedTheta[angleEnd] > maxTheta)
+            angleEnd--;
+        if (angleStart > angleEnd)
+            return false;
+        java.util.Arrays.fill(accumulator, angleStart * numRho, (angleEnd + 1) * numRho, 0);
+        return true;
+    }
+
+    /**
+     * Votes of the set pixels of a binary image, found word by word with numberOfTrailingZeros().
+     */
+    private void vote(BinaryImage edges)
+    {
+        int[] accumulator = this.accumulator;
+        int numRho = this.numRho;
+        float offset = rhoOffset + 0.5f;
+        long[] words = edges.getWords();
+        int wordsPerRow = edges.getWordsPerRow();
+        for (int r = 0; r < height; r++) {
+            int row = r * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = words[row + w];
+                while (word != 0) {
+                    int c = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    for (int a = angleStart; a <= angleEnd; a++) {
+                        int rho = (int) (c * cosTable[a] + r * sinTable[a] + offset);
+                        accumulator[a * numRho + rho]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The fused pass: laplacian of each pixel, threshold, and votes of the pixels above it.
+     */
+    private void vote(byte[] gray, int thresValue)
+    {
+        int[] accumulator = this.accumulator;
+        int[] histogram = responseHistogram;
+        int numRho = this.numRho;
+        float offset = rhoOffset + 0.5f;
+        for (int r = 1; r < height - 1; r++) {
+            int center = r * width;
+            for (int c = 1; c < width - 1; c++) {
+                int laplacian = Convolution.laplacian3x3(gray, center - width + c, center + c, center + width + c);
+                if (histogram != null)
+                    histogram[ThresholdSelector.bin(laplacian)]++;
+                if (laplacian <= thresValue)
+                    continue;
+                for (int a = angleStart; a <= angleEnd; a++) {
+                    int rho = (int) (c * cosTable[a] + r * sinTable[a] + offset);
+                    accumulator[a * numRho + rho]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cells above the vote threshold that are not smaller than their 4 neighbours.
+     * Row 179 degrees and row 0 degrees are neighbours, but (rho, 179) is next to (-rho, 0), so the rho index
+     * is mirrored across that seam.
+     */
+    private int findPeaks(int voteThreshold, LineBuffer out)
+    {
+        int count = 0;
+        for (int a = angleStart; a <= angleEnd; a++) {
+            int row = a * numRho;
+            for (int rho = 0; rho < numRho; rho++) {
+                int index = row + rho;
+                int votes = accumulator[index];
+                if (votes <= voteThreshold)
+                    continue;
+                int mirrored = numRho - 1 - rho;
+                int above = a == BAND_DEGREES ? row - numRho + mirrored : index - numRho;
+                int below = a == BAND_DEGREES - 1 ? row + numRho + mirrored : index + numRho;
+                if ((rho > 0 && votes <= accumulator[index - 1]) || (rho < numRho - 1 && votes < accumulator[index + 1])
+                        || (a > angleStart && votes <= accumulator[above])
+                        || (a < angleEnd && votes < accumulator[below]))
+                    continue;
+                double lineRho = rho - rhoOffset;
+                if (!LineGeometry.clipHoughLine(lineRho, cosTable[a], sinTable[a], width, height, clippedLine))
+                    continue;
+                out.add(clippedLine[0], clippedLine[1], clippedLine[2], clippedLine[3], lineRho, theta[a], votes);
+                count++;
+            }
+        }
+        return count;
+    }
+}
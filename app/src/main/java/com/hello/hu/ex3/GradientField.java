@@ -0,0 +1,315 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * A pure Java gradient engine shared by the Sobel and Canny filters.
+ * One pass over the gray bytes computes, for every pixel and from one 3*3 window:
+ *   Gx, Gy     - 3*3 Sobel derivatives, same as Imgproc.Sobel() with BORDER_REFLECT_101;
+ *   magnitude  - L1 magnitude |Gx| + |Gy|, the one Imgproc.Canny() uses by default;
+ *   direction  - gradient direction quantized to 4 sectors for non-maximum suppression.
+ * sobel() and canny() then only read these buffers, so when both run on the same frame the gradient is computed once.
+ * compute() also skips the whole pass when the gray image is the same as the last one.
+ * computeRegion() recomputes a rectangle only, for the dirty tiles of a ChangeDetector.
+ *
+ * The buffers are reused across frames, and only reallocated when the frame size changes.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class GradientField {
+
+    /**
+     * Quantized gradient directions, by the neighbours non-maximum suppression compares with.
+     */
+    public static final byte DIRECTION_HORIZONTAL = 0;  // left and right
+    public static final byte DIRECTION_RISING = 1;      // up-right and down-left
+    public static final byte DIRECTION_VERTICAL = 2;    // up and down
+    public static final byte DIRECTION_FALLING = 3;     // up-left and down-right
+
+    /**
+     * tan(22.5 degrees) in 1.15 fixed point, same as Imgproc.Canny().
+     */
+    private static final int TAN22 = 13573;
+
+    private int width;
+    private int height;
+    private short[] gx = new short[0];
+    private short[] gy = new short[0];
+    private short[] magnitude = new short[0];
+    private byte[] direction = new byte[0];
+
+    /**
+     * Copy of the gray image of the last compute(), to share the gradient with the next call on the same image.
+     */
+    private byte[] source = new byte[0];
+    private boolean sourceValid;
+
+    /**
+     * Canny scratch: pixel state and the stack of strong edge pixels to grow from.
+     */
+    private byte[] edgeState = new byte[0];
+    private int[] stack = new int[0];
+    private static final byte NOT_EDGE = 0;
+    private static final byte WEAK = 1;
+    private static final byte STRONG = 2;
+
+
+    /**
+     * Compute the gradient of a whole gray image.
+     * @param gray gray image, unsigned bytes.
+     * @param width image width, 3 or more.
+     * @param height image height, 3 or more.
+     * @return false if gray is the same image as the last compute(), so the gradient was shared, not recomputed.
+     */
+    public boolean compute(byte[] gray, int width, int height)
+    {
+        int size = width * height;
+        if (sourceValid && width == this.width && height == this.height && equals(gray, source, size))
+            return false;
+        resize(width, height);
+        computeRegion(gray, width, height, 0, 0, width, height);
+        System.arraycopy(gray, 0, source, 0, size);
+        sourceValid = true;
+        return true;
+    }
+
+    /**
+     * Recompute the gradient of the rectangle [x0, x1) x [y0, y1) only. The rest keeps the gradient of earlier frames.
+     * @param gray gray image, unsigned bytes. Pixels around the rectangle are read too.
+     * @param width image width. A new size clears the whole gradient first.
+     * @param height image height.
+     */
+    public void computeRegion(byte[] gray, int width, int height, int x0, int y0, int x1, int y1)
+    {
+        if (width != this.width || height != this.height)
+            resize(width, height);
+        // The gradient no longer belongs to one source image.
+        sourceValid = false;
+        for (int r = y0; r < y1; r++) {
+            int up = (r == 0 ? 1 : r - 1) * width;
+            int center = r * width;
+            int down = (r == height - 1 ? height - 2 : r + 1) * width;
+            if (x0 == 0)
+                computePixel(gray, up, center, down, 0, 1, 1);
+            int end = Math.min(x1, width - 1);
+            for (int c = Math.max(x0, 1); c < end; c++) {
+                int left = c - 1;
+                int right = c + 1;
+                int dx = (gray[up + right] & 0xFF) + 2 * (gray[center + right] & 0xFF) + (gray[down + right] & 0xFF)
+                        - (gray[up + left] & 0xFF) - 2 * (gray[center + left] & 0xFF) - (gray[down + left] & 0xFF);
+                int dy = (gray[down + left] & 0xFF) + 2 * (gray[down + c] & 0xFF) + (gray[down + right] & 0xFF)
+                        - (gray[up + left] & 0xFF) - 2 * (gray[up + c] & 0xFF) - (gray[up + right] & 0xFF);
+                store(center + c, dx, dy);
+            }
+            if (x1 == width)
+                computePixel(gray, up, center, down, width - 1, width - 2, width - 2);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public short[] getGx() {
+        return gx;
+    }
+
+    public short[] getGy() {
+        return gy;
+    }
+
+    /**
+     * @return |Gx| + |Gy| of every pixel.
+     */
+    public short[] getMagnitude() {
+        return magnitude;
+    }
+
+    /**
+     * @return DIRECTION_* of every pixel.
+     */
+    public byte[] getDirection() {
+        return direction;
+    }
+
+    /**
+     * The output of sobelMat(): 0.5 * |Gx| + 0.5 * |Gy| + 1, each saturated to 255 first,
+     * rounded half to even and saturated like convertScaleAbs() and addWeighted().
+     * @param dst receives width * height bytes.
+     */
+    public void sobel(byte[] dst)
+    {
+        int size = width * height;
+        for (int i = 0; i < size; i++) {
+            int sum = Math.min(Math.abs(gx[i]), 255) + Math.min(Math.abs(gy[i]), 255) + 2;
+            int value = sum >> 1;
+            if ((sum & 1) != 0 && (value & 1) != 0)
+                value++;
+            dst[i] = (byte) Math.min(value, 255);
+        }
+    }
+
+    /**
+     * Canny edges from the gradient: non-maximum suppression along the quantized direction,
+     * then hysteresis: pixels above high are edges, and so are pixels above low 8-connected to an edge.
+     * The outermost rows and columns are never edges.
+     * @param dst receives 255 for edges and 0 elsewhere, width * height bytes.
+     * @param low lower hysteresis threshold on the L1 magnitude.
+     * @param high upper hysteresis threshold on the L1 magnitude.
+     */
+    public void canny(byte[] dst, int low, int high)
+    {
+        hysteresis(low, high);
+        for (int i = 0; i < width * height; i++)
+            dst[i] = edgeState[i] == STRONG ? (byte) 255 : 0;
+    }
+
+    /**
+     * Same as canny(byte[], int, int), packed, e.g. for voting or counting edges.
+     * @param dst receives the edges, resized to the gradient.
+     */
+    public void canny(BinaryImage dst, int low, int high)
+    {
+        hysteresis(low, high);
+        dst.resize(width, height);
+        long[] words = dst.getWords();
+        int wordsPerRow = dst.getWordsPerRow();
+        for (int r = 0; r < height; r++) {
+            int row = r * width;
+            for (int c = 0; c < width; c++)
+                if (edgeState[row + c] == STRONG)
+                    words[r * wordsPerRow + (c >>> 6)] |= 1L << c;
+        }
+    }
+
+
+    /**
+     * Non-maximum suppression and hysteresis into edgeState, where edges end up STRONG.
+     */
+    private void hysteresis(int low, int high)
+    {
+        int size = width * height;
+        if (edgeState.length < size)
+            edgeState = new byte[size];
+        java.util.Arrays.fill(edgeState, 0, size, NOT_EDGE);
+        int top = 0;
+        for (int r = 1; r < height - 1; r++) {
+            int row = r * width;
+            for (int c = 1; c < width - 1; c++) {
+                int i = row + c;
+                int m = magnitude[i];
+                if (m <= low)
+                    continue;
+                int before;
+                int after;
+                switch (direction[i]) {
+                    case DIRECTION_HORIZONTAL:
+                        before = i - 1;
+                        after = i + 1;
+                        break;
+                    case DIRECTION_VERTICAL:
+                        before = i - width;
+                        after = i + width;
+                        break;
+                    case DIRECTION_RISING:
+                        before = i + width - 1;
+                        after = i - width + 1;
+                        break;
+                    default:
+                        before = i + width + 1;
+                        after = i - width - 1;
+                        break;
+                }
+                // Ties go to the first pixel along the direction, so a flat ridge stays one pixel wide.
+                if (m <= magnitude[before] || m < magnitude[after])
+                    continue;
+                if (m > high) {
+                    edgeState[i] = STRONG;
+                    if (top == stack.length)
+                        stack = java.util.Arrays.copyOf(stack, Math.max(1024, 2 * stack.length));
+                    stack[top++] = i;
+                } else {
+                    edgeState[i] = WEAK;
+                }
+            }
+        }
+        while (top > 0) {
+            int i = stack[--top];
+            for (int dr = -width; dr <= width; dr += width) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int j = i + dr + dc;
+                    if (edgeState[j] == WEAK) {
+                        edgeState[j] = STRONG;
+                        if (top == stack.length)
+                            stack = java.util.Arrays.copyOf(stack, 2 * stack.length);
+                        stack[top++] = j;
+                    }
+                }
+            }
+        }
+    }
+
+    private void resize(int width, int height)
+    {
+        if (width < 3 || height < 3)
+            throw new IllegalArgumentException("Image must be at least 3x3, not " + width + "x" + height);
+        int size = width * height;
+        this.width = width;
+        this.height = height;
+        if (gx.length < size) {
+            gx = new short[size];
+            gy = new short[size];
+            magnitude = new short[size];
+            direction = new byte[size];
+            source = new byte[size];
+        }
+        sourceValid = false;
+    }
+
+    /**
+     * One border pixel, with the reflected column indices.
+     */
+    private void computePixel(byte[] gray, int up, int center, int down, int c, int left, int right)
+    {
+        int dx = (gray[up + right] & 0xFF) + 2 * (gray[center + right] & 0xFF) + (gray[down + right] & 0xFF)
+                - (gray[up + left] & 0xFF) - 2 * (gray[center + left] & 0xFF) - (gray[down + left] & 0xFF);
+        int dy = (gray[down + left] & 0xFF) + 2 * (gray[down + c] & 0xFF) + (gray[down + right] & 0xFF)
+                - (gray[up + left] & 0xFF) - 2 * (gray[up + c] & 0xFF) - (gray[up + right] & 0xFF);
+        store(center + c, dx, dy);
+    }
+
+    private void store(int i, int dx, int dy)
+    {
+        gx[i] = (short) dx;
+        gy[i] = (short) dy;
+        int ax = Math.abs(dx);
+        int ay = Math.abs(dy);
+        magnitude[i] = (short) (ax + ay);
+        // Same sectors as Imgproc.Canny(), in fixed point.
+        int tan22x = ax * TAN22;
+        int y = ay << 15;
+        if (y < tan22x)
+            direction[i] = DIRECTION_HORIZONTAL;
+        else if (y > tan22x + (ax << 16))
+            direction[i] = DIRECTION_VERTICAL;
+        else
+            direction[i] = (dx ^ dy) < 0 ? DIRECTION_FALLING : DIRECTION_RISING;
+    }
+
+    private static boolean equals(byte[] a, byte[] b, int size)
+    {
+        // Differing frames usually differ in the first row, so this is cheap when the gradient is not shared.
+        for (int i = 0; i < size; i++)
+            if (a[i] != b[i])
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,163 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * [Class Overview]
+ * Turn the output of Imgproc.HoughLines() into drawn lines. Shared by BasicFilters.houghMat() and
+ * MyAlgorithm.drawHoughLines().
+ * read()  - Read all lines of the lines mat (CV_32FC2, one (rho, theta) per row) with one JNI call.
+ * draw()  - Clip every line to the frame and draw it. Lines within +/- 30 degrees of vertical can be kept in a LineBuffer.
+ *
+ * HoughLines() only returns angles that are a multiple of its angle step, so cos and sin are looked up in tables
+ * built once for that step, and the vertical band is a range of angle indices. Nothing is allocated per line.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class HoughPostProcessor {
+
+    /**
+     * Lines within this many degrees of vertical are in the band.
+     */
+    private static final int VERTICAL_BAND_DEGREES = 30;
+
+    private final double thetaStep;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final boolean[] verticalTable;
+
+    /**
+     * (rho, theta) pairs of the last read(), and the objects used to draw lines. Reused across frames.
+     */
+    private float[] lines = new float[256];
+    private int count;
+    private final double[] clippedLine = new double[4];
+    private final Point linePt1 = new Point();
+    private final Point linePt2 = new Point();
+
+
+    /**
+     * Build the tables of an angle step.
+     * @param thetaStep the theta argument given to Imgproc.HoughLines(), in radians.
+     */
+    public HoughPostProcessor(double thetaStep)
+    {
+        this.thetaStep = thetaStep;
+        // Same angle count as HoughLines(): angles 0 - PI, PI excluded.
+        int angles = (int) Math.round(Math.PI / thetaStep);
+        cosTable = new double[angles];
+        sinTable = new double[angles];
+        verticalTable = new boolean[angles];
+        double band = Math.toRadians(VERTICAL_BAND_DEGREES) + thetaStep / 2;
+        for (int i = 0; i < angles; i++) {
+            double theta = i * thetaStep;
+            cosTable[i] = Math.cos(theta);
+            sinTable[i] = Math.sin(theta);
+            // Theta is the angle of the normal, so a vertical line has theta near 0 or PI.
+            verticalTable[i] = theta <= band || theta >= Math.PI - band;
+        }
+    }
+
+    /**
+     * Read the lines found by Imgproc.HoughLines().
+     * @param houghLines output of HoughLines(), CV_32FC2.
+     * @return the number of lines.
+     */
+    public int read(Mat houghLines)
+    {
+        int n = houghLines.rows();
+        if (lines.length < 2 * n)
+            lines = new float[Math.max(2 * n, 2 * lines.length)];
+        if (n > 0)
+            houghLines.get(0,0,lines);
+        count = n;
+        return n;
+    }
+
+    /**
+     * Use lines from a (rho, theta) array instead of a mat.
+     * @param rhoTheta rho and theta of each line, interleaved.
+     * @param n number of lines.
+     */
+    void setLines(float[] rhoTheta, int n)
+    {
+        if (lines.length < 2 * n)
+            lines = new float[2 * n];
+        System.arraycopy(rhoTheta,0,lines,0,2 * n);
+        count = n;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double getRho(int i) {
+        return lines[2 * i];
+    }
+
+    public double getTheta(int i) {
+        return lines[2 * i + 1];
+    }
+
+    /**
+     * @return true if line i is within +/- 30 degrees of vertical.
+     */
+    public boolean isVertical(int i) {
+        return verticalTable[angleIndex(i)];
+    }
+
+    /**
+     * Clip line i, mapped from the processing scale, to the frame.
+     * @param scale processing scale the lines were found at, see ProcessingScale.
+     * @param width full frame width.
+     * @param height full frame height.
+     * @param out receives {x1, y1, x2, y2} at full scale.
+     * @return false if the line does not cross the frame.
+     */
+    public boolean clip(int i, int scale, int width, int height, double[] out)
+    {
+        int angle = angleIndex(i);
+        double rho = ProcessingScale.toFull(getRho(i),scale);
+        return LineGeometry.clipHoughLine(rho,cosTable[angle],sinTable[angle],width,height,out);
+    }
+
+    /**
+     * Draw all lines of the last read(), clipped to dst.
+     * @param dst output mat, at full scale.
+     * @param scale processing scale the lines were found at, see ProcessingScale.
+     * @param color line color.
+     * @param verticalLines receives the clipped lines within +/- 30 degrees of vertical, at full scale. May be null.
+     */
+    public void draw(Mat dst, int scale, Scalar color, LineBuffer verticalLines)
+    {
+        int width = dst.cols();
+        int height = dst.rows();
+        for (int i = 0; i < count; i++) {
+            if (!clip(i,scale,width,height,clippedLine))
+                continue;
+            linePt1.x = clippedLine[0];
+            linePt1.y = clippedLine[1];
+            linePt2.x = clippedLine[2];
+            linePt2.y = clippedLine[3];
+            if (verticalLines != null && isVertical(i))
+                verticalLines.add(clippedLine[0],clippedLine[1],clippedLine[2],clippedLine[3],
+                        ProcessingScale.toFull(getRho(i),scale),getTheta(i));
+            Imgproc.line(dst,linePt1,linePt2,color,1);
+        }
+    }
+
+
+    private int angleIndex(int i)
+    {
+        int angle = (int) Math.round(getTheta(i) / thetaStep);
+        return Math.min(Math.max(angle,0),cosTable.length - 1);
+    }
+}
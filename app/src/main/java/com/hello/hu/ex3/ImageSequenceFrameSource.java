@@ -0,0 +1,108 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * [Class Overview]
+ * Frames of a directory of images (png, jpg, bmp, pgm), in file name order, e.g. frame_0001.png, frame_0002.png...
+ * Images are compressed, so they are decoded with Imgcodecs instead of memory-mapped.
+ * All images must have the size of the first one.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class ImageSequenceFrameSource implements FrameSource {
+
+    private static final String[] EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".pgm", ".ppm"};
+
+    private final File[] files;
+    private final int width;
+    private final int height;
+    private final RawFrame frame;
+    private final Mat decoded = new Mat();
+
+
+    /**
+     * @param directory directory of the images.
+     * @throws IOException if the directory has no image, or the first one cannot be decoded.
+     */
+    public ImageSequenceFrameSource(File directory) throws IOException
+    {
+        File[] images = directory.listFiles();
+        if (images == null)
+            throw new IOException("Not a directory: " + directory);
+        int count = 0;
+        for (File image : images)
+            if (isImage(image))
+                images[count++] = image;
+        if (count == 0)
+            throw new IOException("No images in " + directory);
+        files = Arrays.copyOf(images, count);
+        Arrays.sort(files);
+        decode(0);
+        width = decoded.cols();
+        height = decoded.rows();
+        frame = new RawFrame(width, height, RawFrame.FORMAT_RGBA);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return files.length;
+    }
+
+    @Override
+    public VideoFrame getFrame(int index) throws IOException
+    {
+        decode(index);
+        if (decoded.cols() != width || decoded.rows() != height)
+            throw new IOException(files[index] + " is " + decoded.cols() + "x" + decoded.rows()
+                    + ", not " + width + "x" + height);
+        frame.loadBgr(decoded);
+        return frame;
+    }
+
+    @Override
+    public void close()
+    {
+        frame.release();
+        decoded.release();
+    }
+
+
+    private void decode(int index) throws IOException
+    {
+        Mat image = Imgcodecs.imread(files[index].getPath(), Imgcodecs.IMREAD_COLOR);
+        if (image.empty())
+            throw new IOException("Cannot decode " + files[index]);
+        image.copyTo(decoded);
+        image.release();
+    }
+
+    private static boolean isImage(File file)
+    {
+        String name = file.getName().toLowerCase(java.util.Locale.US);
+        for (String extension : EXTENSIONS)
+            if (name.endsWith(extension))
+                return file.isFile();
+        return false;
+    }
+}
@@ -0,0 +1,235 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * A pure Java integral image (summed-area table) engine working on primitive arrays.
+ * After compute(), the sum of any box of the image is 4 table reads, whatever the box size.
+ * So every filter below costs the same per pixel for a 3*3 or a 101*101 window.
+ *
+ * compute()               - Build the tables of a gray image, or of one channel of an interleaved (e.g. RGBA) image.
+ * boxSum() / boxMean()    - Sum and mean of a box.
+ * boxVariance()           - Variance of a box, from the table of squares.
+ * meanBlur()              - Mean of the (2 * radius + 1)^2 window of every pixel.
+ * adaptiveMeanThreshold() - 255 where a pixel is above the mean of its window minus c, same as
+ *                           Imgproc.adaptiveThreshold() with ADAPTIVE_THRESH_MEAN_C and THRESH_BINARY.
+ * sauvolaThreshold()      - 255 where a pixel is above mean * (1 + k * (stddev / range - 1)) of its window.
+ *
+ * Table entry (y, x) is the sum of the pixels above and left of (x, y), so the tables have (width + 1) * (height + 1)
+ * entries and row and column 0 are zero. The sums are kept in int, and may wrap for very large frames:
+ * a box sum is a difference of table entries, so it is still exact as long as the box itself sums to below 2^31.
+ * The squares are kept in long.
+ * Windows are cut at the image border, so border pixels get the mean of the part of the window inside the image.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class IntegralImage {
+
+    private int width;
+    private int height;
+    private int stride;
+    private int[] sum = new int[0];
+    private long[] squareSum = new long[0];
+    private boolean hasSquares;
+
+
+    /**
+     * Build the tables of a gray image.
+     * @param src gray image, unsigned bytes.
+     * @param width image width.
+     * @param height image height.
+     * @param squares also build the table of squares, needed by boxVariance() and sauvolaThreshold().
+     */
+    public void compute(byte[] src, int width, int height, boolean squares)
+    {
+        compute(src, width, height, 1, 0, squares);
+    }
+
+    /**
+     * Build the tables of one channel of an interleaved image.
+     * @param src image, unsigned bytes, channels values per pixel.
+     * @param width image width.
+     * @param height image height.
+     * @param channels values per pixel, e.g. 4 for RGBA.
+     * @param channel channel to build the tables of.
+     * @param squares also build the table of squares.
+     */
+    public void compute(byte[] src, int width, int height, int channels, int channel, boolean squares)
+    {
+        resize(width, height, squares);
+        hasSquares = squares;
+        for (int r = 0; r < height; r++) {
+            int above = r * stride;
+            int row = above + stride;
+            int index = r * width * channels + channel;
+            int rowSum = 0;
+            long rowSquareSum = 0;
+            for (int c = 0; c < width; c++) {
+                int value = src[index] & 0xFF;
+                index += channels;
+                rowSum += value;
+                sum[row + c + 1] = sum[above + c + 1] + rowSum;
+                if (squares) {
+                    rowSquareSum += value * value;
+                    squareSum[row + c + 1] = squareSum[above + c + 1] + rowSquareSum;
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sum of the box [x0, x1) x [y0, y1).
+     */
+    public int boxSum(int x0, int y0, int x1, int y1)
+    {
+        return sum[y1 * stride + x1] - sum[y0 * stride + x1] - sum[y1 * stride + x0] + sum[y0 * stride + x0];
+    }
+
+    /**
+     * Sum of the squares of the box [x0, x1) x [y0, y1). Needs compute() with squares.
+     */
+    public long boxSquareSum(int x0, int y0, int x1, int y1)
+    {
+        if (!hasSquares)
+            throw new IllegalStateException("The table of squares was not computed");
+        return squareSum[y1 * stride + x1] - squareSum[y0 * stride + x1] - squareSum[y1 * stride + x0]
+                + squareSum[y0 * stride + x0];
+    }
+
+    /**
+     * Mean of the box [x0, x1) x [y0, y1).
+     */
+    public double boxMean(int x0, int y0, int x1, int y1)
+    {
+        return (double) boxSum(x0, y0, x1, y1) / ((x1 - x0) * (y1 - y0));
+    }
+
+    /**
+     * Variance of the box [x0, x1) x [y0, y1). Needs compute() with squares.
+     */
+    public double boxVariance(int x0, int y0, int x1, int y1)
+    {
+        long area = (long) (x1 - x0) * (y1 - y0);
+        long boxSum = boxSum(x0, y0, x1, y1);
+        // area * sum(x^2) - sum(x)^2 is exact in long, and never negative.
+        return (double) (area * boxSquareSum(x0, y0, x1, y1) - boxSum * boxSum) / ((double) area * area);
+    }
+
+    /**
+     * Mean blur of the image the tables were built from.
+     * @param dst receives the rounded mean of every window, width * height.
+     * @param radius window half size, the window is (2 * radius + 1)^2.
+     */
+    public void meanBlur(byte[] dst, int radius)
+    {
+        meanBlur(dst, 1, 0, radius);
+    }
+
+    /**
+     * Mean blur into one channel of an interleaved image.
+     * @param dst receives the rounded means, channels values per pixel. The other channels are not touched.
+     * @param channels values per pixel of dst.
+     * @param channel channel of dst to write.
+     * @param radius window half size, the window is (2 * radius + 1)^2.
+     */
+    public void meanBlur(byte[] dst, int channels, int channel, int radius)
+    {
+        for (int r = 0; r < height; r++) {
+            int y0 = Math.max(0, r - radius);
+            int y1 = Math.min(height, r + radius + 1);
+            int index = r * width * channels + channel;
+            for (int c = 0; c < width; c++) {
+                int x0 = Math.max(0, c - radius);
+                int x1 = Math.min(width, c + radius + 1);
+                int area = (x1 - x0) * (y1 - y0);
+                dst[index] = (byte) ((boxSum(x0, y0, x1, y1) + area / 2) / area);
+                index += channels;
+            }
+        }
+    }
+
+    /**
+     * 255 where src > mean of the window - c, 0 elsewhere.
+     * @param src the gray image the tables were built from.
+     * @param dst receives the binary image. May be src.
+     * @param radius window half size, the window is (2 * radius + 1)^2.
+     * @param c constant subtracted from the mean.
+     */
+    public void adaptiveMeanThreshold(byte[] src, byte[] dst, int radius, int c)
+    {
+        for (int r = 0; r < height; r++) {
+            int y0 = Math.max(0, r - radius);
+            int y1 = Math.min(height, r + radius + 1);
+            int row = r * width;
+            for (int col = 0; col < width; col++) {
+                int x0 = Math.max(0, col - radius);
+                int x1 = Math.min(width, col + radius + 1);
+                long area = (x1 - x0) * (y1 - y0);
+                // src > sum / area - c, without a division.
+                long value = src[row + col] & 0xFF;
+                dst[row + col] = (value + c) * area > boxSum(x0, y0, x1, y1) ? (byte) 255 : 0;
+            }
+        }
+    }
+
+    /**
+     * Sauvola threshold: 255 where src > mean * (1 + k * (stddev / range - 1)) of the window, 0 elsewhere.
+     * Dark text on an uneven background stays dark, where a mean threshold would also pick up flat noise.
+     * Needs compute() with squares.
+     * @param src the gray image the tables were built from.
+     * @param dst receives the binary image. May be src.
+     * @param radius window half size, the window is (2 * radius + 1)^2.
+     * @param k weight of the standard deviation, usually 0.2 - 0.5.
+     * @param range dynamic range of the standard deviation, 128 for 8 bit images.
+     */
+    public void sauvolaThreshold(byte[] src, byte[] dst, int radius, double k, double range)
+    {
+        for (int r = 0; r < height; r++) {
+            int y0 = Math.max(0, r - radius);
+            int y1 = Math.min(height, r + radius + 1);
+            int row = r * width;
+            for (int col = 0; col < width; col++) {
+                int x0 = Math.max(0, col - radius);
+                int x1 = Math.min(width, col + radius + 1);
+                double mean = boxMean(x0, y0, x1, y1);
+                double stddev = Math.sqrt(boxVariance(x0, y0, x1, y1));
+                double threshold = mean * (1 + k * (stddev / range - 1));
+                dst[row + col] = (src[row + col] & 0xFF) > threshold ? (byte) 255 : 0;
+            }
+        }
+    }
+
+
+    private void resize(int width, int height, boolean squares)
+    {
+        this.width = width;
+        this.height = height;
+        stride = width + 1;
+        int size = stride * (height + 1);
+        // Row and column 0 stay zero, everything else is overwritten by compute().
+        if (sum.length < size)
+            sum = new int[size];
+        java.util.Arrays.fill(sum, 0, stride, 0);
+        for (int r = 1; r <= height; r++)
+            sum[r * stride] = 0;
+        if (squares) {
+            if (squareSum.length < size)
+                squareSum = new long[size];
+            java.util.Arrays.fill(squareSum, 0, stride, 0);
+            for (int r = 1; r <= height; r++)
+                squareSum[r * stride] = 0;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.hello.hu.ex3;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * [Class Overview]
+ * A lock-free histogram of latencies in nanoseconds, in the style of HdrHistogram:
+ * buckets grow exponentially, and every power of 2 is split into SUB_BUCKETS linear sub-buckets,
+ * so any value from 1 ns to hours is kept with at most 1/SUB_BUCKETS relative error in a fixed, small array.
+ * record() is one atomic increment plus a compare-and-set on the max, and can be called from any thread.
+ * Percentiles read while other threads record are approximate, which is fine for monitoring.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below SUB_BUCKETS get a bucket each, then SUB_BUCKETS buckets per power of 2 up to 2^63.
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * @param name name shown in the summary.
+     */
+    public LatencyHistogram(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record one latency.
+     * @param nanos latency in nanoseconds. Negative values are counted as 0.
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long currentMax;
+        while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos)) {
+            // another thread raised the max, check again
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getMeanNanos()
+    {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Latency below which a given fraction of the recorded latencies are.
+     * @param percentile 0 - 100.
+     * @return the middle of the bucket holding that latency, in nanoseconds. 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += counts.get(i);
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min((lowerBound(i) + upperBound(i)) / 2, max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget all recorded latencies.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return e.g. "hough n=120 p50=3.51ms p95=4.02ms p99=6.10ms max=7.33ms".
+     */
+    public String getSummary()
+    {
+        return name + " n=" + getCount()
+                + " p50=" + millis(getPercentileNanos(50))
+                + " p95=" + millis(getPercentileNanos(95))
+                + " p99=" + millis(getPercentileNanos(99))
+                + " max=" + millis(getMaxNanos());
+    }
+
+
+    static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return lowerBound(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static String millis(long nanos)
+    {
+        return String.format(java.util.Locale.US, "%.2fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,274 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Point;
+
+/**
+ * [Class Overview]
+ * A struct-of-arrays store of lines: endpoints, squared length, rho, theta and hough votes in parallel primitive arrays.
+ * It replaces a List of LineInformation, so storing a line creates no object.
+ * The arrays only grow when a frame has more lines than any frame before, and are reused after clear().
+ *
+ * topK() picks the indices of the k best lines with a min-heap in O(n log k),
+ * instead of sorting the whole list to draw the first k.
+ * Lines are ranked by length (RANK_BY_LENGTH), or by hough votes (RANK_BY_VOTES) when the
+ * producer knows them. Imgproc.HoughLines() of OpenCV 3.1 does not report votes.
+ * view() still gives a LineInformation for callers that want an object.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class LineBuffer {
+
+    /**
+     * Longest line first.
+     */
+    public static final int RANK_BY_LENGTH = 0;
+
+    /**
+     * Most hough votes first, then longest.
+     */
+    public static final int RANK_BY_VOTES = 1;
+
+    private double[] x1;
+    private double[] y1;
+    private double[] x2;
+    private double[] y2;
+    private double[] lengthSquared;
+    private double[] rho;
+    private double[] theta;
+    private int[] votes;
+    private int size;
+    private int rankBy = RANK_BY_LENGTH;
+
+    /**
+     * Heap of line indices used by topK().
+     */
+    private int[] heap;
+
+
+    /**
+     * @param initialCapacity number of lines that fit before the arrays grow.
+     */
+    public LineBuffer(int initialCapacity)
+    {
+        int capacity = Math.max(1, initialCapacity);
+        x1 = new double[capacity];
+        y1 = new double[capacity];
+        x2 = new double[capacity];
+        y2 = new double[capacity];
+        lengthSquared = new double[capacity];
+        rho = new double[capacity];
+        theta = new double[capacity];
+        votes = new int[capacity];
+        heap = new int[16];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Store a line.
+     * @param x1 point 1 x.
+     * @param y1 point 1 y.
+     * @param x2 point 2 x.
+     * @param y2 point 2 y.
+     * @param rho hough distance of the line.
+     * @param theta hough angle of the line.
+     * @return index of the line.
+     */
+    public int add(double x1, double y1, double x2, double y2, double rho, double theta)
+    {
+        return add(x1, y1, x2, y2, rho, theta, 0);
+    }
+
+    /**
+     * Store a line with its hough votes.
+     * @param x1 point 1 x.
+     * @param y1 point 1 y.
+     * @param x2 point 2 x.
+     * @param y2 point 2 y.
+     * @param rho hough distance of the line.
+     * @param theta hough angle of the line.
+     * @param votes hough accumulator votes of the line.
+     * @return index of the line.
+     */
+    public int add(double x1, double y1, double x2, double y2, double rho, double theta, int votes)
+    {
+        if (size == this.x1.length)
+            grow();
+        int i = size++;
+        this.x1[i] = x1;
+        this.y1[i] = y1;
+        this.x2[i] = x2;
+        this.y2[i] = y2;
+        this.rho[i] = rho;
+        this.theta[i] = theta;
+        this.votes[i] = votes;
+        lengthSquared[i] = LineGeometry.lengthSquared(x1, y1, x2, y2);
+        return i;
+    }
+
+    public double getX1(int i) {
+        return x1[i];
+    }
+
+    public double getY1(int i) {
+        return y1[i];
+    }
+
+    public double getX2(int i) {
+        return x2[i];
+    }
+
+    public double getY2(int i) {
+        return y2[i];
+    }
+
+    public double getLengthSquared(int i) {
+        return lengthSquared[i];
+    }
+
+    public double getRho(int i) {
+        return rho[i];
+    }
+
+    public double getTheta(int i) {
+        return theta[i];
+    }
+
+    public int getVotes(int i) {
+        return votes[i];
+    }
+
+    /**
+     * Choose how topK() ranks the lines.
+     * @param rankBy RANK_BY_LENGTH or RANK_BY_VOTES.
+     */
+    public void setRankBy(int rankBy) {
+        this.rankBy = rankBy;
+    }
+
+    /**
+     * Copy the endpoints of a line into two existing points, e.g. to draw it without allocating.
+     * @param i index of the line.
+     * @param pt1 receives point 1.
+     * @param pt2 receives point 2.
+     */
+    public void getPoints(int i, Point pt1, Point pt2)
+    {
+        pt1.x = x1[i];
+        pt1.y = y1[i];
+        pt2.x = x2[i];
+        pt2.y = y2[i];
+    }
+
+    /**
+     * An object view of a line.
+     * @param i index of the line.
+     * @return a new LineInformation with the line's endpoints.
+     */
+    public LineInformation view(int i)
+    {
+        return new LineInformation(new Point(x1[i], y1[i]), new Point(x2[i], y2[i]), votes[i]);
+    }
+
+    /**
+     * Find the k best lines, see setRankBy().
+     * Lines of the same length keep their insertion order, same as a stable sort would.
+     * @param k number of lines wanted.
+     * @param out receives the indices of the best lines, best first. Must hold min(k, size()) elements.
+     * @return number of indices written, min(k, size()).
+     */
+    public int topK(int k, int[] out)
+    {
+        int count = Math.min(k, size);
+        if (count <= 0)
+            return 0;
+        if (heap.length < count)
+            heap = new int[Math.max(count, heap.length * 2)];
+        // Min-heap of the best "count" lines seen so far; the worst of them is at the root.
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (heapSize < count) {
+                heap[heapSize] = i;
+                siftUp(heapSize);
+                heapSize++;
+            } else if (better(i, heap[0])) {
+                heap[0] = i;
+                siftDown(0, heapSize);
+            }
+        }
+        // Pop the worst first, fill out from the end.
+        for (int n = heapSize; n > 0; n--) {
+            out[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(0, n - 1);
+        }
+        return count;
+    }
+
+
+    /**
+     * More votes wins (RANK_BY_VOTES only), then longer wins; on a tie the line added first wins.
+     */
+    private boolean better(int a, int b)
+    {
+        if (rankBy == RANK_BY_VOTES && votes[a] != votes[b])
+            return votes[a] > votes[b];
+        return lengthSquared[a] > lengthSquared[b] || (lengthSquared[a] == lengthSquared[b] && a < b);
+    }
+
+    private void siftUp(int i)
+    {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(heap[parent], heap[i]))
+                return;
+            int swap = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = swap;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int heapSize)
+    {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize)
+                return;
+            int worst = left;
+            int right = left + 1;
+            if (right < heapSize && better(heap[left], heap[right]))
+                worst = right;
+            if (!better(heap[i], heap[worst]))
+                return;
+            int swap = heap[worst];
+            heap[worst] = heap[i];
+            heap[i] = swap;
+            i = worst;
+        }
+    }
+
+    private void grow()
+    {
+        int capacity = x1.length * 2;
+        x1 = java.util.Arrays.copyOf(x1, capacity);
+        y1 = java.util.Arrays.copyOf(y1, capacity);
+        x2 = java.util.Arrays.copyOf(x2, capacity);
+        y2 = java.util.Arrays.copyOf(y2, capacity);
+        lengthSquared = java.util.Arrays.copyOf(lengthSquared, capacity);
+        rho = java.util.Arrays.copyOf(rho, capacity);
+        theta = java.util.Arrays.copyOf(theta, capacity);
+        votes = java.util.Arrays.copyOf(votes, capacity);
+    }
+}
@@ -0,0 +1,114 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Geometry of lines in a frame.
+ * clipHoughLine() - Turn a (rho, theta) hough line into the segment that is actually visible in the frame.
+ * clipSegment()   - Cut a segment to the frame rectangle (Liang-Barsky).
+ * All lengths are doubles, so they do not overflow or get truncated for large frames.
+ *
+ * Endpoints are written into a double[4] {x1, y1, x2, y2} given by the caller, so nothing is allocated.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public final class LineGeometry {
+
+    private LineGeometry() {
+    }
+
+
+    /**
+     * Clip the hough line x * cos(theta) + y * sin(theta) = rho to the frame [0, width - 1] x [0, height - 1].
+     * @param rho hough distance.
+     * @param theta hough angle.
+     * @param width frame width.
+     * @param height frame height.
+     * @param out receives {x1, y1, x2, y2}.
+     * @return false if the line does not cross the frame. out is not valid then.
+     */
+    public static boolean clipHoughLine(double rho, double theta, int width, int height, double[] out)
+    {
+        return clipHoughLine(rho, Math.cos(theta), Math.sin(theta), width, height, out);
+    }
+
+    /**
+     * Same as clipHoughLine(rho, theta, ...), with cos(theta) and sin(theta) already known.
+     */
+    public static boolean clipHoughLine(double rho, double cos, double sin, int width, int height, double[] out)
+    {
+        // Point of the line closest to the origin, and the direction along the line.
+        double x0 = cos * rho;
+        double y0 = sin * rho;
+        return clip(x0, y0, -sin, cos, -Double.MAX_VALUE, Double.MAX_VALUE, width, height, out);
+    }
+
+    /**
+     * Cut the segment (x1, y1)-(x2, y2) to the frame [0, width - 1] x [0, height - 1].
+     * @param out receives {x1, y1, x2, y2} of the visible part.
+     * @return false if no part of the segment is visible.
+     */
+    public static boolean clipSegment(double x1, double y1, double x2, double y2, int width, int height, double[] out)
+    {
+        return clip(x1, y1, x2 - x1, y2 - y1, 0, 1, width, height, out);
+    }
+
+    /**
+     * Squared length of a segment.
+     */
+    public static double lengthSquared(double x1, double y1, double x2, double y2)
+    {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Length of a segment.
+     */
+    public static double length(double x1, double y1, double x2, double y2)
+    {
+        return Math.sqrt(lengthSquared(x1, y1, x2, y2));
+    }
+
+
+    /**
+     * Liang-Barsky: narrow [tMin, tMax] to the t where p + t * d is inside the frame, and write both ends.
+     * @return false if nothing is left.
+     */
+    private static boolean clip(double px, double py, double dx, double dy, double tMin, double tMax,
+                                int width, int height, double[] out)
+    {
+        double maxX = width - 1;
+        double maxY = height - 1;
+        if (dx == 0) {
+            if (px < 0 || px > maxX)
+                return false;
+        } else {
+            double t1 = -px / dx;
+            double t2 = (maxX - px) / dx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (py < 0 || py > maxY)
+                return false;
+        } else {
+            double t1 = -py / dy;
+            double t2 = (maxY - py) / dy;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if (tMin > tMax)
+            return false;
+        out[0] = px + tMin * dx;
+        out[1] = py + tMin * dy;
+        out[2] = px + tMax * dx;
+        out[3] = py + tMax * dy;
+        return true;
+    }
+}
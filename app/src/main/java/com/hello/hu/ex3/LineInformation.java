@@ -9,6 +9,7 @@ import org.opencv.core.Point;
  * A data store class.
  * It stores 2 points that can exactly draw a hough line.
  * And it calculate and store the square of the distance between 2 points.
+ * MyAlgorithm keeps its lines in a LineBuffer; LineBuffer.view() gives a line as this class.
  * @author Chengzhi Hu
  * Compiler used: Android Studio 2.3.1
  * Language used: Java SE 8
@@ -20,7 +21,8 @@ import org.opencv.core.Point;
 public class LineInformation implements Comparable<LineInformation>{
     private Point pt1;
     private Point pt2;
-    private int length;
+    private double length;
+    private int votes;
 
     /**
      * Store points, and calculate it's distance.
@@ -28,8 +30,19 @@ public class LineInformation implements Comparable<LineInformation>{
      * @param pt2 Point 2.
      */
     public LineInformation(Point pt1, Point pt2) {
+        this(pt1, pt2, 0);
+    }
+
+    /**
+     * Store points and hough votes, and calculate it's distance.
+     * @param pt1 Point 1.
+     * @param pt2 Point 2.
+     * @param votes Hough accumulator votes of the line. 0 if unknown.
+     */
+    public LineInformation(Point pt1, Point pt2, int votes) {
         this.pt1 = pt1;
         this.pt2 = pt2;
+        this.votes = votes;
         this.calculateLength();
     }
 
@@ -50,13 +63,30 @@ public class LineInformation implements Comparable<LineInformation>{
         return pt2;
     }
 
+    /**
+     * Getter of the square of the distance between 2 points.
+     * @return squared length.
+     */
+    public double getLengthSquared() {
+        return length;
+    }
+
+    /**
+     * Getter of the hough votes.
+     * @return votes, 0 if unknown.
+     */
+    public int getVotes() {
+        return votes;
+    }
+
     /**
      * calculate and store the square of the distance between 2 points.
+     * Done in double, so it neither truncates nor overflows for large coordinates.
      * Call this method in constructor.
      */
     private void calculateLength()
     {
-        length = ((int)((pt1.x - pt2.x)*(pt1.x - pt2.x))+(int)((pt1.y-pt2.y)*(pt1.y-pt2.y)));
+        length = LineGeometry.lengthSquared(pt1.x, pt1.y, pt2.x, pt2.y);
     }
 
 
@@ -69,6 +99,6 @@ public class LineInformation implements Comparable<LineInformation>{
 
     @Override
     public int compareTo(@NonNull LineInformation o) {
-        return (this.length < o.length ? 1 : (this.length == o.length) ? 0 : -1);
+        return Double.compare(o.length, this.length);
     }
 }
@@ -0,0 +1,314 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Track hough lines within +/- 30 degrees of vertical from frame to frame.
+ * update() does
+ *  1) Match every detected (rho, theta) line to the nearest track of the previous frame,
+ *     searching only the neighbouring cells of a binned (rho, theta) grid;
+ *  2) Smooth matched tracks with an exponential filter, so drawn lines do not flicker;
+ *  3) Start tracks for unmatched lines, and drop tracks that were missed for too many frames.
+ * needsKeyframe() tells the caller when to run the full hough transformation again: every KEYFRAME_INTERVAL
+ * frames, or when too few confirmed tracks were found again. In between, the caller only needs to search
+ * the angles around the tracked lines, see getThetaRange().
+ *
+ * Angles are kept normalized to (-90, 90] degrees (theta > 90 degrees is stored as theta - 180 with -rho),
+ * so the +/- 30 degree band around vertical is one continuous range.
+ * Nothing is allocated per frame.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class LineTracker {
+
+    /**
+     * Most lines tracked at the same time.
+     */
+    public static final int MAX_TRACKS = 64;
+
+    /**
+     * Run the full hough transformation at least every this many frames.
+     */
+    public static final int KEYFRAME_INTERVAL = 15;
+
+    /**
+     * Fraction of confirmed tracks that must be found again, or the next frame is a keyframe.
+     */
+    private static final double MIN_CONFIDENCE = 0.6;
+
+    /**
+     * Grid cell size, also the largest distance a line may move between 2 frames.
+     */
+    private static final double RHO_BIN = 16;
+    private static final double THETA_BIN = Math.PI / 90;
+
+    /**
+     * Weight of the new detection in the exponential smoothing.
+     */
+    private static final double SMOOTHING = 0.35;
+
+    /**
+     * Detections needed before a track is drawn, and misses after which it is dropped.
+     */
+    private static final int CONFIRM_HITS = 2;
+    private static final int MAX_MISSES = 3;
+
+    /**
+     * Extra angle searched around the tracked lines between keyframes.
+     */
+    private static final double THETA_MARGIN = Math.PI / 60;
+
+    private final double[] rho = new double[MAX_TRACKS];
+    private final double[] theta = new double[MAX_TRACKS];
+    private final int[] hits = new int[MAX_TRACKS];
+    private final int[] misses = new int[MAX_TRACKS];
+    private final boolean[] alive = new boolean[MAX_TRACKS];
+    private final boolean[] matched = new boolean[MAX_TRACKS];
+
+    // Binned index of the tracks: binHead[cell] is the first track, nextInBin[track] the next one.
+    private int[] binHead = new int[0];
+    private final int[] nextInBin = new int[MAX_TRACKS];
+    private int rhoBins;
+    private int thetaBins;
+    private double rhoMin;
+
+    private int framesSinceKeyframe = KEYFRAME_INTERVAL;
+    private double confidence;
+    private final double[] clippedLine = new double[4];
+
+
+    /**
+     * Size the grid for a frame. Drops all tracks if the size changed.
+     * @param width frame width.
+     * @param height frame height.
+     */
+    public void setFrameSize(int width, int height)
+    {
+        double diagonal = Math.sqrt((double) width * width + (double) height * height);
+        int newRhoBins = (int) Math.ceil(2 * diagonal / RHO_BIN) + 1;
+        int newThetaBins = (int) Math.ceil(Math.PI / THETA_BIN) + 1;
+        if (newRhoBins == rhoBins && newThetaBins == thetaBins)
+            return;
+        rhoBins = newRhoBins;
+        thetaBins = newThetaBins;
+        rhoMin = -diagonal;
+        binHead = new int[rhoBins * thetaBins];
+        reset();
+    }
+
+    /**
+     * Drop all tracks. The next frame is a keyframe.
+     */
+    public void reset()
+    {
+        for (int t = 0; t < MAX_TRACKS; t++)
+            alive[t] = false;
+        framesSinceKeyframe = KEYFRAME_INTERVAL;
+        confidence = 0;
+    }
+
+    /**
+     * @return true if the next frame should run the full hough transformation.
+     */
+    public boolean needsKeyframe()
+    {
+        return framesSinceKeyframe >= KEYFRAME_INTERVAL || confidence < MIN_CONFIDENCE;
+    }
+
+    /**
+     * Fraction of the confirmed tracks found again in the last frame.
+     * @return confidence, 0-1.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Normalized angle range, margin included, that a restricted search must cover to find the tracked lines again.
+     * @param out receives {min, max}, radians in (-90, 90] degrees.
+     * @return false if there is no track to search for.
+     */
+    public boolean getThetaRange(double[] out)
+    {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (!alive[t])
+                continue;
+            min = Math.min(min, theta[t]);
+            max = Math.max(max, theta[t]);
+        }
+        if (min > max)
+            return false;
+        out[0] = min - THETA_MARGIN;
+        out[1] = max + THETA_MARGIN;
+        return true;
+    }
+
+    /**
+     * Match the lines detected in this frame to the tracks, and update the tracks.
+     * @param detections lines of this frame. Only rho and theta are used.
+     * @param keyframe true if the detections come from the full hough transformation.
+     */
+    public void update(LineBuffer detections, boolean keyframe)
+    {
+        buildIndex();
+        int confirmedBefore = 0;
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            matched[t] = false;
+            if (alive[t] && hits[t] >= CONFIRM_HITS)
+                confirmedBefore++;
+        }
+
+        int confirmedFound = 0;
+        for (int i = 0; i < detections.size(); i++) {
+            double r = detections.getRho(i);
+            double th = detections.getTheta(i);
+            if (th > Math.PI / 2) {
+                th -= Math.PI;
+                r = -r;
+            }
+            int track = nearestTrack(r, th);
+            if (track < 0) {
+                startTrack(r, th);
+                continue;
+            }
+            if (hits[track] >= CONFIRM_HITS)
+                confirmedFound++;
+            matched[track] = true;
+            rho[track] += SMOOTHING * (r - rho[track]);
+            theta[track] += SMOOTHING * (th - theta[track]);
+            hits[track]++;
+            misses[track] = 0;
+        }
+
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (alive[t] && !matched[t] && ++misses[t] > MAX_MISSES)
+                alive[t] = false;
+        }
+        confidence = confirmedBefore == 0 ? 0 : (double) confirmedFound / confirmedBefore;
+        framesSinceKeyframe = keyframe ? 1 : framesSinceKeyframe + 1;
+    }
+
+    /**
+     * Write the confirmed tracks, clipped to the frame, into a line buffer.
+     * Angles are written back in the hough range [0, 180) degrees.
+     * @param out receives the lines. It is not cleared first.
+     * @param width frame width.
+     * @param height frame height.
+     * @return number of lines written.
+     */
+    public int exportTo(LineBuffer out, int width, int height)
+    {
+        int count = 0;
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (!alive[t] || hits[t] < CONFIRM_HITS)
+                continue;
+            double r = rho[t];
+            double th = theta[t];
+            if (th < 0) {
+                th += Math.PI;
+                r = -r;
+            }
+            if (!LineGeometry.clipHoughLine(r, th, width, height, clippedLine))
+                continue;
+            out.add(clippedLine[0], clippedLine[1], clippedLine[2], clippedLine[3], r, th, hits[t]);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of tracks alive, confirmed or not.
+     */
+    public int getTrackCount()
+    {
+        int count = 0;
+        for (int t = 0; t < MAX_TRACKS; t++)
+            if (alive[t])
+                count++;
+        return count;
+    }
+
+
+    private void buildIndex()
+    {
+        java.util.Arrays.fill(binHead, -1);
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (!alive[t])
+                continue;
+            int cell = cell(rhoBin(rho[t]), thetaBin(theta[t]));
+            nextInBin[t] = binHead[cell];
+            binHead[cell] = t;
+        }
+    }
+
+    /**
+     * Nearest unmatched track within one cell in rho and theta, searching the 3*3 neighbouring cells.
+     */
+    private int nearestTrack(double r, double th)
+    {
+        int rb = rhoBin(r);
+        int tb = thetaBin(th);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int dr = -1; dr <= 1; dr++) {
+            int rbin = rb + dr;
+            if (rbin < 0 || rbin >= rhoBins)
+                continue;
+            for (int dt = -1; dt <= 1; dt++) {
+                int tbin = tb + dt;
+                if (tbin < 0 || tbin >= thetaBins)
+                    continue;
+                for (int t = binHead[cell(rbin, tbin)]; t >= 0; t = nextInBin[t]) {
+                    if (matched[t])
+                        continue;
+                    double rhoDistance = Math.abs(rho[t] - r) / RHO_BIN;
+                    double thetaDistance = Math.abs(theta[t] - th) / THETA_BIN;
+                    if (rhoDistance > 1 || thetaDistance > 1)
+                        continue;
+                    double distance = rhoDistance * rhoDistance + thetaDistance * thetaDistance;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = t;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void startTrack(double r, double th)
+    {
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (alive[t])
+                continue;
+            alive[t] = true;
+            matched[t] = true;
+            rho[t] = r;
+            theta[t] = th;
+            hits[t] = 1;
+            misses[t] = 0;
+            return;
+        }
+    }
+
+    private int rhoBin(double r)
+    {
+        return Math.max(0, Math.min(rhoBins - 1, (int) ((r - rhoMin) / RHO_BIN)));
+    }
+
+    private int thetaBin(double th)
+    {
+        return Math.max(0, Math.min(thetaBins - 1, (int) ((th + Math.PI / 2) / THETA_BIN)));
+    }
+
+    private int cell(int rhoBin, int thetaBin)
+    {
+        return rhoBin * thetaBins + thetaBin;
+    }
+}
@@ -15,15 +15,10 @@ import org.opencv.android.CameraBridgeViewBase;
 import org.opencv.android.CameraBridgeViewBase.CvCameraViewListener2;
 import org.opencv.android.LoaderCallbackInterface;
 import org.opencv.android.OpenCVLoader;
-import org.opencv.core.Core;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.core.Point;
-import org.opencv.core.Scalar;
-import org.opencv.core.Size;
-import org.opencv.imgproc.Imgproc;
 
-import java.util.Random;
+import java.io.File;
+import java.io.IOException;
 
 public class MainActivity extends AppCompatActivity implements CvCameraViewListener2,OnItemSelectedListener{
 
@@ -34,7 +29,44 @@ public class MainActivity extends AppCompatActivity implements CvCameraViewListe
 
     String menu_item_selected;
 
+    volatile FrameFilter activeFilter;// resolved from menu_item_selected when the selection changes
+
+    final CameraFrame cameraFrame = new CameraFrame();// the camera frame as the filters take it
+
     MyAlgorithm myAlgorithm;
+
+    BasicFilters basicFilters;
+
+    FilterRegistry filterRegistry;
+
+    // Heavy modes run on a worker thread with their own filters and buffers, see AsyncFilter.
+    static final boolean ASYNC_HEAVY_FILTERS = true;
+    FrameBufferPool asyncFramePool;
+    FilterRegistry asyncFilterRegistry;
+    MyAlgorithm asyncAlgorithm;
+    BasicFilters asyncBasicFilters;
+    AsyncFilter asyncFilter;
+
+    // Corner, Hough, Edgy and Best Lines detect on a downscaled copy of the frame, see ProcessingScale.
+    static final int PROCESSING_SCALE = ProcessingScale.HALF;
+
+    // Per-stage latency histograms, logged every few seconds, see StageTimer. A diagnostics switch, off in production.
+    static final boolean STAGE_TIMING = false;
+
+    // Edgy, Sobel and Canny only recompute the tiles that changed since the previous frames, see ChangeDetector.
+    // Only for a fixed camera: a handheld camera changes every tile, and the gated Canny output is approximate.
+    static final boolean CHANGE_GATING = BuildConfig.FIXED_CAMERA;
+
+    // Record the camera frames, before any filter, with their time and spinner mode, see FrameRecorder.
+    // Recordings are written to the app's external files directory and replay with FrameRecordReader.
+    static final boolean RECORD_FRAMES = false;
+    static final int RECORD_FORMAT = RawFrame.FORMAT_GRAY;
+    static final int RECORD_CAPACITY = 600;
+    volatile FrameRecorder frameRecorder;
+    volatile FilterMode activeMode = FilterMode.RANDOM;
+
+    FrameBufferPool framePool;// scratch mats and arrays shared by all filters, sized in onCameraViewStarted
+    TiledExecutor tiledExecutor;// threads of the per-pixel passes of both MyAlgorithms, stopped in onDestroy
     private BaseLoaderCallback mLoaderCallback = new BaseLoaderCallback() {
         @Override
         public void onManagerConnected(int status) {
@@ -52,11 +84,29 @@ public class MainActivity extends AppCompatActivity implements CvCameraViewListe
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
-        myAlgorithm = new MyAlgorithm();
+        framePool = new FrameBufferPool();
+        tiledExecutor = new TiledExecutor();
+        myAlgorithm = new MyAlgorithm(framePool,tiledExecutor);
+        myAlgorithm.setProcessingScale(PROCESSING_SCALE);
+        myAlgorithm.setChangeGating(CHANGE_GATING);
+        basicFilters = new BasicFilters(framePool);
+        basicFilters.setProcessingScale(PROCESSING_SCALE);
+        basicFilters.setChangeGating(CHANGE_GATING);
+        filterRegistry = new FilterRegistry(framePool,basicFilters,myAlgorithm);
+        asyncFramePool = new FrameBufferPool();
+        asyncAlgorithm = new MyAlgorithm(asyncFramePool,tiledExecutor);
+        asyncAlgorithm.setProcessingScale(PROCESSING_SCALE);
+        asyncAlgorithm.setChangeGating(CHANGE_GATING);
+        asyncBasicFilters = new BasicFilters(asyncFramePool);
+        asyncBasicFilters.setProcessingScale(PROCESSING_SCALE);
+        asyncBasicFilters.setChangeGating(CHANGE_GATING);
+        asyncFilterRegistry = new FilterRegistry(asyncFramePool,asyncBasicFilters,asyncAlgorithm);
+        asyncFilter = new AsyncFilter(asyncFilterRegistry.get(FilterMode.RANDOM));
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN,WindowManager.LayoutParams.FLAG_FULLSCREEN);
 
         menu_items = getResources().getStringArray(R.array.spinner_menu);
         menu_item_selected = menu_items[0];//initialize to first item in arry
+        selectFilter(menu_item_selected);
         Log.i("SPINNER", "menu item is " + menu_item_selected);
         spinner_menu = (Spinner)findViewById(R.id.spinner_menu);
         ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(this,R.array.spinner_menu,android.R.layout.simple_spinner_item);
@@ -82,9 +132,16 @@ public class MainActivity extends AppCompatActivity implements CvCameraViewListe
             mOpenCvCameraView.disableView();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        tiledExecutor.shutdown();
+    }
+
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         menu_item_selected = parent.getItemAtPosition(position).toString();
+        selectFilter(menu_item_selected);
         Log.i("SPINNER","choice is "+this.menu_item_selected);
 
     }
@@ -92,209 +149,99 @@ public class MainActivity extends AppCompatActivity implements CvCameraViewListe
     @Override
     public void onNothingSelected(AdapterView<?> parent) {
         menu_item_selected = menu_items[0];
+        selectFilter(menu_item_selected);
     }
 
     @Override
     public void onCameraViewStarted(int width, int height) {
-
+        framePool.prepare(width,height);
+        asyncFramePool.prepare(width,height);
+        asyncFilter.start();
+        StageTimer.setEnabled(STAGE_TIMING);
+        if (RECORD_FRAMES) {
+            File recording = new File(getExternalFilesDir(null),"recording-" + System.currentTimeMillis() + ".ex3");
+            try {
+                frameRecorder = new FrameRecorder(recording,width,height,RECORD_FORMAT,RECORD_CAPACITY);
+                frameRecorder.start();
+                Log.i("Recorder","recording to " + recording);
+            } catch (IOException e) {
+                Log.e("Recorder","Cannot create " + recording + ": " + e);
+            }
+        }
     }
 
     @Override
     public void onCameraViewStopped() {
+        FrameRecorder recorder = frameRecorder;
+        frameRecorder = null;
+        if (recorder != null)
+            recorder.stop();
+        asyncFilter.stop();
+        asyncFramePool.release();
+        framePool.release();
+        if (StageTimer.isEnabled())
+            StageTimer.dump();
+        if (CHANGE_GATING) {
+            logChangeGating(myAlgorithm.getEdgyChangeDetector(),basicFilters.getGradientChangeDetector());
+            logChangeGating(asyncAlgorithm.getEdgyChangeDetector(),asyncBasicFilters.getGradientChangeDetector());
+        }
+    }
 
+    /**
+     * Log the fraction of tiles each gated filter skipped.
+     */
+    private static void logChangeGating(ChangeDetector... changeDetectors) {
+        for (ChangeDetector changeDetector : changeDetectors)
+            Log.i("ChangeGating",changeDetector.getStatsSummary());
     }
 
     @Override
     public Mat onCameraFrame(CameraBridgeViewBase.CvCameraViewFrame inputFrame) {
-        switch (menu_item_selected)
-        {
-            case "Threshold":
-                return thresholdMat(inputFrame);
-            case "Mean Blur":
-                return meanBlurMat(inputFrame);
-            case "Gaussian Blur":
-                return gaussianBlurMat(inputFrame);
-            case "Dialation":
-                return dilationMat(inputFrame);
-            case "Erosion":
-                return erosionMat(inputFrame);
-            case "Adaptive Thresholding":
-                return adptThresholdMat(inputFrame);
-            case "Difference of Gaussian":
-                return differenceofGaussianMat(inputFrame);
-            case "Canny Edge":
-                return cannyEdgeMat(inputFrame);
-            case "Sobel Edge":
-                return sobelMat(inputFrame);
-            case "Corner Detection":
-                return cornerMat(inputFrame);
-            case "Hough Line Transform":
-                return houghMat(inputFrame);
-            case "Edgy":
-                //return myAlgorithm.myEdgy(inputFrame,100);
-                return myAlgorithm.myEdgy2(inputFrame,100);
-            case "Best Lines":
-                return myAlgorithm.myBestLines2(inputFrame,100);
-            case "Random":
-            default:
-                return randomMat(inputFrame);
+        long start = StageTimer.start();
+        cameraFrame.set(inputFrame);
+        FrameRecorder recorder = frameRecorder;
+        if (recorder != null)
+            recorder.record(cameraFrame,activeMode);
+        Mat result = activeFilter.apply(cameraFrame);
+        StageTimer.lap(StageTimer.Stage.CAMERA_FRAME,start);
+        StageTimer.dumpIfDue();
+        return result;
+    }
+
+    /**
+     * Resolve the filter of a spinner item. Heavy filters are handed to the worker thread.
+     * @param label spinner text.
+     */
+    private void selectFilter(String label)
+    {
+        FilterMode mode = FilterMode.fromLabel(label);
+        activeMode = mode;
+        if (ASYNC_HEAVY_FILTERS && mode.isHeavy()) {
+            asyncFilter.setFilter(asyncFilterRegistry.get(mode));
+            activeFilter = asyncFilter;
         }
+        else
+            activeFilter = filterRegistry.get(mode);
     }
 
-    private Mat thresholdMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing thresholding");
-        Mat mat = inputFrame.gray();
-        Imgproc.threshold(mat,mat,50.0,255.0,Imgproc.THRESH_BINARY);
-        return mat;
-    }
-
-    private Mat meanBlurMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing mean blur");
-        Mat mat = inputFrame.rgba();
-        Imgproc.blur(mat,mat,new Size(3,3));
-        return mat;
-    }
-
-    private Mat gaussianBlurMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing gaussian blur");
-        Mat mat = inputFrame.rgba();
-        Imgproc.GaussianBlur(mat,mat,new Size(3,3),0);
-        return mat;
-    }
-
-    private Mat dilationMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing dilation");
-        Mat mat = thresholdMat(inputFrame);
-
-        Mat kernelDilate = Imgproc.getStructuringElement(Imgproc.MORPH_RECT,new Size(7,7));
-        Imgproc.dilate(mat,mat,kernelDilate);
-        return mat;
-    }
-
-
-    private Mat erosionMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing erosion");
-        Mat mat = thresholdMat(inputFrame);
-        Mat kernelErosion = Imgproc.getStructuringElement(Imgproc.MORPH_RECT,new Size(7,7));
-        Imgproc.erode(mat,mat,kernelErosion);
-        return mat;
-    }
-
-    private Mat adptThresholdMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing adaptive thresholding");
-        Mat mat = inputFrame.gray();
-        Imgproc.adaptiveThreshold(mat,mat,255,Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,Imgproc.THRESH_BINARY,3,0);
-        return mat;
-    }
-
-
-    private Mat differenceofGaussianMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing Difference of Gaussian");
-        Mat mat = inputFrame.gray();
-        Mat gaussianMat1 = new Mat();
-        Mat gaussianMat2 = new Mat();
-        Imgproc.GaussianBlur(mat,gaussianMat1,new Size(15,15),5);
-        Imgproc.GaussianBlur(mat,gaussianMat2,new Size(21,21),5);
-        Mat doG = new Mat();
-        Core.absdiff(gaussianMat1,gaussianMat2,doG);
-        Core.multiply(doG,new Scalar(100),doG);
-        Imgproc.threshold(doG,doG,50,255,Imgproc.THRESH_BINARY_INV);
-        return doG;
-    }
-
-    private Mat cannyEdgeMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing Canny Edge");
-        Mat mat = inputFrame.gray();
-        Imgproc.Canny(mat,mat,10,100);
-        return mat;
-    }
-
-
-    private Mat sobelMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing sobel");
-        Mat mat = inputFrame.gray();
-        Mat gradX = new Mat();
-        Mat gradY = new Mat();
-        Imgproc.Sobel(mat,gradX, CvType.CV_16S,1,0,3,1,0);
-        Imgproc.Sobel(mat,gradY, CvType.CV_16S,0,1,3,1,0);
-        Core.convertScaleAbs(gradX,gradX);
-        Core.convertScaleAbs(gradY,gradY);
-        Core.addWeighted(gradX,0.5,gradY,0.5,1,mat);
-        return mat;
-    }
+    /**
+     * The camera's frame seen as a VideoFrame. Reused for every frame.
+     */
+    static final class CameraFrame implements VideoFrame {
+        private CameraBridgeViewBase.CvCameraViewFrame frame;
 
-    private Mat cornerMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing Harris Corner");
-        Mat mat = inputFrame.gray();
-        Mat corners = new Mat();
-        Mat tempDst = new Mat();
-        Mat tempDstNorm = new Mat();
-        Imgproc.cornerHarris(mat,tempDst,2,3,0.04);
-        Core.normalize(tempDst,tempDstNorm,0,255,Core.NORM_MINMAX);
-
-        Core.convertScaleAbs(tempDstNorm,corners);
-        Random random = new Random();
-        long previous = System.currentTimeMillis();
-        for (int i = 0; i < tempDstNorm.cols();i++){
-            for (int j = 0; j < tempDstNorm.rows();j++){
-                double[] value = tempDstNorm.get(j,i);
-                if (value[0] > 150)
-                    Imgproc.circle(corners,new Point(i,j),5,new Scalar(random.nextInt(255)),2);
-            }
+        void set(CameraBridgeViewBase.CvCameraViewFrame frame) {
+            this.frame = frame;
         }
-        Log.i("Corner","One frame's run-time "+ (System.currentTimeMillis() - previous)+" ms");
-        return corners;
-    }
 
-    private Mat houghMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        Log.i("SPINNER","performing Hough transformations");
-        Mat imageMat = inputFrame.rgba();
-        Mat greyMat = new Mat();
-        Imgproc.cvtColor(imageMat,greyMat,Imgproc.COLOR_RGBA2GRAY);
-        Imgproc.Canny(greyMat,greyMat,10,100);
-
-        int threshold_line = Math.min(greyMat.rows(),greyMat.cols()) / 2;
-        Mat lines = new Mat();
-        Imgproc.HoughLines(greyMat,lines,1,Math.PI / 180,threshold_line);
-        for (int i = 0;i < lines.rows();i++){
-            double[] points = lines.get(i,0);
-            double rho = points[0];
-            double theta = points[1];
-            double a = Math.cos(theta);
-            double b = Math.sin(theta);
-            double x0 = a*rho;
-            double y0 = b*rho;
-
-            double x1,x2,y1,y2;
-
-            x1 = x0 + 1000 * (-b);
-            y1 = y0 + 1000 * a;
-            x2 = x0 - 1000 * (-b);
-            y2 = y0 - 1000* a;
-
-            Point pt1 = new Point(x1,y1);
-            Point pt2 = new Point(x2,y2);
-
-            Imgproc.line(imageMat,pt1,pt2,new Scalar(0,0,255),1);
+        @Override
+        public Mat rgba() {
+            return frame.rgba();
         }
-        return imageMat;
-    }
 
-    private Mat randomMat(CameraBridgeViewBase.CvCameraViewFrame inputFrame){
-        long previous = System.currentTimeMillis();
-        Random rand = new Random(previous);
-        Mat imageMat = new Mat();
-        if (rand.nextGaussian() < 0.5)
-        {
-            Log.d("SPINNER","return color");
-            imageMat = inputFrame.rgba();
-        }
-        else
-        {
-            Log.d("SPINNER","return greyscale");
-            imageMat = inputFrame.gray();
+        @Override
+        public Mat gray() {
+            return frame.gray();
         }
-        Log.i("Random","One frame's run-time "+ (System.currentTimeMillis() - previous)+" ms");
-        return imageMat;
     }
 }
@@ -0,0 +1,135 @@
+package com.hello.hu.ex3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * [Class Overview]
+ * Frames of a raw dump: frames of the same size and RawFrame format, back to back, after an optional header.
+ * The file is memory-mapped, so a frame is read straight from the page cache without a read() call,
+ * and the operating system reads ahead while the filters run.
+ * A mapping is limited to 2 GB, so long recordings are mapped in regions of whole frames, each mapped on first use.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class MappedFileFrameSource implements FrameSource {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final long dataOffset;
+    private final int frameSize;
+    private final int frameCount;
+    private final int framesPerRegion;
+    private final MappedByteBuffer[] regions;
+    private final RawFrame frame;
+
+
+    /**
+     * Open a headerless dump.
+     * @param path raw file.
+     * @param width frame width.
+     * @param height frame height.
+     * @param format RawFrame.FORMAT_GRAY, FORMAT_RGBA or FORMAT_NV21.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MappedFileFrameSource(File path, int width, int height, int format) throws IOException
+    {
+        this(path, width, height, format, 0, -1);
+    }
+
+    /**
+     * Open a dump whose frames start at an offset.
+     * @param path raw file.
+     * @param width frame width.
+     * @param height frame height.
+     * @param format RawFrame.FORMAT_GRAY, FORMAT_RGBA or FORMAT_NV21.
+     * @param dataOffset byte offset of the first frame.
+     * @param frameCount number of frames, or -1 for as many whole frames as the file holds.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MappedFileFrameSource(File path, int width, int height, int format, long dataOffset, int frameCount)
+            throws IOException
+    {
+        this.width = width;
+        this.height = height;
+        this.dataOffset = dataOffset;
+        this.frameSize = RawFrame.frameSize(width, height, format);
+        file = new RandomAccessFile(path, "r");
+        channel = file.getChannel();
+        long fileFrames = (channel.size() - dataOffset) / frameSize;
+        if (frameCount < 0 || frameCount > fileFrames)
+            frameCount = (int) Math.min(Integer.MAX_VALUE, Math.max(0, fileFrames));
+        this.frameCount = frameCount;
+        framesPerRegion = Math.max(1, Integer.MAX_VALUE / frameSize);
+        regions = new MappedByteBuffer[(frameCount + framesPerRegion - 1) / framesPerRegion];
+        frame = new RawFrame(width, height, format);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public VideoFrame getFrame(int index) throws IOException
+    {
+        frame.load(getFrameData(index));
+        return frame;
+    }
+
+    /**
+     * Raw bytes of a frame, without decoding.
+     * @param index 0 - getFrameCount().
+     * @return a read only view of the mapped frame, from position 0 to its limit.
+     * @throws IOException if the region of the frame cannot be mapped.
+     */
+    public ByteBuffer getFrameData(int index) throws IOException
+    {
+        if (index < 0 || index >= frameCount)
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        ByteBuffer data = region(index / framesPerRegion).asReadOnlyBuffer();
+        data.position((index % framesPerRegion) * frameSize);
+        data.limit(data.position() + frameSize);
+        return data.slice();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        frame.release();
+        channel.close();
+        file.close();
+    }
+
+
+    private MappedByteBuffer region(int i) throws IOException
+    {
+        if (regions[i] == null) {
+            int frames = Math.min(framesPerRegion, frameCount - i * framesPerRegion);
+            long start = dataOffset + (long) i * framesPerRegion * frameSize;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) frames * frameSize);
+        }
+        return regions[i];
+    }
+}
@@ -0,0 +1,345 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Dilation and erosion with rectangular structuring elements, in pure Java, on 8 bit images or packed BinaryImages.
+ * A rectangle is separable, so every operation is a horizontal pass then a vertical pass:
+ *   8 bit images - van Herk / Gil-Werman running max: the line is cut into blocks of the kernel size, a prefix max
+ *                  and a suffix max are taken in every block, and the max of any window is the max of one suffix
+ *                  and one prefix. 3 comparisons per pixel and pass, whatever the kernel;
+ *   BinaryImage  - horizontally, OR of the row shifted both ways, about tripling the covered span every step,
+ *                  so the cost grows with log3 of the kernel width: O(log k) word operations per 64 pixels;
+ *                  vertically, the same prefix/suffix blocks over rows of words, which does not depend on the kernel.
+ * Erosion is the dilation of the inverted image, so both share one code path.
+ * open(), close() and gradient() reuse the scratch buffers of this instance between their two passes.
+ *
+ * Pixels outside the image are ignored, same as Imgproc.dilate() and Imgproc.erode() with their default border.
+ * The buffers are kept across calls, so one instance should not be shared between threads.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class Morphology {
+
+    /**
+     * 8 bit scratch: result of the horizontal pass, padded prefix and suffix rows of the vertical pass,
+     * the padded line of the horizontal pass, and the intermediate image of the composites.
+     */
+    private byte[] horizontalPass = new byte[0];
+    private byte[] prefix = new byte[0];
+    private byte[] suffix = new byte[0];
+    private int[] linePrefix = new int[0];
+    private int[] lineSuffix = new int[0];
+    private byte[] intermediate = new byte[0];
+
+    /**
+     * Packed scratch, same roles.
+     */
+    private long[] wordPass = new long[0];
+    private long[] wordPrefix = new long[0];
+    private long[] wordSuffix = new long[0];
+    private long[] rowA = new long[0];
+    private long[] rowB = new long[0];
+    private long[] rowC = new long[0];
+    private BinaryImage binaryIntermediate;
+
+
+    /**
+     * Max over a kernelWidth * kernelHeight rectangle centered on every pixel.
+     * @param src gray image, unsigned bytes.
+     * @param dst receives the dilation. May be src.
+     * @param kernelWidth odd, 1 or more.
+     * @param kernelHeight odd, 1 or more.
+     */
+    public void dilate(byte[] src, byte[] dst, int width, int height, int kernelWidth, int kernelHeight)
+    {
+        run(src, dst, width, height, kernelWidth, kernelHeight, 0);
+    }
+
+    /**
+     * Min over a kernelWidth * kernelHeight rectangle centered on every pixel.
+     * @param src gray image, unsigned bytes.
+     * @param dst receives the erosion. May be src.
+     */
+    public void erode(byte[] src, byte[] dst, int width, int height, int kernelWidth, int kernelHeight)
+    {
+        run(src, dst, width, height, kernelWidth, kernelHeight, 0xFF);
+    }
+
+    /**
+     * Erosion then dilation: removes bright specks smaller than the kernel.
+     */
+    public void open(byte[] src, byte[] dst, int width, int height, int kernelWidth, int kernelHeight)
+    {
+        intermediate = grow(intermediate, width * height);
+        erode(src, intermediate, width, height, kernelWidth, kernelHeight);
+        dilate(intermediate, dst, width, height, kernelWidth, kernelHeight);
+    }
+
+    /**
+     * Dilation then erosion: fills dark holes smaller than the kernel.
+     */
+    public void close(byte[] src, byte[] dst, int width, int height, int kernelWidth, int kernelHeight)
+    {
+        intermediate = grow(intermediate, width * height);
+        dilate(src, intermediate, width, height, kernelWidth, kernelHeight);
+        erode(intermediate, dst, width, height, kernelWidth, kernelHeight);
+    }
+
+    /**
+     * Dilation minus erosion: the outlines of the shapes.
+     * @param dst receives the gradient. Not src.
+     */
+    public void gradient(byte[] src, byte[] dst, int width, int height, int kernelWidth, int kernelHeight)
+    {
+        int size = width * height;
+        intermediate = grow(intermediate, size);
+        erode(src, intermediate, width, height, kernelWidth, kernelHeight);
+        dilate(src, dst, width, height, kernelWidth, kernelHeight);
+        for (int i = 0; i < size; i++)
+            dst[i] = (byte) ((dst[i] & 0xFF) - (intermediate[i] & 0xFF));
+    }
+
+    /**
+     * Packed dilation: a pixel is set if any pixel of the rectangle around it is set.
+     * @param dst receives the dilation, resized to src. May be src.
+     */
+    public void dilate(BinaryImage src, BinaryImage dst, int kernelWidth, int kernelHeight)
+    {
+        run(src, dst, kernelWidth, kernelHeight, false);
+    }
+
+    /**
+     * Packed erosion: a pixel is set if every pixel of the rectangle around it is set.
+     * @param dst receives the erosion, resized to src. May be src.
+     */
+    public void erode(BinaryImage src, BinaryImage dst, int kernelWidth, int kernelHeight)
+    {
+        run(src, dst, kernelWidth, kernelHeight, true);
+    }
+
+    public void open(BinaryImage src, BinaryImage dst, int kernelWidth, int kernelHeight)
+    {
+        BinaryImage tmp = binaryIntermediate(src);
+        erode(src, tmp, kernelWidth, kernelHeight);
+        dilate(tmp, dst, kernelWidth, kernelHeight);
+    }
+
+    public void close(BinaryImage src, BinaryImage dst, int kernelWidth, int kernelHeight)
+    {
+        BinaryImage tmp = binaryIntermediate(src);
+        dilate(src, tmp, kernelWidth, kernelHeight);
+        erode(tmp, dst, kernelWidth, kernelHeight);
+    }
+
+    /**
+     * Packed dilation AND NOT erosion.
+     * @param dst receives the gradient. Not src.
+     */
+    public void gradient(BinaryImage src, BinaryImage dst, int kernelWidth, int kernelHeight)
+    {
+        BinaryImage tmp = binaryIntermediate(src);
+        erode(src, tmp, kernelWidth, kernelHeight);
+        dilate(src, dst, kernelWidth, kernelHeight);
+        long[] d = dst.getWords();
+        long[] e = tmp.getWords();
+        int size = dst.getWordsPerRow() * dst.getHeight();
+        for (int i = 0; i < size; i++)
+            d[i] &= ~e[i];
+    }
+
+
+    /**
+     * Dilation of src XOR flip, written XOR flip: flip 0xFF turns the running max into a running min.
+     */
+    private void run(byte[] src, byte[] dst, int width, int height, int kernelWidth, int kernelHeight, int flip)
+    {
+        checkKernel(kernelWidth, kernelHeight);
+        int radiusX = kernelWidth / 2;
+        int radiusY = kernelHeight / 2;
+        horizontalPass = grow(horizontalPass, width * height);
+        int paddedWidth = width + 2 * radiusX;
+        linePrefix = grow(linePrefix, paddedWidth);
+        lineSuffix = grow(lineSuffix, paddedWidth);
+        int[] g = linePrefix;
+        int[] h = lineSuffix;
+
+        // Horizontal: padded index p is pixel p - radiusX, and 0 outside the image, which never wins a max.
+        for (int r = 0; r < height; r++) {
+            int row = r * width;
+            // block is p % kernelWidth, counted instead of divided.
+            int block = 0;
+            for (int p = 0; p < paddedWidth; p++) {
+                int x = p - radiusX;
+                int value = x >= 0 && x < width ? (src[row + x] & 0xFF) ^ flip : 0;
+                g[p] = block == 0 ? value : Math.max(g[p - 1], value);
+                if (++block == kernelWidth)
+                    block = 0;
+            }
+            block = (paddedWidth - 1) % kernelWidth;
+            for (int p = paddedWidth - 1; p >= 0; p--) {
+                int x = p - radiusX;
+                int value = x >= 0 && x < width ? (src[row + x] & 0xFF) ^ flip : 0;
+                h[p] = block == kernelWidth - 1 || p == paddedWidth - 1 ? value : Math.max(h[p + 1], value);
+                block = block == 0 ? kernelWidth - 1 : block - 1;
+            }
+            for (int c = 0; c < width; c++)
+                horizontalPass[row + c] = (byte) Math.max(h[c], g[c + kernelWidth - 1]);
+        }
+
+        // Vertical: the same blocks over whole rows, so every row is read sequentially.
+        int paddedHeight = height + 2 * radiusY;
+        prefix = grow(prefix, paddedHeight * width);
+        suffix = grow(suffix, paddedHeight * width);
+        for (int p = 0; p < paddedHeight; p++) {
+            int y = p - radiusY;
+            int out = p * width;
+            boolean inside = y >= 0 && y < height;
+            if (p % kernelHeight == 0) {
+                if (inside)
+                    System.arraycopy(horizontalPass, y * width, prefix, out, width);
+                else
+                    java.util.Arrays.fill(prefix, out, out + width, (byte) 0);
+            } else {
+                if (inside)
+                    maxRow(prefix, out - width, horizontalPass, y * width, prefix, out, width);
+                else
+                    System.arraycopy(prefix, out - width, prefix, out, width);
+            }
+        }
+        for (int p = paddedHeight - 1; p >= 0; p--) {
+            int y = p - radiusY;
+            int out = p * width;
+            boolean inside = y >= 0 && y < height;
+            if (p % kernelHeight == kernelHeight - 1 || p == paddedHeight - 1) {
+                if (inside)
+                    System.arraycopy(horizontalPass, y * width, suffix, out, width);
+                else
+                    java.util.Arrays.fill(suffix, out, out + width, (byte) 0);
+            } else {
+                if (inside)
+                    maxRow(suffix, out + width, horizontalPass, y * width, suffix, out, width);
+                else
+                    System.arraycopy(suffix, out + width, suffix, out, width);
+            }
+        }
+        for (int r = 0; r < height; r++) {
+            int top = r * width;
+            int bottom = (r + kernelHeight - 1) * width;
+            int row = r * width;
+            for (int c = 0; c < width; c++)
+                dst[row + c] = (byte) (Math.max(suffix[top + c] & 0xFF, prefix[bottom + c] & 0xFF) ^ flip);
+        }
+    }
+
+    private static void maxRow(byte[] a, int aStart, byte[] b, int bStart, byte[] dst, int dstStart, int length)
+    {
+        for (int i = 0; i < length; i++)
+            dst[dstStart + i] = (byte) Math.max(a[aStart + i] & 0xFF, b[bStart + i] & 0xFF);
+    }
+
+    /**
+     * Packed dilation of src, or of NOT src when invert is set (then the result is inverted back).
+     */
+    private void run(BinaryImage src, BinaryImage dst, int kernelWidth, int kernelHeight, boolean invert)
+    {
+        checkKernel(kernelWidth, kernelHeight);
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int wordsPerRow = src.getWordsPerRow();
+        long lastMask = src.getLastWordMask();
+        long[] in = src.getWords();
+        int radiusX = kernelWidth / 2;
+        int radiusY = kernelHeight / 2;
+        wordPass = grow(wordPass, wordsPerRow * height);
+        rowA = grow(rowA, wordsPerRow);
+        rowB = grow(rowB, wordsPerRow);
+        rowC = grow(rowC, wordsPerRow);
+
+        // Horizontal: rowA(x) = OR of pixels [x - reach, x + reach]. OR-ing rowA moved reach + 1 or less each way
+        // leaves no gap, so reach grows to 3 * reach + 1 every step. Pixels moved in from outside the row are 0.
+        for (int r = 0; r < height; r++) {
+            int row = r * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++)
+                rowA[i] = invert ? ~in[row + i] : in[row + i];
+            rowA[wordsPerRow - 1] &= lastMask;
+            int reach = 0;
+            while (reach < radiusX) {
+                int step = Math.min(2 * reach + 1, radiusX - reach);
+                BinaryImage.shiftRow(rowA, 0, rowB, 0, wordsPerRow, step);
+                BinaryImage.shiftRow(rowA, 0, rowC, 0, wordsPerRow, -step);
+                for (int i = 0; i < wordsPerRow; i++)
+                    rowA[i] |= rowB[i] | rowC[i];
+                rowA[wordsPerRow - 1] &= lastMask;
+                reach += step;
+            }
+            System.arraycopy(rowA, 0, wordPass, row, wordsPerRow);
+        }
+
+        // Vertical: prefix and suffix ORs over blocks of kernelHeight rows, rows outside the image are 0.
+        int paddedHeight = height + 2 * radiusY;
+        wordPrefix = grow(wordPrefix, paddedHeight * wordsPerRow);
+        wordSuffix = grow(wordSuffix, paddedHeight * wordsPerRow);
+        for (int p = 0; p < paddedHeight; p++) {
+            int y = p - radiusY;
+            int out = p * wordsPerRow;
+            boolean restart = p % kernelHeight == 0;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long value = y >= 0 && y < height ? wordPass[y * wordsPerRow + i] : 0;
+                wordPrefix[out + i] = restart ? value : wordPrefix[out - wordsPerRow + i] | value;
+            }
+        }
+        for (int p = paddedHeight - 1; p >= 0; p--) {
+            int y = p - radiusY;
+            int out = p * wordsPerRow;
+            boolean restart = p % kernelHeight == kernelHeight - 1 || p == paddedHeight - 1;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long value = y >= 0 && y < height ? wordPass[y * wordsPerRow + i] : 0;
+                wordSuffix[out + i] = restart ? value : wordSuffix[out + wordsPerRow + i] | value;
+            }
+        }
+        if (dst != src)
+            dst.resize(width, height);
+        long[] outWords = dst.getWords();
+        for (int r = 0; r < height; r++) {
+            int top = r * wordsPerRow;
+            int bottom = (r + kernelHeight - 1) * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long value = wordSuffix[top + i] | wordPrefix[bottom + i];
+                outWords[top + i] = invert ? ~value : value;
+            }
+            outWords[top + wordsPerRow - 1] &= lastMask;
+        }
+    }
+
+    private BinaryImage binaryIntermediate(BinaryImage src)
+    {
+        if (binaryIntermediate == null)
+            binaryIntermediate = new BinaryImage(src.getWidth(), src.getHeight());
+        else
+            binaryIntermediate.resize(src.getWidth(), src.getHeight());
+        return binaryIntermediate;
+    }
+
+    private static void checkKernel(int kernelWidth, int kernelHeight)
+    {
+        if (kernelWidth < 1 || kernelHeight < 1 || kernelWidth % 2 == 0 || kernelHeight % 2 == 0)
+            throw new IllegalArgumentException("Kernel size must be odd, not " + kernelWidth + "x" + kernelHeight);
+    }
+
+    private static byte[] grow(byte[] buffer, int size) {
+        return buffer.length < size ? new byte[size] : buffer;
+    }
+
+    private static int[] grow(int[] buffer, int size) {
+        return buffer.length < size ? new int[size] : buffer;
+    }
+
+    private static long[] grow(long[] buffer, int size) {
+        return buffer.length < size ? new long[size] : buffer;
+    }
+}
@@ -1,18 +1,11 @@
 package com.hello.hu.ex3;
 
-import android.util.Log;
-
-import org.opencv.android.CameraBridgeViewBase;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
  * [Class Overview]
  * This class intends to solve some basic graphic operations in my own designed algorithms.
@@ -24,8 +17,13 @@ import java.util.List;
  * myBestLines() - Do
  *              1) Laplacian transformation;
  *              2) Threshold;
- *              3) Hough line transformation and save all the points within +/- 30 degrees of vertical in pairs in a list.
+ *              3) Hough line transformation and save all the points within +/- 30 degrees of vertical in pairs in a LineBuffer.
  *              4) Draw the longest 10 lines saved in the list on the color mat and return.
+ * myBestLines2() tracks the lines from frame to frame with a LineTracker, and draws the 10 longest tracked lines.
+ * myBestSegments() finds line segments with their real endpoints by a ProbabilisticHough on the canny edges,
+ *              and draws the 10 longest ones within +/- 30 degrees of vertical.
+ * myEdgy2(), myBestLines2() and myBestSegments() can run on a 1/2 or 1/4 scale copy of the frame, see setProcessingScale().
+ * myEdgy2() can skip the tiles that did not change since the previous frames, see setChangeGating().
  * The basic idea of laplacian transformation can go through http://docs.opencv.org/2.4/doc/tutorials/imgproc/imgtrans/laplace_operator/laplace_operator.html
  * @author Chengzhi Hu
  * Compiler used: Android Studio 2.3.1
@@ -42,27 +40,198 @@ public class MyAlgorithm {
      */
     private static final int[][] KERNELofLAPLACIAN = {{0,1,0},{1,-4,1},{0,1,0}};
 
+
     /**
-     * Tan 30 degree. sqrt(3)/3. Approximately equals to 0.577.
-     * This value will be used in drawHoughLines() to judge if the hough lines are within +/- 30 degrees of vertical.
+     * Number of lines drawBest10Lines() draws.
      */
-    private static final double TAN30degree = 0.577;
+    private static final int BEST_LINE_COUNT = 10;
 
+    /**
+     * Pass as thres_value of myEdgy2() and myBestLines2() to choose the threshold of every frame
+     * from the laplacian response, see ThresholdSelector.
+     */
+    public static final int ADAPTIVE_THRESHOLD = -1;
 
     /**
-     * Use list to hold all the lines within +/- 30 degrees of vertical.
-     * And then sort the list, and output the top 10 lines.
+     * Adaptive thresholds of myEdgy2() and myBestLines2(): Otsu, with at most 5% / 2% of the pixels as edges.
+     * Best Lines gets the smaller budget, because every edge pixel costs one vote per angle.
      */
-    private List<LineInformation> lineInfoList;
+    private final ThresholdSelector edgyThreshold = new ThresholdSelector(ThresholdSelector.METHOD_OTSU,0.05,0.2,100);
+    private final ThresholdSelector bestLinesThreshold = new ThresholdSelector(ThresholdSelector.METHOD_OTSU,0.02,0.2,100);
 
+    /**
+     * Hold all the lines within +/- 30 degrees of vertical, in primitive arrays.
+     * And then select the top 10 lines, and output them.
+     */
+    private LineBuffer lineBuffer;
 
     /**
-     * Constructor to initialize the list to an array list.
-     * The array list can be changed to any kinds of list.
+     * Indices of the best lines, and the objects used to draw lines. Reused across frames.
+     */
+    private final int[] bestLineIndices = new int[BEST_LINE_COUNT];
+    private final Point linePt1 = new Point();
+    private final Point linePt2 = new Point();
+    private final double[] trackedThetaRange = new double[2];
+    private static final Scalar HOUGH_LINE_COLOR = new Scalar(0,0,255);
+    private static final Scalar BEST_LINE_COLOR = new Scalar(255);
+    private static final Scalar EDGE_COLOR = new Scalar(255,0,0,0);
+
+    /**
+     * Scratch arrays and mats used by myEdgy2() and myBestLines2(), reused across frames.
+     */
+    private FrameBufferPool framePool;
+
+    /**
+     * Output of Imgproc.HoughLines(), reused across frames.
+     * Created lazily, because OpenCV may not be loaded yet when this class is constructed.
+     */
+    private Mat houghLines;
+
+    /**
+     * Reads, clips and draws the lines of houghLines, and keeps the ones within +/- 30 degrees of vertical.
+     */
+    private final HoughPostProcessor houghPostProcessor = new HoughPostProcessor(Math.PI / 180);
+
+    /**
+     * Runs the laplacian/threshold pass of myEdgy2() on all cores.
+     */
+    private TiledExecutor tiledExecutor;
+
+    /**
+     * Row kernel handed to tiledExecutor. Reused across frames.
+     */
+    private final EdgyRows edgyRows = new EdgyRows();
+
+    /**
+     * Lines of myBestLines2() tracked across frames. The full hough transformation only runs on keyframes.
+     */
+    private final LineTracker lineTracker = new LineTracker();
+
+    /**
+     * Laplacian, threshold and hough voting of myBestLines2(), in one pass.
+     */
+    private final FusedHough fusedHough = new FusedHough();
+
+    /**
+     * Canny edges, packed, and segments of myBestSegments(). Reused across frames.
+     */
+    private final GradientField gradientField = new GradientField();
+    private final BinaryImage segmentEdges = new BinaryImage(1,1);
+    private final ProbabilisticHough probabilisticHough = new ProbabilisticHough(Math.PI / 180);
+    private final LineBuffer segmentBuffer = new LineBuffer(256);
+
+    /**
+     * Canny thresholds of myBestSegments(), same as the Canny Edge mode.
+     */
+    private static final int SEGMENT_CANNY_LOW = 10;
+    private static final int SEGMENT_CANNY_HIGH = 100;
+
+    /**
+     * Segments of myBestSegments() kept as best lines: within +/- 30 degrees of vertical, same band as myBestLines().
+     */
+    private static final double SEGMENT_BAND = Math.toRadians(30);
+
+    /**
+     * Shortest segment and largest gap of myBestSegments(), in pixels of the full frame.
+     */
+    private int segmentMinLength = 80;
+    private int segmentMaxGap = 8;
+
+    /**
+     * myEdgy2(), myBestLines2() and myBestSegments() work on the frame downscaled by this factor, see ProcessingScale.
+     */
+    private int processingScale = ProcessingScale.FULL;
+
+    /**
+     * Dirty tiles of myEdgy2(), or null to recompute every frame fully.
+     * The mask buffer and the threshold the kept mask was made with.
+     */
+    private ChangeDetector edgyChanges;
+    private byte[] gatedMask;
+    private int gatedThresValue;
+    private int gatedThreshold;
+
+
+    /**
+     * Constructor to initialize the line buffer.
+     * A private frame buffer pool is used.
      */
     public MyAlgorithm()
     {
-        lineInfoList = new ArrayList<LineInformation>();
+        this(new FrameBufferPool());
+    }
+
+    /**
+     * Constructor to initialize the line buffer,
+     * and lease all per-frame buffers from the given pool.
+     * The per-pixel passes run on the calling thread, so no threads are started.
+     * @param framePool pool shared with the caller. It is prepared and released by the caller.
+     */
+    public MyAlgorithm(FrameBufferPool framePool)
+    {
+        this(framePool, new TiledExecutor(1));
+    }
+
+    /**
+     * Constructor to initialize the line buffer,
+     * lease all per-frame buffers from the given pool and run the per-pixel passes on the given executor.
+     * @param framePool pool shared with the caller. It is prepared and released by the caller.
+     * @param tiledExecutor executor of the per-pixel passes. new TiledExecutor(1) runs them sequentially.
+     */
+    public MyAlgorithm(FrameBufferPool framePool, TiledExecutor tiledExecutor)
+    {
+        lineBuffer = new LineBuffer(256);
+        this.framePool = framePool;
+        this.tiledExecutor = tiledExecutor;
+    }
+
+
+    /**
+     * Run myEdgy2(), myBestLines2() and myBestSegments() on a downscaled copy of the frame. Results are drawn on the full frame.
+     * @param processingScale ProcessingScale.FULL, HALF or QUARTER.
+     */
+    public void setProcessingScale(int processingScale) {
+        this.processingScale = ProcessingScale.check(processingScale);
+    }
+
+    public int getProcessingScale() {
+        return processingScale;
+    }
+
+    /**
+     * Let only a fraction of the edge pixels of myBestSegments() vote. Lower is faster, but misses short lines.
+     * @param samplingRate 0 - 1, 1 to let every edge pixel vote.
+     */
+    public void setSegmentSamplingRate(double samplingRate) {
+        probabilisticHough.setSamplingRate(samplingRate);
+    }
+
+    /**
+     * Limits of the segments of myBestSegments().
+     * @param minLength shortest segment kept, in pixels of the full frame.
+     * @param maxGap largest gap bridged inside a segment, in pixels of the full frame.
+     */
+    public void setSegmentLimits(int minLength, int maxGap)
+    {
+        if (minLength < 1 || maxGap < 0)
+            throw new IllegalArgumentException("Bad segment limits: " + minLength + ", " + maxGap);
+        segmentMinLength = minLength;
+        segmentMaxGap = maxGap;
+    }
+
+    /**
+     * Only recompute the tiles of myEdgy2() that changed since the previous frames. Meant for a fixed camera.
+     * @param enabled true to gate myEdgy2() by a ChangeDetector.
+     */
+    public void setChangeGating(boolean enabled) {
+        edgyChanges = enabled ? new ChangeDetector("edgy") : null;
+    }
+
+    /**
+     * @return the ChangeDetector of myEdgy2(), or null if change gating is off.
+     */
+    public ChangeDetector getEdgyChangeDetector() {
+        return edgyChanges;
     }
 
 
@@ -78,17 +247,18 @@ public class MyAlgorithm {
      * @param thres_value 0-255. May can write another algorithm to calculate the threshold value dynamically.
      * @return the post processed result.
      */
-    public Mat myEdgy(CameraBridgeViewBase.CvCameraViewFrame inputFrame,int thres_value){
-        long current = System.currentTimeMillis();
+    public Mat myEdgy(VideoFrame inputFrame,int thres_value){
+        long t = StageTimer.start();
         Mat result = inputFrame.rgba();
         Mat gray = new Mat();
         Imgproc.cvtColor(result,gray,Imgproc.COLOR_RGBA2GRAY);
+        t = StageTimer.lap(StageTimer.Stage.CONVERT_COLOR,t);
         for (int r = 1;r < gray.rows() - 1;r++){
             for (int c = 1; c < gray.cols() - 1;c++){
                 redBorder(result, threshold(laplacian(gray,r,c), thres_value), r,c);
             }
         }
-        Log.i("My Edgy Execute time",String.valueOf(System.currentTimeMillis() - current));
+        StageTimer.lap(StageTimer.Stage.LAPLACIAN,t);
         return result;
     }
 
@@ -160,14 +330,15 @@ public class MyAlgorithm {
      * @param thres_value 0-255. May can write another algorithm to calculate the threshold value dynamically.
      * @return the post processed result.
      */
-    public Mat myBestLines(CameraBridgeViewBase.CvCameraViewFrame inputFrame,int thres_value)
+    public Mat myBestLines(VideoFrame inputFrame,int thres_value)
     {
-        long current = System.currentTimeMillis();
+        long t = StageTimer.start();
         Mat result = inputFrame.rgba();
         Mat gray = new Mat();
         Mat laplacianMat = new Mat();
         laplacianMat.create(result.size(),CvType.CV_8U);
         Imgproc.cvtColor(result,gray,Imgproc.COLOR_RGBA2GRAY);
+        t = StageTimer.lap(StageTimer.Stage.CONVERT_COLOR,t);
 
         //Perform laplacian,then store in laplacianMat.
         for (int i = 1;i < gray.rows() - 1;i++) {
@@ -175,128 +346,144 @@ public class MyAlgorithm {
                 laplacianMat.put(i,j,threshold(laplacian(gray, i, j),thres_value));
             }
         }
+        StageTimer.lap(StageTimer.Stage.LAPLACIAN,t);
 
         drawHoughLines(laplacianMat,result);
-        drawBest10Lines(result);
-        Log.i("My Best Lines Exec.time",String.valueOf(System.currentTimeMillis() - current));
+        drawBest10Lines(result,ProcessingScale.FULL);
         return result;
     }
 
 
     /**
-     * Detect and draw blue hough lines and save the lines within +/- 30 degrees of vertical into a list.
+     * Detect and draw blue hough lines and save the lines within +/- 30 degrees of vertical into a LineBuffer.
+     * The lines are clipped to the frame, so their lengths are the visible lengths.
      * @param src Input mat. Must be a binary mat.
      * @param dst Output mat. The hough lines will be drawn in here.
      */
     private void drawHoughLines(Mat src,Mat dst)
     {
         int threshold_line = Math.min(src.rows(),src.cols()) / 4;
-        Mat houghLines = new Mat();
+        if (houghLines == null)
+            houghLines = new Mat();
+        long t = StageTimer.start();
         Imgproc.HoughLines(src,houghLines,1,Math.PI / 180,threshold_line);
-
-        for (int i = 0; i < houghLines.rows();i++)
-        {
-                double[] points = houghLines.get(i,0);
-                double rho = points[0];
-                double theta = points[1];
-                double a = Math.cos(theta);
-                double b = Math.sin(theta);
-                double x0 = a*rho;
-                double y0 = b*rho;
-                double x1,x2,y1,y2;
-
-                x1 = x0 + 1000 * (-b);
-                y1 = y0 + 1000 * a;
-                x2 = x0 - 1000 * (-b);
-                y2 = y0 - 1000* a;
-
-                Point pt1 = new Point(x1,y1);
-                Point pt2 = new Point(x2,y2);
-
-                //Calculate slope, if -30 <= degrees <= 30, put into list.
-                double slope = (x2 - x1) / (y2 - y1);
-                if (Math.abs(slope) <= TAN30degree)
-                {
-                    LineInformation newInfo = new LineInformation(pt1,pt2);
-                    lineInfoList.add(newInfo);
-                }
-                Imgproc.line(dst,pt1,pt2,new Scalar(0,0,255),1);
-        }
+        t = StageTimer.lap(StageTimer.Stage.HOUGH,t);
+        houghPostProcessor.read(houghLines);
+        houghPostProcessor.draw(dst,ProcessingScale.FULL,HOUGH_LINE_COLOR,lineBuffer);
+        StageTimer.lap(StageTimer.Stage.DRAW,t);
     }
 
     /**
-     * Sort the list in descending first, then draw in red, draw at most 10 lines.
+     * Select the 10 longest visible lines (top-K, no full sort), then draw in red, draw at most 10 lines.
      * @param dst Output mat. The red lines will be drawn there.
+     * @param scale processing scale of the lines in the buffer. They are drawn at full scale.
      */
-    private void drawBest10Lines(Mat dst)
+    private void drawBest10Lines(Mat dst,int scale)
     {
-        Collections.sort(lineInfoList);
-        int maxDrawnLine = Math.min(10,lineInfoList.size());
+        long t = StageTimer.start();
+        int maxDrawnLine = lineBuffer.topK(BEST_LINE_COUNT,bestLineIndices);
+        t = StageTimer.lap(StageTimer.Stage.SORT,t);
         for (int i = 0; i < maxDrawnLine;i++)
         {
-            Imgproc.line(dst,lineInfoList.get(i).getPt1(),lineInfoList.get(i).getPt2(),new Scalar(255),1);
+            drawLine(dst,bestLineIndices[i],scale,BEST_LINE_COLOR);
         }
-        lineInfoList.clear();
+        StageTimer.lap(StageTimer.Stage.DRAW,t);
+        lineBuffer.clear();
+    }
+
+
+    /**
+     * Draw a line of the line buffer, mapped from the processing scale to the full frame.
+     */
+    private void drawLine(Mat dst,int line,int scale,Scalar color)
+    {
+        drawLine(dst,lineBuffer,line,scale,color);
+    }
+
+    /**
+     * Draw a line of any line buffer, mapped from the processing scale to the full frame.
+     */
+    private void drawLine(Mat dst,LineBuffer lines,int line,int scale,Scalar color)
+    {
+        lines.getPoints(line,linePt1,linePt2);
+        linePt1.x = ProcessingScale.toFull(linePt1.x,scale);
+        linePt1.y = ProcessingScale.toFull(linePt1.y,scale);
+        linePt2.x = ProcessingScale.toFull(linePt2.x,scale);
+        linePt2.y = ProcessingScale.toFull(linePt2.y,scale);
+        Imgproc.line(dst,linePt1,linePt2,color,1);
     }
 
 
     /**
      * Implement in Java calling O(1) JNI calls rather than calling a lot of(O(width * height)) JNI calls
+     * Works on 8 bit data only: the gray mat is copied into a byte array, the laplacian is computed in int,
+     * and the edges are written into a byte mask. Only the edge pixels of the color mat are then changed,
+     * by Mat.setTo() with the mask, so the color mat is never widened, copied out or copied back.
+     * With a processing scale, the edges are found on the downscaled gray image and the mask is scaled back up.
+     * With change gating, only the tiles that changed since the previous frames are recomputed, see ChangeDetector.
      * Do
      *   1) Laplacian transformation;
      *   2) Threshold;
      *   3) Mark all the edges with red on the color mat and return.
 
      * @param inputFrame
-     * @param thres_value
+     * @param thres_value 0-255, or ADAPTIVE_THRESHOLD.
      * @return
      */
-    public Mat myEdgy2(CameraBridgeViewBase.CvCameraViewFrame inputFrame,int thres_value){
-        long current = System.currentTimeMillis();
+    public Mat myEdgy2(VideoFrame inputFrame,int thres_value){
+        long t = StageTimer.start();
         Mat result = inputFrame.rgba();
-        Mat gray = new Mat();
-
+        int scale = processingScale;
+        Mat gray = framePool.mat(FrameBufferPool.SLOT_GRAY,result.rows(),result.cols(),CvType.CV_8UC1);
         Imgproc.cvtColor(result,gray,Imgproc.COLOR_RGBA2GRAY);
-        gray.convertTo(gray,CvType.CV_16UC1);
-        result.convertTo(result,CvType.CV_16UC1);
-        short grayArray[] = new short[(int)gray.total() * gray.channels()];
-        short colorArray[] = new short[(int)result.total() * result.channels()];
-        gray.get(0,0,grayArray);
-        result.get(0,0,colorArray);
-        int width = gray.width();
-        int height = gray.height();
-        int channels = result.channels();
-        for (int r = 1;r < height - 1;r++){
-            for (int c = 1; c < width - 1;c++){
-              if (laplacian2(grayArray,r,c,width,height) > thres_value)
-              {
-                  colorArray[r * (width * channels) + c * channels] = 255;//R
-                  colorArray[r * (width * channels) + c * channels + 1] = 0;//G
-                  colorArray[r * (width * channels) + c * channels + 2] = 0;//B
-                  colorArray[r * (width * channels) + c * channels + 3] = 0;//A
-              }
-            }
+        Mat small = ProcessingScale.down(gray,scale,framePool);
+        int width = small.width();
+        int height = small.height();
+        Mat edgeMask = framePool.mat(FrameBufferPool.SLOT_COLOR,height,width,CvType.CV_8UC1);
+
+        byte grayArray[] = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        byte maskArray[] = framePool.bytes(FrameBufferPool.SLOT_COLOR,width,height,CvType.CV_8UC1);
+        small.get(0,0,grayArray);
+        t = StageTimer.lap(StageTimer.Stage.CONVERT_COLOR,t);
+        boolean fullFrame = true;
+        if (edgyChanges != null)
+        {
+            //The mask of the clean tiles is kept, so it must still be in the same buffer and for the same threshold.
+            if (maskArray != gatedMask || thres_value != gatedThresValue)
+                edgyChanges.invalidate();
+            gatedMask = maskArray;
+            gatedThresValue = thres_value;
+            fullFrame = edgyChanges.update(grayArray,width,height);
+            t = StageTimer.lap(StageTimer.Stage.CHANGE_DETECT,t);
+        }
+        //A new adaptive threshold is only taken, and the histogram only counted, on full frames.
+        boolean adaptive = thres_value == ADAPTIVE_THRESHOLD && fullFrame;
+        if (!fullFrame)
+            thres_value = gatedThreshold;
+        else if (adaptive)
+            thres_value = edgyThreshold.getThreshold();
+        gatedThreshold = thres_value;
+        edgyRows.set(grayArray,maskArray,width,height,thres_value,adaptive ? edgyThreshold : null);
+        edgyRows.setChangeDetector(edgyChanges);
+        tiledExecutor.execute(0,height,edgyRows);
+        t = StageTimer.lap(StageTimer.Stage.LAPLACIAN,t);
+        if (adaptive)
+        {
+            edgyThreshold.endFrame();
+            t = StageTimer.lap(StageTimer.Stage.THRESHOLD,t);
+        }
+        edgeMask.put(0,0,maskArray);
+        if (scale != ProcessingScale.FULL)
+        {
+            Mat fullMask = framePool.mat(FrameBufferPool.SLOT_COLOR,result.rows(),result.cols(),CvType.CV_8UC1);
+            Imgproc.resize(edgeMask,fullMask,fullMask.size(),0,0,Imgproc.INTER_NEAREST);
+            edgeMask = fullMask;
         }
-        Log.i("My Edgy Execute time",String.valueOf(System.currentTimeMillis() - current));
-        result.put(0,0,colorArray);
-        result.convertTo(result,CvType.CV_8U);
+        result.setTo(EDGE_COLOR,edgeMask);
+        StageTimer.lap(StageTimer.Stage.DRAW,t);
         return result;
     }
 
-    private double laplacian2(short[] grayArray,int row, int col,int width,int height)
-    {
-        double grayTotal = 0.0;
-        int half_kernel_size =  KERNELofLAPLACIAN.length/2;
-        for (int x = -half_kernel_size; x <= half_kernel_size;x++)
-            for (int y = -half_kernel_size;y <= half_kernel_size;y++)
-            {
-                grayTotal += grayArray[(row + y) * width + col + x] * KERNELofLAPLACIAN[y + half_kernel_size ][x + half_kernel_size];
-                //grayTotal += grayMat.get(row + y,col + x)[0]
-            }
-        return grayTotal;
-    }
-
-
     /**
      *Do
      *  1) Laplacian transformation;
@@ -304,36 +491,191 @@ public class MyAlgorithm {
      *  3) Hough line transformation and save all the points within +/- 30 degrees of vertical in pairs in a list.
      *  4) Draw the longest 10 lines saved in the list on the color mat and return
      * Implement in Java calling O(1) JNI calls rather than calling a lot of(O(width * height)) JNI calls
-     * @param thres_value 0-255. May can write another algorithm to calculate the threshold value dynamically.
+     * Steps 1) - 3) are fused into one pass over the gray bytes by FusedHough: pixels above the threshold vote
+     * straight into the hough accumulator, and only the angles within +/- 30 degrees of vertical are voted for.
+     * The lines are matched to the lines of the previous frames and smoothed by a LineTracker, so they do not flicker.
+     * Between keyframes, only the angles around the tracked lines are voted for.
+     * With a processing scale, the lines are found and tracked on the downscaled gray image, and drawn at full scale.
+     * @param thres_value 0-255, or ADAPTIVE_THRESHOLD to calculate the threshold value dynamically.
      * @return the post processed result.
      */
-    public Mat myBestLines2(CameraBridgeViewBase.CvCameraViewFrame inputFrame,int thres_value)
+    public Mat myBestLines2(VideoFrame inputFrame,int thres_value)
     {
-        long current = System.currentTimeMillis();
-
+        long t = StageTimer.start();
         Mat result = inputFrame.rgba();
-        Mat gray = new Mat();
-        Mat laplacianMat = new Mat();
+        int scale = processingScale;
+        Mat gray = framePool.mat(FrameBufferPool.SLOT_GRAY,result.rows(),result.cols(),CvType.CV_8UC1);
+        Imgproc.cvtColor(result,gray,Imgproc.COLOR_RGBA2GRAY);
+        Mat small = ProcessingScale.down(gray,scale,framePool);
+        int width = small.width();
+        int height = small.height();
+        byte grayArray[] = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        small.get(0,0,grayArray);
+        t = StageTimer.lap(StageTimer.Stage.CONVERT_COLOR,t);
+
+        boolean adaptive = thres_value == ADAPTIVE_THRESHOLD;
+        if (adaptive)
+            thres_value = bestLinesThreshold.getThreshold();
+        fusedHough.setResponseHistogram(adaptive ? bestLinesThreshold.getHistogram() : null);
+
+        //Vote for all angles of the band on keyframes only, around the tracked angles otherwise.
+        int threshold_line = Math.min(width,height) / 4;
+        lineTracker.setFrameSize(width,height);
+        boolean keyframe = lineTracker.needsKeyframe() || !lineTracker.getThetaRange(trackedThetaRange);
+        if (keyframe)
+            fusedHough.findLines(grayArray,width,height,thres_value,threshold_line,lineBuffer);
+        else
+            fusedHough.findLines(grayArray,width,height,thres_value,threshold_line,
+                    trackedThetaRange[0],trackedThetaRange[1],lineBuffer);
+        t = StageTimer.lap(StageTimer.Stage.HOUGH,t);
+        if (adaptive)
+        {
+            bestLinesThreshold.endFrame();
+            t = StageTimer.lap(StageTimer.Stage.THRESHOLD,t);
+        }
+        for (int i = 0; i < lineBuffer.size(); i++)
+        {
+            drawLine(result,i,scale,HOUGH_LINE_COLOR);
+        }
+        t = StageTimer.lap(StageTimer.Stage.DRAW,t);
 
+        lineTracker.update(lineBuffer,keyframe);
+        lineBuffer.clear();
+        lineTracker.exportTo(lineBuffer,width,height);
+        StageTimer.lap(StageTimer.Stage.TRACK,t);
+        drawBest10Lines(result,scale);
+        return result;
+    }
+
+
+    /**
+     * Do
+     *  1) Canny edges, packed into a BinaryImage;
+     *  2) Probabilistic hough transformation: segments with their real endpoints, see ProbabilisticHough;
+     *  3) Draw all segments in blue, and the longest 10 within +/- 30 degrees of vertical in red.
+     * Unlike the hough lines of myBestLines2(), the segments stop where the edge stops, so they are ranked
+     * by their true length rather than the length of the line clipped to the frame.
+     * The vote threshold follows the sampling rate, so a lower rate still finds the same lines.
+     * With a processing scale, the segments are found on the downscaled gray image, and drawn at full scale.
+     * @param inputFrame frame captured be onCameraFrame
+     * @return the post processed result.
+     */
+    public Mat myBestSegments(VideoFrame inputFrame)
+    {
+        long t = StageTimer.start();
+        Mat result = inputFrame.rgba();
+        int scale = processingScale;
+        Mat gray = framePool.mat(FrameBufferPool.SLOT_GRAY,result.rows(),result.cols(),CvType.CV_8UC1);
         Imgproc.cvtColor(result,gray,Imgproc.COLOR_RGBA2GRAY);
-        gray.convertTo(gray,CvType.CV_16UC1);
-        int width = gray.width();
-        int height = gray.height();
-        laplacianMat.create(height,width,CvType.CV_16UC1);
-        short grayArray[] = new short[(int)gray.total() * gray.channels()];
-        short laplacianArray[] = new short[(int)gray.total() * gray.channels()];
-        gray.get(0,0,grayArray);
-
-        for (int r = 1;r < height - 1;r++){
-            for (int c = 1; c < width - 1;c++){
-                laplacianArray[r *width+c] =laplacian2(grayArray,r,c,width,height) > thres_value ? (short) 255 : 0;
-            }
+        Mat small = ProcessingScale.down(gray,scale,framePool);
+        int width = small.width();
+        int height = small.height();
+        byte grayArray[] = framePool.bytes(FrameBufferPool.SLOT_GRAY,width,height,CvType.CV_8UC1);
+        small.get(0,0,grayArray);
+        t = StageTimer.lap(StageTimer.Stage.CONVERT_COLOR,t);
+
+        gradientField.compute(grayArray,width,height);
+        gradientField.canny(segmentEdges,SEGMENT_CANNY_LOW,SEGMENT_CANNY_HIGH);
+        t = StageTimer.lap(StageTimer.Stage.GRADIENT,t);
+
+        int minLength = Math.max(1,segmentMinLength / scale);
+        int maxGap = segmentMaxGap / scale;
+        int threshold_line = Math.max(1,(int) (minLength / 2 * probabilisticHough.getSamplingRate()));
+        probabilisticHough.findSegments(segmentEdges,threshold_line,minLength,maxGap,segmentBuffer);
+        t = StageTimer.lap(StageTimer.Stage.HOUGH,t);
+
+        //Theta is the angle of the normal, so vertical segments have theta near 0 or PI.
+        for (int i = 0; i < segmentBuffer.size(); i++)
+        {
+            drawLine(result,segmentBuffer,i,scale,HOUGH_LINE_COLOR);
+            double theta = segmentBuffer.getTheta(i);
+            if (theta <= SEGMENT_BAND || theta >= Math.PI - SEGMENT_BAND)
+                lineBuffer.add(segmentBuffer.getX1(i),segmentBuffer.getY1(i),segmentBuffer.getX2(i),
+                        segmentBuffer.getY2(i),segmentBuffer.getRho(i),theta,segmentBuffer.getVotes(i));
         }
-        laplacianMat.put(0,0,laplacianArray);
-        laplacianMat.convertTo(laplacianMat,CvType.CV_8U);
-        drawHoughLines(laplacianMat,result);
-        drawBest10Lines(result);
-        Log.i("My Best Lines Exec.time",String.valueOf(System.currentTimeMillis() - current));
+        segmentBuffer.clear();
+        StageTimer.lap(StageTimer.Stage.DRAW,t);
+        drawBest10Lines(result,scale);
         return result;
     }
+
+
+    /**
+     * Laplacian and threshold of myEdgy2() into an edge mask (255 = edge, 0 = not), on a strip of rows.
+     * The laplacian is computed in int per pixel and not stored, so the only memory written is the byte mask.
+     * Border rows and columns are cleared, because the mask is a pooled buffer.
+     * With a ThresholdSelector, each strip also counts its responses into a histogram of its thread, merged at the end.
+     * With a ChangeDetector, only the columns of the dirty tiles of each row are recomputed.
+     */
+    static final class EdgyRows implements TiledExecutor.RowTask {
+        private byte[] grayArray;
+        private byte[] maskArray;
+        private int width;
+        private int height;
+        private int thresValue;
+        private ThresholdSelector thresholdSelector;
+        private ChangeDetector changeDetector;
+        private final ThreadLocal<int[]> stripHistogram = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[ThresholdSelector.MAX_RESPONSE + 1];
+            }
+        };
+
+        void set(byte[] grayArray, byte[] maskArray, int width, int height, int thresValue) {
+            set(grayArray,maskArray,width,height,thresValue,null);
+        }
+
+        void set(byte[] grayArray, byte[] maskArray, int width, int height, int thresValue, ThresholdSelector thresholdSelector) {
+            this.grayArray = grayArray;
+            this.maskArray = maskArray;
+            this.width = width;
+            this.height = height;
+            this.thresValue = thresValue;
+            this.thresholdSelector = thresholdSelector;
+        }
+
+        /**
+         * Only recompute the dirty tiles of a ChangeDetector, and keep the mask of the clean ones.
+         * @param changeDetector updated with this frame, or null to recompute every pixel.
+         */
+        void setChangeDetector(ChangeDetector changeDetector) {
+            this.changeDetector = changeDetector;
+        }
+
+        @Override
+        public void run(int rowStart, int rowEnd) {
+            int[] histogram = thresholdSelector != null ? stripHistogram.get() : null;
+            ChangeDetector gate = changeDetector != null && !changeDetector.isFullFrame() ? changeDetector : null;
+            for (int r = rowStart;r < rowEnd;r++){
+                int row = r * width;
+                if (r == 0 || r == height - 1) {
+                    java.util.Arrays.fill(maskArray,row,row + width,(byte) 0);
+                    continue;
+                }
+                maskArray[row] = 0;
+                maskArray[row + width - 1] = 0;
+                if (gate == null) {
+                    runColumns(row,1,width - 1,histogram);
+                    continue;
+                }
+                int tileY = r / ChangeDetector.TILE_SIZE;
+                for (int run = gate.getFirstRun(tileY); run < gate.getFirstRun(tileY + 1); run++) {
+                    int x = gate.getRunX(run);
+                    runColumns(row,Math.max(1,x),Math.min(width - 1,x + gate.getRunWidth(run)),histogram);
+                }
+            }
+            if (histogram != null)
+                thresholdSelector.merge(histogram);
+        }
+
+        private void runColumns(int row, int colStart, int colEnd, int[] histogram) {
+            for (int c = colStart; c < colEnd;c++){
+                int laplacian = Convolution.laplacian3x3(grayArray,row - width + c,row + c,row + width + c);
+                maskArray[row + c] = laplacian > thresValue ? (byte) 255 : 0;
+                if (histogram != null)
+                    histogram[ThresholdSelector.bin(laplacian)]++;
+            }
+        }
+    }
 }
@@ -0,0 +1,304 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Progressive probabilistic hough transform on a BinaryImage, in pure Java, after Imgproc.HoughLinesP():
+ *  1) Edge pixels are taken in random order. Each one votes for all angles of the (rho, theta) accumulator;
+ *  2) When a pixel lifts an accumulator cell above the vote threshold, the line of that cell is walked from the pixel
+ *     both ways through the edge pixels, allowing gaps of at most maxGap pixels. This gives the segment endpoints;
+ *  3) The pixels of the segment are removed from the edges, and the votes of those that already voted are taken back,
+ *     so they can not make another line. Segments shorter than minLength are dropped, but their pixels still go.
+ * Unlike HoughLines(), the segments keep their real endpoints, and most pixels never vote: once a line is found,
+ * its pixels are consumed. setSamplingRate() goes further and only lets a random fraction of the pixels vote,
+ * trading accuracy for speed on busy frames.
+ *
+ * The walk of step 2) follows the line of the accumulator cell, as HoughLinesP() does, but also takes edge pixels
+ * at most MAX_DRIFT pixel off that line, because a line at the nearest angle of the accumulator slowly drifts away
+ * from an edge between two angles. The drift is from the line, not from the previous pixel, so curves are not followed.
+ * The accumulator, the edge copy and the pixel lists are reused across frames.
+ * The random order is seeded the same way every frame, so a still scene gives the same segments.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class ProbabilisticHough {
+
+    /**
+     * Fixed point bits of the line walk.
+     */
+    private static final int SHIFT = 16;
+
+    /**
+     * Largest distance, in pixels across the line, of an edge pixel the walk still takes.
+     */
+    private static final int MAX_DRIFT = 1;
+
+    private static final long SEED = 0x5EED;
+
+    private final double thetaStep;
+    private final int numAngles;
+    private final float[] cosTable;
+    private final float[] sinTable;
+
+    private double samplingRate = 1;
+    private final java.util.Random random = new java.util.Random();
+
+    private int[] accumulator = new int[0];
+    private int numRho;
+    private int[] points = new int[0];
+    private int[] path = new int[0];
+    private BinaryImage remaining;
+    private BinaryImage voted;
+    private final int[] lineEnd = new int[4];
+
+
+    /**
+     * Build the angle tables.
+     * @param thetaStep angle step in radians, e.g. Math.PI / 180. Rho is 1 pixel apart.
+     */
+    public ProbabilisticHough(double thetaStep)
+    {
+        this.thetaStep = thetaStep;
+        numAngles = (int) Math.round(Math.PI / thetaStep);
+        cosTable = new float[numAngles];
+        sinTable = new float[numAngles];
+        for (int a = 0; a < numAngles; a++) {
+            cosTable[a] = (float) Math.cos(a * thetaStep);
+            sinTable[a] = (float) Math.sin(a * thetaStep);
+        }
+    }
+
+    /**
+     * Let only a random fraction of the edge pixels vote.
+     * Lines need about the same number of votes from fewer pixels, so lower the vote threshold with the rate.
+     * @param samplingRate 0 - 1, 1 to let every pixel vote.
+     */
+    public void setSamplingRate(double samplingRate)
+    {
+        if (!(samplingRate > 0 && samplingRate <= 1))
+            throw new IllegalArgumentException("Sampling rate must be in (0, 1], not " + samplingRate);
+        this.samplingRate = samplingRate;
+    }
+
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * Find the segments of an edge image.
+     * @param edges edge pixels. Not changed.
+     * @param voteThreshold minimum votes of a line, exclusive, same as the threshold of HoughLinesP().
+     * @param minLength segments shorter than this (Euclidean, in pixels) are dropped.
+     * @param maxGap largest gap, in pixels, bridged inside a segment.
+     * @param out receives the segments with the rho, theta and votes of their accumulator cell.
+     *            It is not cleared first. LineBuffer ranks them by their real length.
+     * @return number of segments found.
+     */
+    public int findSegments(BinaryImage edges, int voteThreshold, int minLength, int maxGap, LineBuffer out)
+    {
+        int width = edges.getWidth();
+        int height = edges.getHeight();
+        prepare(edges);
+        int count = collectPoints();
+        int rhoOffset = (numRho - 1) / 2;
+        long minLengthSquared = (long) minLength * minLength;
+        random.setSeed(SEED);
+
+        int samples = (int) Math.ceil(count * samplingRate);
+        int found = 0;
+        for (int n = 0; n < samples; n++) {
+            // Partial Fisher-Yates shuffle: only the pixels taken are shuffled.
+            int pick = n + random.nextInt(count - n);
+            int point = points[pick];
+            points[pick] = points[n];
+            points[n] = point;
+            int x = point % width;
+            int y = point / width;
+            // Already consumed by a segment.
+            if (!remaining.get(x, y))
+                continue;
+
+            voted.set(x, y, true);
+            int maxVotes = voteThreshold;
+            int maxAngle = -1;
+            for (int a = 0; a < numAngles; a++) {
+                int rho = Math.round(x * cosTable[a] + y * sinTable[a]) + rhoOffset;
+                int votes = ++accumulator[a * numRho + rho];
+                if (votes > maxVotes) {
+                    maxVotes = votes;
+                    maxAngle = a;
+                }
+            }
+            if (maxAngle < 0)
+                continue;
+
+            // Walk along the line, direction (-sin, cos), one pixel at a time on the major axis.
+            // The line is only as precise as the angle step, so an edge pixel at most MAX_DRIFT off the line still counts.
+            float dirX = -sinTable[maxAngle];
+            float dirY = cosTable[maxAngle];
+            boolean xMajor = Math.abs(dirX) > Math.abs(dirY);
+            int majorStep;
+            int minorStep;
+            if (xMajor) {
+                majorStep = dirX > 0 ? 1 : -1;
+                minorStep = Math.round(dirY * (1 << SHIFT) / Math.abs(dirX));
+            } else {
+                majorStep = dirY > 0 ? 1 : -1;
+                minorStep = Math.round(dirX * (1 << SHIFT) / Math.abs(dirY));
+            }
+            int majorSize = xMajor ? width : height;
+            int minorSize = xMajor ? height : width;
+            int pathLength = 0;
+            path[pathLength++] = point;
+            for (int k = 0; k < 2; k++) {
+                int gap = 0;
+                int offset = 0;
+                int major = xMajor ? x : y;
+                int minor = ((xMajor ? y : x) << SHIFT) + (1 << (SHIFT - 1));
+                int dMajor = k == 0 ? majorStep : -majorStep;
+                int dMinor = k == 0 ? minorStep : -minorStep;
+                lineEnd[2 * k] = x;
+                lineEnd[2 * k + 1] = y;
+                while (true) {
+                    major += dMajor;
+                    minor += dMinor;
+                    int m = minor >> SHIFT;
+                    if (major < 0 || major >= majorSize || m < 0 || m >= minorSize)
+                        break;
+                    int pixel = pixelNearLine(major, m, offset, minorSize, xMajor);
+                    if (pixel < 0) {
+                        if (++gap > maxGap)
+                            break;
+                        continue;
+                    }
+                    offset = pixel - m;
+                    m = pixel;
+                    gap = 0;
+                    int cx = xMajor ? major : m;
+                    int cy = xMajor ? m : major;
+                    path[pathLength++] = cy * width + cx;
+                    lineEnd[2 * k] = cx;
+                    lineEnd[2 * k + 1] = cy;
+                }
+            }
+            long lengthX = lineEnd[2] - lineEnd[0];
+            long lengthY = lineEnd[3] - lineEnd[1];
+            boolean goodLine = lengthX * lengthX + lengthY * lengthY >= minLengthSquared;
+
+            // Consume the pixels of the walk, and take back the votes of those that voted.
+            for (int i = 0; i < pathLength; i++) {
+                int cx = path[i] % width;
+                int cy = path[i] / width;
+                if (goodLine)
+                    unvote(cx, cy, rhoOffset);
+                remaining.set(cx, cy, false);
+            }
+            if (goodLine) {
+                out.add(lineEnd[0], lineEnd[1], lineEnd[2], lineEnd[3],
+                        x * cosTable[maxAngle] + y * sinTable[maxAngle], maxAngle * thetaStep, maxVotes);
+                found++;
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * Size the accumulator, copy the edges into remaining and clear voted.
+     */
+    private void prepare(BinaryImage edges)
+    {
+        int width = edges.getWidth();
+        int height = edges.getHeight();
+        // Same rho range as HoughLinesP(): every |rho| <= width + height fits.
+        numRho = 2 * (width + height) + 1;
+        int size = numAngles * numRho;
+        if (accumulator.length < size)
+            accumulator = new int[size];
+        else
+            java.util.Arrays.fill(accumulator, 0, size, 0);
+        // One pixel per step of the major axis, both ways, and the start pixel.
+        if (path.length < width + height + 1)
+            path = new int[width + height + 1];
+        if (remaining == null) {
+            remaining = new BinaryImage(width, height);
+            voted = new BinaryImage(width, height);
+        } else {
+            remaining.resize(width, height);
+            voted.resize(width, height);
+        }
+        remaining.or(edges);
+    }
+
+    /**
+     * List the pixel indices y * width + x of the edges, skipping empty words.
+     * @return number of pixels.
+     */
+    private int collectPoints()
+    {
+        int width = remaining.getWidth();
+        int wordsPerRow = remaining.getWordsPerRow();
+        long[] words = remaining.getWords();
+        int count = remaining.count();
+        if (points.length < count)
+            points = new int[count];
+        int n = 0;
+        for (int r = 0; r < remaining.getHeight(); r++) {
+            int row = r * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = words[row + w];
+                while (word != 0) {
+                    points[n++] = r * width + (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Find the edge pixel of a walk step: at most MAX_DRIFT pixels off the line, across the major axis.
+     * The offset of the previous pixel is tried first, so the walk stays on one raster row of the edge,
+     * then the others from the line outwards. The offset is from the fixed line, never from the previous pixel,
+     * so a curve can not pull the walk away from the line.
+     * @param line minor coordinate of the line at this step.
+     * @param offset offset of the previous pixel from the line.
+     * @return the minor coordinate of the pixel, or -1 if there is none.
+     */
+    private int pixelNearLine(int major, int line, int offset, int minorSize, boolean xMajor)
+    {
+        if (isSet(major, line + offset, minorSize, xMajor))
+            return line + offset;
+        for (int d = 0; d <= MAX_DRIFT; d++) {
+            if (-d != offset && isSet(major, line - d, minorSize, xMajor))
+                return line - d;
+            if (d != 0 && d != offset && isSet(major, line + d, minorSize, xMajor))
+                return line + d;
+        }
+        return -1;
+    }
+
+    private boolean isSet(int major, int minor, int minorSize, boolean xMajor)
+    {
+        if (minor < 0 || minor >= minorSize)
+            return false;
+        return xMajor ? remaining.get(major, minor) : remaining.get(minor, major);
+    }
+
+    /**
+     * Take back the votes of a pixel of a found segment, if it voted.
+     */
+    private void unvote(int x, int y, int rhoOffset)
+    {
+        if (!voted.get(x, y))
+            return;
+        for (int a = 0; a < numAngles; a++) {
+            int rho = Math.round(x * cosTable[a] + y * sinTable[a]) + rhoOffset;
+            accumulator[a * numRho + rho]--;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * [Class Overview]
+ * Run a detector on a smaller copy of the frame, and map what it found back to the full frame.
+ * Lines and corners do not need the full camera resolution: at 1/2 scale a detector touches 1/4 of the pixels.
+ * down()  - Image pyramid: Imgproc.pyrDown() once per halving, into pooled mats.
+ * toFull() - Map a coordinate or distance of the small image back to the full frame.
+ *
+ * pyrDown() keeps pixel (2x, 2y) of the (gaussian smoothed) source as pixel (x, y),
+ * so mapping back is a multiplication by the scale. Hough angles do not change, rho is a distance and scales too.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public final class ProcessingScale {
+
+    /**
+     * Supported scales, as the divisor of the frame size.
+     */
+    public static final int FULL = 1;
+    public static final int HALF = 2;
+    public static final int QUARTER = 4;
+
+    private ProcessingScale() {
+    }
+
+
+    /**
+     * Check a processing scale.
+     * @param scale FULL, HALF or QUARTER.
+     * @return the scale.
+     * @throws IllegalArgumentException for any other value.
+     */
+    public static int check(int scale)
+    {
+        if (scale != FULL && scale != HALF && scale != QUARTER)
+            throw new IllegalArgumentException("Processing scale must be 1, 2 or 4, not " + scale);
+        return scale;
+    }
+
+    /**
+     * Size of the small image along one axis, same rounding as pyrDown().
+     * @param size full frame width or height.
+     * @param scale FULL, HALF or QUARTER.
+     */
+    public static int smallSize(int size, int scale)
+    {
+        for (int s = 1; s < scale; s *= 2)
+            size = (size + 1) / 2;
+        return size;
+    }
+
+    /**
+     * Downscale an image with an image pyramid.
+     * @param src full size image.
+     * @param scale FULL, HALF or QUARTER.
+     * @param framePool pool of the pyramid levels, slots SLOT_SMALL and SLOT_SMALL2.
+     * @return src itself for FULL, otherwise a pooled mat of smallSize() that is overwritten by the next call.
+     */
+    public static Mat down(Mat src, int scale, FrameBufferPool framePool)
+    {
+        Mat level = src;
+        int slot = FrameBufferPool.SLOT_SMALL;
+        for (int s = 1; s < scale; s *= 2) {
+            Mat next = framePool.mat(slot, (level.rows() + 1) / 2, (level.cols() + 1) / 2, level.type());
+            Imgproc.pyrDown(level, next);
+            level = next;
+            slot = slot == FrameBufferPool.SLOT_SMALL ? FrameBufferPool.SLOT_SMALL2 : FrameBufferPool.SLOT_SMALL;
+        }
+        return level;
+    }
+
+    /**
+     * Map a coordinate or a distance of the small image to the full frame.
+     * @param value x, y or rho in the small image.
+     * @param scale the scale the small image was made with.
+     */
+    public static double toFull(double value, int scale)
+    {
+        return value * scale;
+    }
+}
@@ -0,0 +1,170 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * [Class Overview]
+ * A frame loaded from raw bytes, in the layout the camera delivers or the filters use.
+ * FORMAT_GRAY - width * height bytes, CV_8UC1.
+ * FORMAT_RGBA - width * height * 4 bytes, CV_8UC4.
+ * FORMAT_NV21 - the camera preview format: width * height bytes of Y, then width * height / 2 bytes of interleaved VU.
+ * Like the camera's frame, every rgba()/gray() call hands out a fresh copy or conversion of the stored frame,
+ * because most filters write into the mat they get.
+ * The mats are created on the first load(), because OpenCV may not be loaded when this class is constructed.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public final class RawFrame implements VideoFrame {
+
+    public static final int FORMAT_GRAY = 0;
+    public static final int FORMAT_RGBA = 1;
+    public static final int FORMAT_NV21 = 2;
+
+    private final int width;
+    private final int height;
+    private final int format;
+    private final byte[] data;
+    private Mat stored;
+    private Mat storedY;
+    private Mat rgba;
+    private Mat gray;
+
+
+    /**
+     * @param width frame width.
+     * @param height frame height, even for NV21.
+     * @param format FORMAT_GRAY, FORMAT_RGBA or FORMAT_NV21.
+     */
+    public RawFrame(int width, int height, int format)
+    {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.data = new byte[frameSize(width, height, format)];
+    }
+
+    /**
+     * Bytes of one frame.
+     * @throws IllegalArgumentException for an unknown format.
+     */
+    public static int frameSize(int width, int height, int format)
+    {
+        switch (format) {
+            case FORMAT_GRAY:
+                return width * height;
+            case FORMAT_RGBA:
+                return width * height * 4;
+            case FORMAT_NV21:
+                return width * height * 3 / 2;
+            default:
+                throw new IllegalArgumentException("Unknown raw frame format " + format);
+        }
+    }
+
+    /**
+     * Parse "gray", "rgba" or "nv21".
+     * @throws IllegalArgumentException for any other name.
+     */
+    public static int parseFormat(String name)
+    {
+        if ("gray".equalsIgnoreCase(name))
+            return FORMAT_GRAY;
+        if ("rgba".equalsIgnoreCase(name))
+            return FORMAT_RGBA;
+        if ("nv21".equalsIgnoreCase(name))
+            return FORMAT_NV21;
+        throw new IllegalArgumentException("Raw frame format must be gray, rgba or nv21, not " + name);
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    /**
+     * Load a frame from raw bytes.
+     * @param buffer bytes of the frame, from its position on. The position is not changed.
+     */
+    public void load(ByteBuffer buffer)
+    {
+        buffer.duplicate().get(data);
+        storedMat().put(0, 0, data);
+    }
+
+    /**
+     * Load a frame from a mat of the same format, e.g. a copy of a camera frame.
+     */
+    public void load(Mat mat)
+    {
+        mat.copyTo(storedMat());
+    }
+
+    /**
+     * Load a frame decoded by Imgcodecs. Only for FORMAT_RGBA.
+     * @param bgr 8 bit BGR image, as returned by Imgcodecs.imread().
+     */
+    public void loadBgr(Mat bgr)
+    {
+        Imgproc.cvtColor(bgr, storedMat(), Imgproc.COLOR_BGR2RGBA);
+    }
+
+    @Override
+    public Mat rgba()
+    {
+        if (format == FORMAT_RGBA)
+            stored.copyTo(rgba);
+        else if (format == FORMAT_GRAY)
+            Imgproc.cvtColor(stored, rgba, Imgproc.COLOR_GRAY2RGBA);
+        else
+            Imgproc.cvtColor(stored, rgba, Imgproc.COLOR_YUV2RGBA_NV21);
+        return rgba;
+    }
+
+    @Override
+    public Mat gray()
+    {
+        if (format == FORMAT_GRAY)
+            stored.copyTo(gray);
+        else if (format == FORMAT_RGBA)
+            Imgproc.cvtColor(stored, gray, Imgproc.COLOR_RGBA2GRAY);
+        else
+            storedY.copyTo(gray);
+        return gray;
+    }
+
+    public void release()
+    {
+        if (stored == null)
+            return;
+        stored.release();
+        if (storedY != null)
+            storedY.release();
+        rgba.release();
+        gray.release();
+    }
+
+
+    private Mat storedMat()
+    {
+        if (stored == null) {
+            if (format == FORMAT_NV21) {
+                stored = new Mat(height * 3 / 2, width, CvType.CV_8UC1);
+                // Same as the camera: gray is the Y plane.
+                storedY = stored.submat(0, height, 0, width);
+            } else {
+                stored = new Mat(height, width, format == FORMAT_GRAY ? CvType.CV_8UC1 : CvType.CV_8UC4);
+            }
+            rgba = new Mat();
+            gray = new Mat();
+        }
+        return stored;
+    }
+}
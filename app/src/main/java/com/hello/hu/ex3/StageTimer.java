@@ -0,0 +1,179 @@
+package com.hello.hu.ex3;
+
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * [Class Overview]
+ * Latency of every stage of the camera pipeline, in LatencyHistograms.
+ * A span is timed with System.nanoTime():
+ *     long t = StageTimer.start();
+ *     ...color conversion...
+ *     t = StageTimer.lap(StageTimer.Stage.CONVERT_COLOR, t);
+ *     ...laplacian...
+ *     StageTimer.lap(StageTimer.Stage.LAPLACIAN, t);
+ * lap() records the span and starts the next one, so back-to-back stages read the clock once each.
+ * Every filter of FilterRegistry is timed as a whole as well, see filter().
+ *
+ * When disabled, start() returns 0 and lap() returns at once, so the spans cost one volatile read.
+ * dumpIfDue() logs the p50/p95/p99 of every stage every DUMP_INTERVAL_NANOS, and starts over.
+ * All methods can be called from any thread.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public final class StageTimer {
+
+    /**
+     * Stages of MyAlgorithm, and of the camera callback.
+     */
+    public enum Stage {
+        /** onCameraFrame(), as seen by the camera thread. */
+        CAMERA_FRAME,
+        /** RGBA to gray, and copying the gray mat into a Java array. */
+        CONVERT_COLOR,
+        /** Comparing the frame to the previous frames, see ChangeDetector. */
+        CHANGE_DETECT,
+        /** Laplacian, with the threshold when they are done in the same pass. */
+        LAPLACIAN,
+        /** Sobel gradient, magnitude and direction, see GradientField. */
+        GRADIENT,
+        /** Choosing the threshold of the frame, see ThresholdSelector. */
+        THRESHOLD,
+        /** Hough voting and peak picking. FusedHough includes the laplacian and threshold. */
+        HOUGH,
+        /** Matching lines to the tracked lines, see LineTracker. */
+        TRACK,
+        /** Picking the best lines. */
+        SORT,
+        /** Drawing lines, or writing edges, on the color mat. */
+        DRAW
+    }
+
+    /**
+     * Time between two summaries in the log.
+     */
+    private static final long DUMP_INTERVAL_NANOS = 10000000000L;
+
+    private static volatile boolean enabled;
+    private static final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private static final LatencyHistogram[] filters = new LatencyHistogram[FilterMode.values().length];
+    private static final AtomicLong lastDump = new AtomicLong(System.nanoTime());
+
+    static {
+        for (Stage stage : Stage.values())
+            stages[stage.ordinal()] = new LatencyHistogram(stage.name().toLowerCase(java.util.Locale.US));
+        for (FilterMode mode : FilterMode.values())
+            filters[mode.ordinal()] = new LatencyHistogram("filter " + mode.getLabel());
+    }
+
+    private StageTimer() {
+    }
+
+
+    /**
+     * Turn the timing on or off.
+     */
+    public static void setEnabled(boolean enabled) {
+        StageTimer.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start a span.
+     * @return the start time, or 0 when disabled.
+     */
+    public static long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * End a span of a stage and start the next one.
+     * @param stage stage the span belongs to.
+     * @param start value of start() or of the previous lap(). 0 records nothing.
+     * @return the start of the next span, or 0 when disabled.
+     */
+    public static long lap(Stage stage, long start)
+    {
+        if (start == 0)
+            return 0;
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - start);
+        return enabled ? now : 0;
+    }
+
+    /**
+     * End the span of a whole filter.
+     * @param mode spinner mode of the filter.
+     * @param start value of start(). 0 records nothing.
+     */
+    public static void filter(FilterMode mode, long start)
+    {
+        if (start == 0)
+            return;
+        filters[mode.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public static LatencyHistogram get(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    public static LatencyHistogram get(FilterMode mode) {
+        return filters[mode.ordinal()];
+    }
+
+    /**
+     * Log the summary if DUMP_INTERVAL_NANOS passed since the last one. Only one thread logs it.
+     * Call this method once per frame.
+     */
+    public static void dumpIfDue()
+    {
+        if (!enabled)
+            return;
+        long now = System.nanoTime();
+        long last = lastDump.get();
+        if (now - last < DUMP_INTERVAL_NANOS || !lastDump.compareAndSet(last, now))
+            return;
+        dump();
+    }
+
+    /**
+     * Log one line per stage and filter that recorded something, then forget them.
+     */
+    public static void dump()
+    {
+        for (LatencyHistogram histogram : filters)
+            dump(histogram);
+        for (LatencyHistogram histogram : stages)
+            dump(histogram);
+    }
+
+    /**
+     * Forget all recorded latencies.
+     */
+    public static void reset()
+    {
+        for (LatencyHistogram histogram : filters)
+            histogram.reset();
+        for (LatencyHistogram histogram : stages)
+            histogram.reset();
+    }
+
+
+    private static void dump(LatencyHistogram histogram)
+    {
+        if (histogram.getCount() == 0)
+            return;
+        Log.i("Latency", histogram.getSummary());
+        histogram.reset();
+    }
+}
@@ -0,0 +1,175 @@
+package com.hello.hu.ex3;
+
+/**
+ * [Class Overview]
+ * Choose the laplacian threshold of each frame from the laplacian response itself, instead of a fixed value.
+ * The kernels that compute the laplacian also count it into a histogram (see getHistogram() and merge()),
+ * so no extra pass over the image is needed. endFrame() then picks the threshold for the next frame:
+ *  METHOD_OTSU   - Otsu's threshold of the positive responses, but never more edge pixels than the budget;
+ *  METHOD_BUDGET - The threshold that keeps exactly the edge pixel budget, i.e. a percentile.
+ * The edge pixel budget bounds the cost of the hough voting that follows.
+ * The threshold is then smoothed across frames with an exponential moving average, so it does not jump.
+ *
+ * The threshold used by a frame is the one selected from the previous frames: one frame of lag,
+ * which the smoothing hides anyway.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class ThresholdSelector {
+
+    /**
+     * Otsu's threshold, capped by the edge pixel budget.
+     */
+    public static final int METHOD_OTSU = 0;
+
+    /**
+     * Percentile threshold that keeps the edge pixel budget.
+     */
+    public static final int METHOD_BUDGET = 1;
+
+    /**
+     * Largest 3*3 laplacian of an 8 bit image: 4 * 255. Histogram bins are 0 - MAX_RESPONSE,
+     * negative responses are counted in bin 0.
+     */
+    public static final int MAX_RESPONSE = 4 * 255;
+
+    /**
+     * Lowest threshold ever selected, so a flat or dark frame does not turn its noise into edges.
+     */
+    private static final int MIN_THRESHOLD = 16;
+
+    private final int method;
+    private final double edgeBudget;
+    private final double smoothing;
+    private final int[] histogram = new int[MAX_RESPONSE + 1];
+    private double smoothedThreshold;
+
+
+    /**
+     * @param method METHOD_OTSU or METHOD_BUDGET.
+     * @param edgeBudget most edge pixels wanted, as a fraction of the counted pixels, e.g. 0.05.
+     * @param smoothing weight of the new frame in the moving average, 0 - 1. 1 means no smoothing.
+     * @param initialThreshold threshold of the first frame.
+     */
+    public ThresholdSelector(int method, double edgeBudget, double smoothing, int initialThreshold)
+    {
+        this.method = method;
+        this.edgeBudget = edgeBudget;
+        this.smoothing = smoothing;
+        smoothedThreshold = initialThreshold;
+    }
+
+    /**
+     * Bin of a laplacian response.
+     */
+    public static int bin(int response)
+    {
+        return response <= 0 ? 0 : (response >= MAX_RESPONSE ? MAX_RESPONSE : response);
+    }
+
+    /**
+     * The histogram of the current frame, for a kernel running on a single thread to count into directly.
+     * @return histogram[bin(response)] is the number of pixels with that response.
+     */
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Add a partial histogram, e.g. of one strip of rows, to the histogram of the current frame, and clear it.
+     * Safe to call from several threads.
+     * @param partial histogram of MAX_RESPONSE + 1 bins. All zero afterwards.
+     */
+    public synchronized void merge(int[] partial)
+    {
+        for (int i = 0; i <= MAX_RESPONSE; i++) {
+            histogram[i] += partial[i];
+            partial[i] = 0;
+        }
+    }
+
+    /**
+     * @return threshold to use for the current frame.
+     */
+    public synchronized int getThreshold() {
+        return (int) Math.round(smoothedThreshold);
+    }
+
+    /**
+     * Select the threshold from the histogram of the frame just processed, smooth it and clear the histogram.
+     * A frame without counted pixels keeps the current threshold.
+     * @return threshold to use for the next frame.
+     */
+    public synchronized int endFrame()
+    {
+        long total = 0;
+        for (int count : histogram)
+            total += count;
+        if (total > 0) {
+            int budgetThreshold = budgetThreshold(total);
+            int selected = method == METHOD_OTSU ? Math.max(otsuThreshold(), budgetThreshold) : budgetThreshold;
+            selected = Math.max(selected, MIN_THRESHOLD);
+            smoothedThreshold += smoothing * (selected - smoothedThreshold);
+        }
+        java.util.Arrays.fill(histogram, 0);
+        return getThreshold();
+    }
+
+
+    /**
+     * Smallest threshold t with at most edgeBudget * total responses above t.
+     */
+    private int budgetThreshold(long total)
+    {
+        long budget = (long) (edgeBudget * total);
+        long above = 0;
+        for (int t = MAX_RESPONSE; t > 0; t--) {
+            above += histogram[t];
+            if (above > budget)
+                return t;
+        }
+        return 0;
+    }
+
+    /**
+     * Otsu's threshold over the positive responses (bins 1 - MAX_RESPONSE): the t that maximizes the
+     * between-class variance of {response <= t} and {response > t}.
+     */
+    private int otsuThreshold()
+    {
+        long count = 0;
+        double sum = 0;
+        for (int t = 1; t <= MAX_RESPONSE; t++) {
+            count += histogram[t];
+            sum += (double) t * histogram[t];
+        }
+        if (count == 0)
+            return MAX_RESPONSE;
+        long countBelow = 0;
+        double sumBelow = 0;
+        double bestVariance = -1;
+        int best = 0;
+        for (int t = 1; t < MAX_RESPONSE; t++) {
+            countBelow += histogram[t];
+            sumBelow += (double) t * histogram[t];
+            long countAbove = count - countBelow;
+            if (countBelow == 0)
+                continue;
+            if (countAbove == 0)
+                break;
+            double meanBelow = sumBelow / countBelow;
+            double meanAbove = (sum - sumBelow) / countAbove;
+            double variance = (double) countBelow * countAbove * (meanBelow - meanAbove) * (meanBelow - meanAbove);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = t;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,131 @@
+package com.hello.hu.ex3;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * [Class Overview]
+ * Run a per-pixel kernel on horizontal strips of a frame, on a fixed fork-join pool.
+ * The frame is split into one strip per thread. Every strip only writes its own rows of the output,
+ * and reads its own rows plus a one-row halo above and below from the shared input.
+ * The input is never written while the strips run, so the halo does not need to be copied,
+ * and the output is bit-for-bit the same as running the kernel on all rows sequentially.
+ *
+ * Any kernel in MyAlgorithm can use it, by implementing RowTask for a range of rows.
+ * One executor can be shared by several MyAlgorithms, also on different threads. Its owner calls shutdown().
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public class TiledExecutor {
+
+    /**
+     * Strips thinner than this are not worth a fork.
+     */
+    private static final int MIN_STRIP_ROWS = 16;
+
+    /**
+     * A kernel that can compute a range of rows of the output.
+     */
+    public interface RowTask {
+        /**
+         * Compute the output rows [rowStart, rowEnd).
+         * @param rowStart first row.
+         * @param rowEnd row after the last row.
+         */
+        void run(int rowStart, int rowEnd);
+    }
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+
+    /**
+     * Use one thread per available core.
+     */
+    public TiledExecutor()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Use a fixed number of threads.
+     * @param parallelism number of threads. 1 runs everything on the calling thread.
+     */
+    public TiledExecutor(int parallelism)
+    {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    /**
+     * Getter of the number of threads.
+     * @return number of threads.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Run the task on the rows [rowStart, rowEnd), split into strips. Returns when all strips are done.
+     * @param rowStart first row.
+     * @param rowEnd row after the last row.
+     * @param task kernel to run on every strip.
+     */
+    public void execute(int rowStart, int rowEnd, RowTask task)
+    {
+        int rows = rowEnd - rowStart;
+        if (rows <= 0)
+            return;
+        int strips = Math.min(parallelism, rows / MIN_STRIP_ROWS);
+        if (pool == null || strips <= 1) {
+            task.run(rowStart, rowEnd);
+            return;
+        }
+        pool.invoke(new Strip(task, rowStart, rowEnd, strips));
+    }
+
+    /**
+     * Stop the threads. The executor can not be used any more.
+     */
+    public void shutdown()
+    {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+
+    /**
+     * Split the rows in halves until there is one strip per thread.
+     */
+    private static class Strip extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final RowTask task;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int strips;
+
+        Strip(RowTask task, int rowStart, int rowEnd, int strips) {
+            this.task = task;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.strips = strips;
+        }
+
+        @Override
+        protected void compute() {
+            if (strips == 1) {
+                task.run(rowStart, rowEnd);
+                return;
+            }
+            int leftStrips = strips / 2;
+            int middle = rowStart + (int) ((long) (rowEnd - rowStart) * leftStrips / strips);
+            invokeAll(new Strip(task, rowStart, middle, leftStrips),
+                    new Strip(task, middle, rowEnd, strips - leftStrips));
+        }
+    }
+}
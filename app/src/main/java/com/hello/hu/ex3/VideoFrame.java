@@ -0,0 +1,30 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+
+/**
+ * [Class Overview]
+ * One frame as the filters see it: the same two views as the camera's CvCameraViewFrame.
+ * The filters take this instead of the camera frame, so they also run on recorded frames without a camera,
+ * see FrameSource. MainActivity wraps the camera frame.
+ * Most filters write into the mat they get, so rgba() and gray() may each be called once per frame.
+ * @author Chengzhi Hu
+ * Compiler used: Android Studio 2.3.1
+ * Language used: Java SE 8
+ * min Android SDK version: API level 21 (Android 5.0)
+ * target Android SDK version: API level 25 (Android 7.1)
+ * OpenCV version: 3.1.0
+ */
+
+public interface VideoFrame {
+
+    /**
+     * @return the frame as a CV_8UC4 mat.
+     */
+    Mat rgba();
+
+    /**
+     * @return the frame as a CV_8UC1 mat.
+     */
+    Mat gray();
+}
@@ -0,0 +1,105 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Queueing logic of AsyncFrameProcessor, with int[1] slots as synthetic frames.
+ */
+public class AsyncFrameProcessorTest {
+    private static final int CAPACITY = 2;
+
+    private final List<Integer> processed = new ArrayList<Integer>();
+
+    private AsyncFrameProcessor<int[], int[]> newProcessor() {
+        int[][] frames = new int[CAPACITY + 2][1];
+        int[][] results = new int[3][1];
+        return new AsyncFrameProcessor<int[], int[]>(CAPACITY, frames, results,
+                new AsyncFrameProcessor.Stage<int[], int[]>() {
+                    @Override
+                    public void process(int[] frame, int[] result) {
+                        processed.add(frame[0]);
+                        result[0] = frame[0] * 10;
+                    }
+                });
+    }
+
+    private static void submit(AsyncFrameProcessor<int[], int[]> processor, int value) {
+        processor.beginSubmit()[0] = value;
+        processor.endSubmit();
+    }
+
+    @Test
+    public void noResultBeforeFirstFrameCompletes() throws Exception {
+        AsyncFrameProcessor<int[], int[]> processor = newProcessor();
+        assertNull(processor.latestResult());
+        submit(processor, 1);
+        assertNull(processor.latestResult());
+        assertEquals(1, processor.getQueueDepth());
+    }
+
+    @Test
+    public void fullQueue_dropsOldestFrames() throws Exception {
+        AsyncFrameProcessor<int[], int[]> processor = newProcessor();
+        for (int i = 0; i < 5; i++)
+            submit(processor, i);
+        assertEquals(5, processor.getSubmittedCount());
+        assertEquals(3, processor.getDroppedCount());
+        assertEquals(CAPACITY, processor.getQueueDepth());
+
+        while (processor.processOne()) {
+        }
+        assertEquals(3, processed.get(0).intValue());
+        assertEquals(4, processed.get(1).intValue());
+        assertEquals(2, processor.getCompletedCount());
+        assertEquals(40, processor.latestResult()[0]);
+    }
+
+    @Test
+    public void latestResult_isStableUntilNextCall() throws Exception {
+        AsyncFrameProcessor<int[], int[]> processor = newProcessor();
+        submit(processor, 1);
+        processor.processOne();
+        int[] shown = processor.latestResult();
+        assertEquals(10, shown[0]);
+
+        // The worker completes two more frames while the first result is being drawn.
+        submit(processor, 2);
+        submit(processor, 3);
+        processor.processOne();
+        processor.processOne();
+        assertEquals(10, shown[0]);
+        assertEquals(30, processor.latestResult()[0]);
+    }
+
+    @Test
+    public void slotsAreRecycled() throws Exception {
+        AsyncFrameProcessor<int[], int[]> processor = newProcessor();
+        for (int i = 0; i < 1000; i++) {
+            submit(processor, i);
+            if (i % 3 == 0)
+                processor.processOne();
+        }
+        assertEquals(processor.getSubmittedCount(),
+                processor.getCompletedCount() + processor.getDroppedCount() + processor.getQueueDepth());
+    }
+
+    @Test
+    public void workerThread_completesOrDropsEveryFrame() throws Exception {
+        AsyncFrameProcessor<int[], int[]> processor = newProcessor();
+        processor.start();
+        for (int i = 0; i < 200; i++)
+            submit(processor, i);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (processor.getQueueDepth() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        processor.stop();
+        assertEquals(0, processor.getQueueDepth());
+        assertEquals(200, processor.getCompletedCount() + processor.getDroppedCount());
+        assertEquals(1990, processor.latestResult()[0]);
+    }
+}
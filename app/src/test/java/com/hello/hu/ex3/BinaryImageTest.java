@@ -0,0 +1,135 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * BinaryImage must behave like a boolean image, and its consumers must match their 8 bit paths.
+ */
+public class BinaryImageTest {
+    // Not a multiple of 64, so the last word of a row is partial.
+    private static final int WIDTH = 130;
+    private static final int HEIGHT = 40;
+
+    @Test
+    public void wordOperations_matchPixelOperations() throws Exception {
+        BinaryImage a = random(1);
+        BinaryImage b = random(2);
+        BinaryImage and = random(1);
+        and.and(b);
+        BinaryImage or = random(1);
+        or.or(b);
+        BinaryImage andNot = random(1);
+        andNot.andNot(b);
+        BinaryImage not = random(1);
+        not.not();
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            int rowCount = 0;
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(a.get(x, y) && b.get(x, y), and.get(x, y));
+                assertEquals(a.get(x, y) || b.get(x, y), or.get(x, y));
+                assertEquals(a.get(x, y) && !b.get(x, y), andNot.get(x, y));
+                assertEquals(!a.get(x, y), not.get(x, y));
+                if (a.get(x, y))
+                    rowCount++;
+            }
+            assertEquals(rowCount, a.countRow(y));
+            count += rowCount;
+        }
+        assertEquals(count, a.count());
+        assertEquals(WIDTH * HEIGHT - count, not.count());
+    }
+
+    @Test
+    public void shift_movesPixelsAndClearsTheRest() throws Exception {
+        int[][] shifts = {{0, 0}, {1, 0}, {-1, 0}, {70, 3}, {-65, -2}, {5, -7}, {0, 9}};
+        for (int[] shift : shifts) {
+            BinaryImage src = random(3);
+            BinaryImage copy = new BinaryImage(WIDTH, HEIGHT);
+            copy.shift(src, shift[0], shift[1]);
+            BinaryImage inPlace = random(3);
+            inPlace.shift(inPlace, shift[0], shift[1]);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int sx = x - shift[0];
+                    int sy = y - shift[1];
+                    boolean expected = sx >= 0 && sx < WIDTH && sy >= 0 && sy < HEIGHT && src.get(sx, sy);
+                    assertEquals(expected, copy.get(x, y));
+                    assertEquals(expected, inPlace.get(x, y));
+                }
+            }
+            // Bits past the width stay 0, so counts stay exact.
+            copy.not();
+            copy.not();
+            assertEquals(inPlace.count(), copy.count());
+        }
+    }
+
+    @Test
+    public void nextSetPixel_visitsEverySetPixelInOrder() throws Exception {
+        BinaryImage image = random(4);
+        int visited = 0;
+        int expected = -1;
+        for (int i = image.nextSetPixel(0); i >= 0; i = image.nextSetPixel(i + 1)) {
+            do {
+                expected++;
+            } while (!image.get(expected % WIDTH, expected / WIDTH));
+            assertEquals(expected, i);
+            visited++;
+        }
+        assertEquals(image.count(), visited);
+        assertEquals(-1, new BinaryImage(WIDTH, HEIGHT).nextSetPixel(0));
+    }
+
+    @Test
+    public void consumers_matchBytePaths() throws Exception {
+        int width = 200;
+        int height = 160;
+        byte[] gray = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            gray[y * width + 60] = (byte) 255;
+            gray[y * width + 61 + y / 20] = (byte) 255;
+        }
+        GradientField field = new GradientField();
+        field.compute(gray, width, height);
+        byte[] edges = new byte[width * height];
+        field.canny(edges, 10, 100);
+        BinaryImage packed = new BinaryImage(1, 1);
+        field.canny(packed, 10, 100);
+        byte[] unpacked = new byte[width * height];
+        packed.toBytes(unpacked);
+        assertArrayEquals(edges, unpacked);
+
+        // Voting from the packed laplacian threshold must find what the fused pass finds.
+        int[] response = new int[width * height];
+        Convolution.laplacian3x3(gray, response, width, height);
+        BinaryImage mask = new BinaryImage(width, height);
+        for (int r = 1; r < height - 1; r++)
+            for (int c = 1; c < width - 1; c++)
+                mask.set(c, r, response[r * width + c] > 100);
+        LineBuffer fused = new LineBuffer(8);
+        LineBuffer binary = new LineBuffer(8);
+        FusedHough hough = new FusedHough();
+        hough.findLines(gray, width, height, 100, height / 2, fused);
+        hough.findLines(mask, height / 2, -Math.PI / 2, Math.PI / 2, binary);
+        assertTrue(fused.size() > 0);
+        assertEquals(fused.size(), binary.size());
+        for (int i = 0; i < fused.size(); i++) {
+            assertEquals(fused.getRho(i), binary.getRho(i), 0);
+            assertEquals(fused.getTheta(i), binary.getTheta(i), 0);
+            assertEquals(fused.getVotes(i), binary.getVotes(i));
+        }
+        assertEquals(0, hough.findLines(new BinaryImage(width, height), 0, -Math.PI / 2, Math.PI / 2, binary));
+    }
+
+    private static BinaryImage random(long seed) {
+        java.util.Random random = new java.util.Random(seed);
+        BinaryImage image = new BinaryImage(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++)
+                image.set(x, y, random.nextInt(3) == 0);
+        return image;
+    }
+}
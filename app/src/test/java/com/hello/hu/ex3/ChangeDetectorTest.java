@@ -0,0 +1,91 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ChangeDetector must mark the changed tiles and their neighbours, and a gated pass must match a full one.
+ */
+public class ChangeDetectorTest {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 120;
+    private static final int TILE = ChangeDetector.TILE_SIZE;
+
+    @Test
+    public void staticFrame_skipsEveryTileAfterTheFirst() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 3);
+        ChangeDetector detector = new ChangeDetector("test");
+        assertTrue(detector.update(gray, WIDTH, HEIGHT));
+        assertEquals(HEIGHT / TILE + 1, detector.getRunCount());
+
+        assertFalse(detector.update(gray, WIDTH, HEIGHT));
+        assertEquals(0, detector.getDirtyCount());
+        assertEquals(0, detector.getRunCount());
+        assertEquals(0.5, detector.getSkippedFraction(), 1e-9);
+
+        detector.invalidate();
+        assertTrue(detector.update(gray, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void changedTile_marksItsNeighbours() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 3);
+        ChangeDetector detector = new ChangeDetector("test");
+        detector.update(gray, WIDTH, HEIGHT);
+        // Tile (5, 3) turns white.
+        for (int r = 3 * TILE; r < 4 * TILE; r++)
+            java.util.Arrays.fill(gray, r * WIDTH + 5 * TILE, r * WIDTH + 6 * TILE, (byte) 255);
+        assertFalse(detector.update(gray, WIDTH, HEIGHT));
+        assertEquals(9, detector.getDirtyCount());
+        for (int ty = 2; ty <= 4; ty++) {
+            assertEquals(1, detector.getFirstRun(ty + 1) - detector.getFirstRun(ty));
+            int run = detector.getFirstRun(ty);
+            assertEquals(4 * TILE, detector.getRunX(run));
+            assertEquals(ty * TILE, detector.getRunY(run));
+            assertEquals(3 * TILE, detector.getRunWidth(run));
+        }
+        // The reference now holds the white tile.
+        assertFalse(detector.update(gray, WIDTH, HEIGHT));
+        assertEquals(0, detector.getDirtyCount());
+    }
+
+    @Test
+    public void refreshInterval_forcesFullFrame() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.LINES, 5);
+        ChangeDetector detector = new ChangeDetector("test");
+        int fullFrames = 0;
+        for (int i = 0; i < 3 * ChangeDetector.REFRESH_INTERVAL; i++)
+            if (detector.update(gray, WIDTH, HEIGHT))
+                fullFrames++;
+        assertEquals(3, fullFrames);
+    }
+
+    @Test
+    public void gatedEdgyRows_matchFullPass() throws Exception {
+        byte[] previous = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.LINES, 5);
+        byte[] current = previous.clone();
+        for (int r = 40; r < 70; r++)
+            for (int c = 100; c < 140; c++)
+                current[r * WIDTH + c] = (byte) ((r * 7 + c * 13) & 0xFF);
+
+        ChangeDetector detector = new ChangeDetector("test");
+        MyAlgorithm.EdgyRows rows = new MyAlgorithm.EdgyRows();
+        rows.setChangeDetector(detector);
+        TiledExecutor executor = new TiledExecutor(4);
+        byte[] gatedMask = new byte[WIDTH * HEIGHT];
+        detector.update(previous, WIDTH, HEIGHT);
+        rows.set(previous, gatedMask, WIDTH, HEIGHT, 40);
+        executor.execute(0, HEIGHT, rows);
+        assertFalse(detector.update(current, WIDTH, HEIGHT));
+        rows.set(current, gatedMask, WIDTH, HEIGHT, 40);
+        executor.execute(0, HEIGHT, rows);
+
+        byte[] fullMask = new byte[WIDTH * HEIGHT];
+        rows.setChangeDetector(null);
+        rows.set(current, fullMask, WIDTH, HEIGHT, 40);
+        executor.execute(0, HEIGHT, rows);
+        executor.shutdown();
+        assertArrayEquals(fullMask, gatedMask);
+    }
+}
@@ -0,0 +1,144 @@
+package com.hello.hu.ex3;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks every fast path of Convolution against the generic 2D fallback, and the blurs against fixed values.
+ */
+public class ConvolutionTest {
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 41;
+
+    private short[] gray;
+
+    @Before
+    public void setUp() throws Exception {
+        gray = new short[WIDTH * HEIGHT];
+        Random random = new Random(42);
+        for (int i = 0; i < gray.length; i++)
+            gray[i] = (short) random.nextInt(256);
+    }
+
+    @Test
+    public void laplacian3x3_matchesGenericKernel() throws Exception {
+        int[] fast = new int[gray.length];
+        int[] generic = new int[gray.length];
+        Convolution.laplacian3x3(gray, fast, WIDTH, HEIGHT);
+        Convolution.convolve(gray, generic, WIDTH, HEIGHT, new int[][]{{0, 1, 0}, {1, -4, 1}, {0, 1, 0}});
+        assertArrayEquals(generic, fast);
+    }
+
+    @Test
+    public void laplacian3x3_bytesMatchShorts() throws Exception {
+        byte[] bytes = new byte[gray.length];
+        for (int i = 0; i < gray.length; i++)
+            bytes[i] = (byte) gray[i];
+        int[] fromShorts = new int[gray.length];
+        int[] fromBytes = new int[gray.length];
+        Convolution.laplacian3x3(gray, fromShorts, WIDTH, HEIGHT);
+        Convolution.laplacian3x3(bytes, fromBytes, WIDTH, HEIGHT);
+        assertArrayEquals(fromShorts, fromBytes);
+    }
+
+    @Test
+    public void laplacian3x3_flatImageIsZero() throws Exception {
+        short[] flat = new short[WIDTH * HEIGHT];
+        java.util.Arrays.fill(flat, (short) 200);
+        int[] dst = new int[flat.length];
+        Convolution.laplacian3x3(flat, dst, WIDTH, HEIGHT);
+        for (int value : dst)
+            assertEquals(0, value);
+    }
+
+    @Test
+    public void blurs_keepFlatImageFlat() throws Exception {
+        short[] flat = new short[WIDTH * HEIGHT];
+        java.util.Arrays.fill(flat, (short) 200);
+        int[] tmp = new int[flat.length];
+        int[] dst = new int[flat.length];
+        Convolution.gaussian3x3(flat, dst, tmp, WIDTH, HEIGHT);
+        assertInteriorEquals(200, dst, 1);
+        Convolution.gaussian5x5(flat, dst, tmp, WIDTH, HEIGHT);
+        assertInteriorEquals(200, dst, 2);
+        Convolution.box(flat, dst, tmp, WIDTH, HEIGHT, 3);
+        assertInteriorEquals(200, dst, 3);
+    }
+
+    @Test
+    public void gaussians_spreadImpulseByFixedWeights() throws Exception {
+        // An impulse of 256 is spread by exactly the 2D kernel / 256, so 3*3 gives 16 * {1,2,1}^T{1,2,1}.
+        short[] impulse = new short[WIDTH * HEIGHT];
+        int center = (HEIGHT / 2) * WIDTH + WIDTH / 2;
+        impulse[center] = 256;
+        int[] tmp = new int[impulse.length];
+        int[] dst = new int[impulse.length];
+        Convolution.gaussian3x3(impulse, dst, tmp, WIDTH, HEIGHT);
+        int[][] expected3 = {{16, 32, 16}, {32, 64, 32}, {16, 32, 16}};
+        for (int y = -1; y <= 1; y++)
+            for (int x = -1; x <= 1; x++)
+                assertEquals(expected3[y + 1][x + 1], dst[center + y * WIDTH + x]);
+        Convolution.gaussian5x5(impulse, dst, tmp, WIDTH, HEIGHT);
+        int[] g = {1, 4, 6, 4, 1};
+        for (int y = -2; y <= 2; y++)
+            for (int x = -2; x <= 2; x++)
+                assertEquals(g[y + 2] * g[x + 2], dst[center + y * WIDTH + x]);
+    }
+
+    @Test
+    public void separableRawSum_matchesGenericKernel() throws Exception {
+        assertSeparableMatchesGeneric(new int[]{1, 2, 1}, 0);
+    }
+
+    @Test
+    public void box_matchesGenericKernel() throws Exception {
+        int radius = 3;
+        int size = 2 * radius + 1;
+        int[][] kernel = new int[size][size];
+        for (int[] row : kernel)
+            java.util.Arrays.fill(row, 1);
+        int[] generic = new int[gray.length];
+        Convolution.convolve(gray, generic, WIDTH, HEIGHT, kernel);
+
+        int[] fast = new int[gray.length];
+        Convolution.box(gray, fast, new int[gray.length], WIDTH, HEIGHT, radius);
+        int area = size * size;
+        for (int r = radius; r < HEIGHT - radius; r++)
+            for (int c = radius; c < WIDTH - radius; c++)
+                assertEquals((generic[r * WIDTH + c] + area / 2) / area, fast[r * WIDTH + c]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void box_rejectsKernelLargerThanImage() throws Exception {
+        Convolution.box(new short[10 * 6], new int[10 * 6], new int[10 * 6], 10, 6, 3);
+    }
+
+    private static void assertInteriorEquals(int expected, int[] image, int border) {
+        for (int r = border; r < HEIGHT - border; r++)
+            for (int c = border; c < WIDTH - border; c++)
+                assertEquals(expected, image[r * WIDTH + c]);
+    }
+
+    private void assertSeparableMatchesGeneric(int[] kernel1d, int shift) {
+        int size = kernel1d.length;
+        int[][] kernel = new int[size][size];
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++)
+                kernel[y][x] = kernel1d[y] * kernel1d[x];
+        int[] generic = new int[gray.length];
+        Convolution.convolve(gray, generic, WIDTH, HEIGHT, kernel);
+
+        int[] fast = new int[gray.length];
+        Convolution.separable(gray, fast, new int[gray.length], WIDTH, HEIGHT, kernel1d, shift);
+        int half = size / 2;
+        int totalShift = 2 * shift;
+        int rounding = totalShift == 0 ? 0 : 1 << (totalShift - 1);
+        for (int r = half; r < HEIGHT - half; r++)
+            for (int c = half; c < WIDTH - half; c++)
+                assertEquals((generic[r * WIDTH + c] + rounding) >> totalShift, fast[r * WIDTH + c]);
+    }
+}
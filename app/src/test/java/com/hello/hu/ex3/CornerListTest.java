@@ -0,0 +1,67 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Threshold, non-maximum suppression and the max-corners cap of CornerList.
+ */
+public class CornerListTest {
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 10;
+
+    private static float[] blank() {
+        return new float[WIDTH * HEIGHT];
+    }
+
+    private static void blob(float[] response, int x, int y, float peak) {
+        for (int dy = -1; dy <= 1; dy++)
+            for (int dx = -1; dx <= 1; dx++)
+                response[(y + dy) * WIDTH + x + dx] = Math.max(response[(y + dy) * WIDTH + x + dx], peak - 10);
+        response[y * WIDTH + x] = peak;
+    }
+
+    @Test
+    public void blob_givesOneCornerAtItsPeak() throws Exception {
+        float[] response = blank();
+        blob(response, 5, 4, 200);
+        CornerList corners = new CornerList(10);
+        assertEquals(1, corners.extract(response, WIDTH, HEIGHT, 150));
+        assertEquals(5, corners.getX(0));
+        assertEquals(4, corners.getY(0));
+        assertEquals(200f, corners.getScore(0), 0);
+    }
+
+    @Test
+    public void belowThreshold_isIgnored() throws Exception {
+        float[] response = blank();
+        blob(response, 5, 4, 150);
+        assertEquals(0, new CornerList(10).extract(response, WIDTH, HEIGHT, 150));
+    }
+
+    @Test
+    public void plateau_givesOneCorner() throws Exception {
+        float[] response = blank();
+        for (int y = 3; y <= 5; y++)
+            for (int x = 8; x <= 10; x++)
+                response[y * WIDTH + x] = 180;
+        assertEquals(1, new CornerList(10).extract(response, WIDTH, HEIGHT, 150));
+    }
+
+    @Test
+    public void cap_keepsStrongestCorners() throws Exception {
+        float[] response = blank();
+        blob(response, 2, 2, 160);
+        blob(response, 6, 2, 250);
+        blob(response, 10, 6, 170);
+        blob(response, 14, 6, 240);
+        blob(response, 17, 2, 230);
+        CornerList corners = new CornerList(3);
+        assertEquals(3, corners.extract(response, WIDTH, HEIGHT, 150));
+        float min = Float.MAX_VALUE;
+        for (int i = 0; i < corners.size(); i++)
+            min = Math.min(min, corners.getScore(i));
+        assertEquals(230f, min, 0);
+    }
+}
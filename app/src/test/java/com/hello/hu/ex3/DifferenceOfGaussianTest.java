@@ -0,0 +1,74 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The streaming blurs of DifferenceOfGaussian must match a direct 2D gaussian with reflected borders.
+ */
+public class DifferenceOfGaussianTest {
+    private static final double SIGMA = 5;
+
+    @Test
+    public void blurs_matchDirectGaussian() throws Exception {
+        checkBlurs(70, 45);
+        // Barely taller than the ring, so every row is reflected.
+        checkBlurs(40, 11);
+    }
+
+    @Test
+    public void apply_isWhereBlursAreEqual() throws Exception {
+        int width = 64;
+        int height = 48;
+        byte[] gray = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.LINES, 4);
+        DifferenceOfGaussian doG = new DifferenceOfGaussian(15, 21, SIGMA);
+        byte[] inner = new byte[width * height];
+        byte[] outer = new byte[width * height];
+        byte[] dst = new byte[width * height];
+        doG.blur(gray, inner, outer, width, height);
+        doG.apply(gray, dst, width, height, 0);
+        int white = 0;
+        for (int i = 0; i < dst.length; i++) {
+            assertEquals(inner[i] == outer[i] ? (byte) 255 : 0, dst[i]);
+            if (dst[i] != 0)
+                white++;
+        }
+        assertTrue(white > 0 && white < dst.length);
+
+        java.util.Arrays.fill(gray, (byte) 77);
+        doG.apply(gray, dst, width, height, 0);
+        for (byte b : dst)
+            assertEquals((byte) 255, b);
+    }
+
+    private static void checkBlurs(int width, int height) {
+        byte[] gray = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.NOISE, 9);
+        byte[] inner = new byte[width * height];
+        byte[] outer = new byte[width * height];
+        new DifferenceOfGaussian(15, 21, SIGMA).blur(gray, inner, outer, width, height);
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                assertEquals(gaussian(gray, width, height, r, c, 7), inner[r * width + c] & 0xFF, 1.0);
+                assertEquals(gaussian(gray, width, height, r, c, 10), outer[r * width + c] & 0xFF, 1.0);
+            }
+        }
+    }
+
+    private static double gaussian(byte[] gray, int width, int height, int r, int c, int radius) {
+        double sum = 0;
+        double weightSum = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                double weight = Math.exp(-(dx * dx + dy * dy) / (2 * SIGMA * SIGMA));
+                sum += weight * (gray[reflect(r + dy, height) * width + reflect(c + dx, width)] & 0xFF);
+                weightSum += weight;
+            }
+        }
+        return sum / weightSum;
+    }
+
+    private static int reflect(int i, int size) {
+        return i < 0 ? -i : i >= size ? 2 * size - 2 - i : i;
+    }
+}
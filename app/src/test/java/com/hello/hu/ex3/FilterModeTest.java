@@ -0,0 +1,46 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * FilterMode must stay in sync with the spinner items in strings.xml.
+ */
+public class FilterModeTest {
+
+    @Test
+    public void everySpinnerItemHasItsOwnMode() throws Exception {
+        List<String> items = spinnerItems();
+        assertEquals(FilterMode.values().length, items.size());
+        for (int i = 0; i < items.size(); i++)
+            assertEquals(FilterMode.values()[i], FilterMode.fromLabel(items.get(i)));
+    }
+
+    @Test
+    public void unknownLabel_fallsBackToRandom() throws Exception {
+        assertEquals(FilterMode.RANDOM, FilterMode.fromLabel("No such filter"));
+    }
+
+    private static List<String> spinnerItems() throws Exception {
+        File strings = new File("src/main/res/values/strings.xml");
+        if (!strings.exists())
+            strings = new File("app/src/main/res/values/strings.xml");
+        Scanner scanner = new Scanner(strings, "UTF-8");
+        String xml = scanner.useDelimiter("\\A").next();
+        scanner.close();
+        String array = xml.substring(xml.indexOf("name=\"spinner_menu\""), xml.indexOf("</string-array>"));
+        List<String> items = new ArrayList<String>();
+        Matcher matcher = Pattern.compile("<item>(.*?)</item>").matcher(array);
+        while (matcher.find())
+            items.add(matcher.group(1));
+        return items;
+    }
+}
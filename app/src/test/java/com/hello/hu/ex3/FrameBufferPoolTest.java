@@ -0,0 +1,83 @@
+package com.hello.hu.ex3;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencv.core.CvType;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of FrameBufferPool. Only the array buffers are used, so no OpenCV native library is needed.
+ */
+public class FrameBufferPoolTest {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    private FrameBufferPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new FrameBufferPool();
+        pool.prepare(WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void sameKey_returnsSameArray() throws Exception {
+        short[] gray = pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC1);
+        assertEquals(WIDTH * HEIGHT, gray.length);
+        assertSame(gray, pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC1));
+    }
+
+    @Test
+    public void differentSlotOrType_returnsDifferentArray() throws Exception {
+        short[] gray = pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC1);
+        short[] laplacian = pool.shorts(FrameBufferPool.SLOT_LAPLACIAN, WIDTH, HEIGHT, CvType.CV_16UC1);
+        short[] color = pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC4);
+        assertNotSame(gray, laplacian);
+        assertNotSame(gray, color);
+        assertEquals(WIDTH * HEIGHT * 4, color.length);
+        assertEquals(3, pool.getAllocationCount());
+    }
+
+    @Test
+    public void prepare_dropsOldBuffers() throws Exception {
+        short[] gray = pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC1);
+        pool.prepare(640, 480);
+        assertEquals(0, pool.getAllocationCount());
+        assertNotSame(gray, pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC1));
+    }
+
+    @Test
+    public void steadyState_allocatesNothingPerFrame() throws Exception {
+        // Warm up: the first frame creates every buffer.
+        simulateFrame();
+        int buffersAfterFirstFrame = pool.getAllocationCount();
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int frame = 0; frame < 100; frame++)
+            simulateFrame();
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(buffersAfterFirstFrame, pool.getAllocationCount());
+        // 100 frames at 1080p would allocate gigabytes without the pool. Allow a few bytes of noise from the bean itself.
+        assertTrue("allocated " + allocated + " bytes in steady state", allocated < 64 * 1024);
+    }
+
+    /**
+     * Lease the same buffers myEdgy2() and myBestLines2() lease in one frame, and touch them.
+     */
+    private void simulateFrame() {
+        short[] gray = pool.shorts(FrameBufferPool.SLOT_GRAY, WIDTH, HEIGHT, CvType.CV_16UC1);
+        short[] color = pool.shorts(FrameBufferPool.SLOT_COLOR, WIDTH, HEIGHT, CvType.CV_16UC4);
+        short[] laplacian = pool.shorts(FrameBufferPool.SLOT_LAPLACIAN, WIDTH, HEIGHT, CvType.CV_16UC1);
+        for (int i = 0; i < gray.length; i += 97) {
+            laplacian[i] = gray[i];
+            color[i * 4] = laplacian[i];
+        }
+    }
+}
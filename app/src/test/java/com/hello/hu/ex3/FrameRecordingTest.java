@@ -0,0 +1,75 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * A recording of FrameRecordWriter must read back frame by frame, with its index, even when it is not full.
+ */
+public class FrameRecordingTest {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    @Test
+    public void frames_readBackInAnyOrder() throws Exception {
+        File path = File.createTempFile("recording", ".ex3");
+        try {
+            FrameRecordWriter writer = new FrameRecordWriter(path, WIDTH, HEIGHT, RawFrame.FORMAT_GRAY, 10);
+            for (int i = 0; i < 4; i++)
+                assertTrue(writer.append(SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, i),
+                        1000L * i, i == 3 ? -1 : FilterMode.EDGY.ordinal()));
+            writer.close();
+
+            assertTrue(FrameRecordReader.isRecording(path));
+            FrameRecordReader reader = FrameRecordReader.open(path);
+            assertEquals(WIDTH, reader.getWidth());
+            assertEquals(HEIGHT, reader.getHeight());
+            assertEquals(RawFrame.FORMAT_GRAY, reader.getFormat());
+            assertEquals(4, reader.getFrameCount());
+            for (int i = 3; i >= 0; i--) {
+                ByteBuffer data = reader.getFrameData(i);
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                assertArrayEquals(SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, i), bytes);
+                assertEquals(1000L * i, reader.getTimestampNanos(i));
+                assertEquals(i == 3 ? null : FilterMode.EDGY, reader.getMode(i));
+            }
+            reader.close();
+        } finally {
+            assertTrue(path.delete());
+        }
+    }
+
+    @Test
+    public void fullRecording_rejectsMoreFrames() throws Exception {
+        File path = File.createTempFile("recording", ".ex3");
+        try {
+            FrameRecordWriter writer = new FrameRecordWriter(path, WIDTH, HEIGHT, RawFrame.FORMAT_RGBA, 2);
+            byte[] frame = new byte[writer.getFrameSize()];
+            assertTrue(writer.append(frame, 0, -1));
+            assertTrue(writer.append(frame, 1, -1));
+            assertTrue(writer.isFull());
+            assertFalse(writer.append(frame, 2, -1));
+            writer.close();
+            FrameRecordReader reader = FrameRecordReader.open(path);
+            assertEquals(2, reader.getFrameCount());
+            reader.close();
+        } finally {
+            assertTrue(path.delete());
+        }
+    }
+
+    @Test
+    public void otherFiles_areNotRecordings() throws Exception {
+        File path = File.createTempFile("raw", ".gray");
+        try {
+            assertFalse(FrameRecordReader.isRecording(path));
+        } finally {
+            assertTrue(path.delete());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * FusedHough must find the lines near vertical, and only those, with every edge pixel voting once per angle.
+ */
+public class FusedHoughTest {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 160;
+
+    @Test
+    public void everyEdgePixelVotesOncePerAngle() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 5);
+        int[] response = new int[WIDTH * HEIGHT];
+        Convolution.laplacian3x3(gray, response, WIDTH, HEIGHT);
+        int edges = 0;
+        for (int r = 1; r < HEIGHT - 1; r++)
+            for (int c = 1; c < WIDTH - 1; c++)
+                if (response[r * WIDTH + c] > 100)
+                    edges++;
+
+        FusedHough hough = new FusedHough();
+        hough.findLines(gray, WIDTH, HEIGHT, 100, Integer.MAX_VALUE, new LineBuffer(4));
+        int maxRho = (int) Math.ceil(Math.sqrt(WIDTH * WIDTH + HEIGHT * HEIGHT));
+        for (int a = 0; a < hough.getAngleCount(); a++) {
+            int votes = 0;
+            for (int rho = -maxRho; rho <= maxRho; rho++)
+                votes += hough.getVotes(a, rho);
+            assertEquals("angle " + a, edges, votes);
+        }
+    }
+
+    @Test
+    public void findsLinesNearVerticalOnly() throws Exception {
+        byte[] gray = new byte[WIDTH * HEIGHT];
+        // Vertical line at x = 60, line at 20 degrees from vertical, and a horizontal line.
+        double theta = Math.toRadians(20);
+        for (int y = 0; y < HEIGHT; y++) {
+            gray[y * WIDTH + 60] = (byte) 255;
+            int x = (int) Math.round((150 - y * Math.sin(theta)) / Math.cos(theta));
+            if (x >= 0 && x < WIDTH)
+                gray[y * WIDTH + x] = (byte) 255;
+        }
+        for (int x = 0; x < WIDTH; x++)
+            gray[80 * WIDTH + x] = (byte) 255;
+
+        LineBuffer lines = new LineBuffer(4);
+        int found = new FusedHough().findLines(gray, WIDTH, HEIGHT, 100, HEIGHT / 2, lines);
+        assertEquals(found, lines.size());
+        boolean vertical = false;
+        boolean slanted = false;
+        for (int i = 0; i < lines.size(); i++) {
+            double t = lines.getTheta(i);
+            assertTrue("theta " + t, t <= Math.toRadians(30) + 1e-9 || t >= Math.toRadians(150) - 1e-9);
+            assertTrue(lines.getVotes(i) > HEIGHT / 2);
+            if (t == 0 && Math.abs(Math.abs(lines.getRho(i)) - 60) <= 1)
+                vertical = true;
+            if (Math.abs(t - theta) <= Math.toRadians(1) + 1e-9 && Math.abs(lines.getRho(i) - 150) <= 2)
+                slanted = true;
+        }
+        assertTrue(vertical);
+        assertTrue(slanted);
+    }
+
+    @Test
+    public void seamNeighbour_hasMirroredRho() throws Exception {
+        // Vertical segment at x = 100. Row 179 degrees gets a smaller peak at rho -100, which is next to
+        // rho 100 at 0 degrees, not to rho -100, and must not come out as a second line.
+        BinaryImage edges = new BinaryImage(WIDTH, HEIGHT);
+        for (int y = 0; y < 50; y++)
+            edges.set(100, y, true);
+
+        FusedHough hough = new FusedHough();
+        LineBuffer lines = new LineBuffer(4);
+        hough.findLines(edges, 20, -Math.PI / 2, Math.PI / 2, lines);
+        int seam = hough.getAngleCount() / 2;
+        assertTrue(hough.getVotes(seam - 1, -100) > 20);
+        boolean vertical = false;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.getTheta(i) == 0 && lines.getRho(i) == 100 && lines.getVotes(i) == 50)
+                vertical = true;
+            assertFalse(lines.getTheta(i) == hough.getTheta(seam - 1) && lines.getRho(i) == -100);
+        }
+        assertTrue(vertical);
+    }
+
+    @Test
+    public void restrictedRange_votesOnlyThere() throws Exception {
+        byte[] gray = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++)
+            gray[y * WIDTH + 60] = (byte) 255;
+        FusedHough hough = new FusedHough();
+        LineBuffer lines = new LineBuffer(4);
+        hough.findLines(gray, WIDTH, HEIGHT, 100, HEIGHT / 2, Math.toRadians(10), Math.toRadians(20), lines);
+        assertEquals(0, lines.size());
+        hough.findLines(gray, WIDTH, HEIGHT, 100, HEIGHT / 2, Math.toRadians(-5), Math.toRadians(5), lines);
+        assertTrue(lines.size() > 0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * GradientField must match a direct 3*3 Sobel with reflected borders, and its Canny must keep one pixel wide edges.
+ */
+public class GradientFieldTest {
+    private static final int WIDTH = 61;
+    private static final int HEIGHT = 37;
+
+    @Test
+    public void gradient_matchesDirectSobel() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 11);
+        GradientField field = new GradientField();
+        assertTrue(field.compute(gray, WIDTH, HEIGHT));
+        byte[] sobel = new byte[WIDTH * HEIGHT];
+        field.sobel(sobel);
+        for (int r = 0; r < HEIGHT; r++) {
+            for (int c = 0; c < WIDTH; c++) {
+                int dx = 0;
+                int dy = 0;
+                for (int k = -1; k <= 1; k++) {
+                    int weight = k == 0 ? 2 : 1;
+                    dx += weight * (pixel(gray, r + k, c + 1) - pixel(gray, r + k, c - 1));
+                    dy += weight * (pixel(gray, r + 1, c + k) - pixel(gray, r - 1, c + k));
+                }
+                int i = r * WIDTH + c;
+                assertEquals(dx, field.getGx()[i]);
+                assertEquals(dy, field.getGy()[i]);
+                assertEquals(Math.abs(dx) + Math.abs(dy), field.getMagnitude()[i]);
+                double expected = Math.rint(0.5 * Math.min(Math.abs(dx), 255) + 0.5 * Math.min(Math.abs(dy), 255) + 1);
+                assertEquals((int) Math.min(expected, 255), sobel[i] & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void sameFrame_isShared_andRegionsMatchFullPass() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.LINES, 2);
+        GradientField field = new GradientField();
+        assertTrue(field.compute(gray, WIDTH, HEIGHT));
+        assertFalse(field.compute(gray.clone(), WIDTH, HEIGHT));
+
+        byte[] changed = gray.clone();
+        for (int r = 10; r < 20; r++)
+            for (int c = 30; c < 45; c++)
+                changed[r * WIDTH + c] = (byte) (r * c);
+        // The gradient of the changed pixels reaches one pixel further.
+        field.computeRegion(changed, WIDTH, HEIGHT, 29, 9, 46, 21);
+        short[] regionMagnitude = field.getMagnitude().clone();
+        assertTrue(field.compute(changed, WIDTH, HEIGHT));
+        assertArrayEquals(field.getMagnitude(), regionMagnitude);
+    }
+
+    @Test
+    public void canny_keepsThinStepEdge() throws Exception {
+        byte[] gray = new byte[WIDTH * HEIGHT];
+        for (int r = 0; r < HEIGHT; r++)
+            for (int c = WIDTH / 2; c < WIDTH; c++)
+                gray[r * WIDTH + c] = (byte) 200;
+        GradientField field = new GradientField();
+        field.compute(gray, WIDTH, HEIGHT);
+        byte[] edges = new byte[WIDTH * HEIGHT];
+        field.canny(edges, 10, 100);
+        for (int r = 1; r < HEIGHT - 1; r++) {
+            int count = 0;
+            for (int c = 0; c < WIDTH; c++)
+                if (edges[r * WIDTH + c] != 0)
+                    count++;
+            assertEquals(1, count);
+            assertEquals(GradientField.DIRECTION_HORIZONTAL, field.getDirection()[r * WIDTH + WIDTH / 2]);
+        }
+        for (int c = 0; c < WIDTH; c++)
+            assertEquals(0, edges[c]);
+    }
+
+    /**
+     * Pixel with BORDER_REFLECT_101.
+     */
+    private static int pixel(byte[] gray, int r, int c) {
+        r = r < 0 ? -r : r >= HEIGHT ? 2 * HEIGHT - 2 - r : r;
+        c = c < 0 ? -c : c >= WIDTH ? 2 * WIDTH - 2 - c : c;
+        return gray[r * WIDTH + c] & 0xFF;
+    }
+}
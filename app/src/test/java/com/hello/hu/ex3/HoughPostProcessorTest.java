@@ -0,0 +1,58 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * HoughPostProcessor must clip like LineGeometry with Math.cos/sin, and keep only the near vertical lines.
+ */
+public class HoughPostProcessorTest {
+    private static final double STEP = Math.PI / 180;
+
+    @Test
+    public void tables_matchMath() throws Exception {
+        HoughPostProcessor processor = new HoughPostProcessor(STEP);
+        float[] lines = new float[2 * 180];
+        for (int i = 0; i < 180; i++) {
+            lines[2 * i] = 50 + i;
+            lines[2 * i + 1] = (float) (i * STEP);
+        }
+        processor.setLines(lines, 180);
+        double[] expected = new double[4];
+        double[] actual = new double[4];
+        for (int i = 0; i < 180; i++) {
+            boolean visible = LineGeometry.clipHoughLine(2 * processor.getRho(i), processor.getTheta(i), 640, 480, expected);
+            assertEquals("angle " + i, visible, processor.clip(i, ProcessingScale.HALF, 640, 480, actual));
+            if (visible)
+                assertArrayEquals("angle " + i, expected, actual, 1e-3);
+        }
+    }
+
+    @Test
+    public void verticalBand_isThirtyDegreesAroundVertical() throws Exception {
+        HoughPostProcessor processor = new HoughPostProcessor(STEP);
+        float[] lines = new float[2 * 180];
+        for (int i = 0; i < 180; i++)
+            lines[2 * i + 1] = (float) (i * STEP);
+        processor.setLines(lines, 180);
+        for (int i = 0; i < 180; i++)
+            assertEquals("angle " + i, i <= 30 || i >= 150, processor.isVertical(i));
+    }
+
+    @Test
+    public void verticalLines_areKeptAtFullScale() throws Exception {
+        HoughPostProcessor processor = new HoughPostProcessor(STEP);
+        // A vertical line at x = 100 and a horizontal one at y = 50, found at half scale.
+        processor.setLines(new float[]{50, 0, 25, (float) (Math.PI / 2)}, 2);
+        LineBuffer vertical = new LineBuffer(4);
+        double[] out = new double[4];
+        for (int i = 0; i < processor.size(); i++)
+            if (processor.isVertical(i) && processor.clip(i, ProcessingScale.HALF, 640, 480, out))
+                vertical.add(out[0], out[1], out[2], out[3], 2 * processor.getRho(i), processor.getTheta(i));
+        assertEquals(1, vertical.size());
+        assertEquals(100, vertical.getX1(0), 1e-9);
+        assertEquals(100, vertical.getRho(0), 1e-9);
+        assertEquals(479, Math.abs(vertical.getY2(0) - vertical.getY1(0)), 1e-9);
+    }
+}
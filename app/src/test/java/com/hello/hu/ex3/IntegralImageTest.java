@@ -0,0 +1,91 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * IntegralImage must give the same box statistics and filters as summing every window.
+ */
+public class IntegralImageTest {
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 45;
+
+    @Test
+    public void boxStatistics_matchBruteForce() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 9);
+        IntegralImage integral = new IntegralImage();
+        integral.compute(gray, WIDTH, HEIGHT, true);
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            int x0 = random.nextInt(WIDTH);
+            int y0 = random.nextInt(HEIGHT);
+            int x1 = x0 + 1 + random.nextInt(WIDTH - x0);
+            int y1 = y0 + 1 + random.nextInt(HEIGHT - y0);
+            long sum = 0;
+            long squares = 0;
+            for (int r = y0; r < y1; r++)
+                for (int c = x0; c < x1; c++) {
+                    int value = gray[r * WIDTH + c] & 0xFF;
+                    sum += value;
+                    squares += value * value;
+                }
+            double area = (x1 - x0) * (y1 - y0);
+            double mean = sum / area;
+            assertEquals(sum, integral.boxSum(x0, y0, x1, y1));
+            assertEquals(squares, integral.boxSquareSum(x0, y0, x1, y1));
+            assertEquals(squares / area - mean * mean, integral.boxVariance(x0, y0, x1, y1), 1e-6);
+        }
+    }
+
+    @Test
+    public void meanBlur_ofOneChannel_matchesBruteForce() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.LINES, 2);
+        byte[] rgba = new byte[4 * WIDTH * HEIGHT];
+        for (int i = 0; i < gray.length; i++) {
+            rgba[4 * i + 1] = gray[i];
+            rgba[4 * i + 3] = (byte) 200;
+        }
+        IntegralImage integral = new IntegralImage();
+        integral.compute(rgba, WIDTH, HEIGHT, 4, 1, false);
+        integral.meanBlur(rgba, 4, 1, 7);
+        for (int r = 0; r < HEIGHT; r++)
+            for (int c = 0; c < WIDTH; c++) {
+                int sum = 0;
+                int area = 0;
+                for (int y = Math.max(0, r - 7); y <= Math.min(HEIGHT - 1, r + 7); y++)
+                    for (int x = Math.max(0, c - 7); x <= Math.min(WIDTH - 1, c + 7); x++) {
+                        sum += gray[y * WIDTH + x] & 0xFF;
+                        area++;
+                    }
+                int i = r * WIDTH + c;
+                assertEquals("pixel " + i, (sum + area / 2) / area, rgba[4 * i + 1] & 0xFF);
+                assertEquals(200, rgba[4 * i + 3] & 0xFF);
+            }
+    }
+
+    @Test
+    public void thresholds_matchWindowStatistics() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 4);
+        IntegralImage integral = new IntegralImage();
+        integral.compute(gray, WIDTH, HEIGHT, true);
+        byte[] mean = new byte[gray.length];
+        byte[] sauvola = new byte[gray.length];
+        integral.adaptiveMeanThreshold(gray, mean, 15, 5);
+        integral.sauvolaThreshold(gray, sauvola, 15, 0.34, 128);
+        for (int r = 0; r < HEIGHT; r++)
+            for (int c = 0; c < WIDTH; c++) {
+                int x0 = Math.max(0, c - 15);
+                int y0 = Math.max(0, r - 15);
+                int x1 = Math.min(WIDTH, c + 16);
+                int y1 = Math.min(HEIGHT, r + 16);
+                double m = integral.boxMean(x0, y0, x1, y1);
+                double s = Math.sqrt(integral.boxVariance(x0, y0, x1, y1));
+                int value = gray[r * WIDTH + c] & 0xFF;
+                assertEquals(value > m - 5 ? 255 : 0, mean[r * WIDTH + c] & 0xFF);
+                assertEquals(value > m * (1 + 0.34 * (s / 128 - 1)) ? 255 : 0, sauvola[r * WIDTH + c] & 0xFF);
+            }
+    }
+}
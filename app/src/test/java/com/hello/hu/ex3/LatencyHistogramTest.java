@@ -0,0 +1,73 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LatencyHistogram must report percentiles within its bucket precision, and lose no record under contention.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueOnce() throws Exception {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue("value " + value, LatencyHistogram.lowerBound(bucket) <= value);
+            assertTrue("value " + value, LatencyHistogram.upperBound(bucket) >= value);
+        }
+        for (int bucket = 1; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++)
+            assertEquals(LatencyHistogram.upperBound(bucket - 1) + 1, LatencyHistogram.lowerBound(bucket));
+    }
+
+    @Test
+    public void percentiles_matchSortedValues() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        Random random = new Random(11);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // Mostly ~2 ms, with a slow tail.
+            values[i] = 2000000 + random.nextInt(500000) + (i % 100 == 0 ? 20000000 : 0);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double p : new double[]{50, 95, 99}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.getPercentileNanos(p);
+            assertEquals("p" + p, exact, reported, exact / 16.0);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxNanos());
+        assertEquals(values.length, histogram.getCount());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50000; i++)
+                        histogram.record(random.nextInt(1000000));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(200000, histogram.getCount());
+        assertTrue(histogram.getMaxNanos() < 1000000);
+        assertEquals(histogram.getMaxNanos(), histogram.getPercentileNanos(100), histogram.getMaxNanos() / 16.0);
+    }
+}
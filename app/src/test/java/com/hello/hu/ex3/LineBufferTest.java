@@ -0,0 +1,68 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LineBuffer.topK() must pick the same lines, in the same order, as a stable sort by length.
+ */
+public class LineBufferTest {
+
+    @Test
+    public void topK_matchesStableSort() throws Exception {
+        Random random = new Random(3);
+        final LineBuffer lines = new LineBuffer(4);
+        for (int i = 0; i < 5000; i++) {
+            // Few distinct lengths, so there are many ties.
+            double length = random.nextInt(50);
+            lines.add(0, 0, length, 0, i, 0);
+        }
+        List<Integer> sorted = new ArrayList<Integer>();
+        for (int i = 0; i < lines.size(); i++)
+            sorted.add(i);
+        Collections.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(lines.getLengthSquared(b), lines.getLengthSquared(a));
+            }
+        });
+
+        int[] top = new int[10];
+        assertEquals(10, lines.topK(10, top));
+        for (int i = 0; i < 10; i++)
+            assertEquals(sorted.get(i).intValue(), top[i]);
+    }
+
+    @Test
+    public void topK_fewerLinesThanK() throws Exception {
+        LineBuffer lines = new LineBuffer(4);
+        lines.add(0, 0, 1, 0, 0, 0);
+        lines.add(0, 0, 3, 0, 0, 0);
+        lines.add(0, 0, 2, 0, 0, 0);
+        int[] top = new int[10];
+        assertEquals(3, lines.topK(10, top));
+        assertEquals(1, top[0]);
+        assertEquals(2, top[1]);
+        assertEquals(0, top[2]);
+    }
+
+    @Test
+    public void clear_reusesStorage() throws Exception {
+        LineBuffer lines = new LineBuffer(2);
+        for (int i = 0; i < 100; i++)
+            lines.add(i, 0, 0, 0, 0, 0);
+        lines.clear();
+        assertEquals(0, lines.size());
+        assertEquals(0, lines.topK(10, new int[10]));
+        lines.add(3, 4, 0, 0, 5, 0.5);
+        assertEquals(25.0, lines.getLengthSquared(0), 0);
+        assertEquals(5.0, lines.getRho(0), 0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Clipping of hough lines and segments to the frame.
+ */
+public class LineGeometryTest {
+    private static final double EPS = 1e-9;
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void verticalLine_spansFrameHeight() throws Exception {
+        double[] line = new double[4];
+        assertTrue(LineGeometry.clipHoughLine(100, 0, WIDTH, HEIGHT, line));
+        assertEquals(100, line[0], EPS);
+        assertEquals(100, line[2], EPS);
+        assertEquals(HEIGHT - 1, Math.abs(line[3] - line[1]), EPS);
+    }
+
+    @Test
+    public void horizontalLine_spansFrameWidth() throws Exception {
+        double[] line = new double[4];
+        assertTrue(LineGeometry.clipHoughLine(50, Math.PI / 2, WIDTH, HEIGHT, line));
+        assertEquals(50, line[1], 1e-6);
+        assertEquals(50, line[3], 1e-6);
+        assertEquals(WIDTH - 1, LineGeometry.length(line[0], line[1], line[2], line[3]), 1e-6);
+    }
+
+    @Test
+    public void lineOutsideFrame_isRejected() throws Exception {
+        assertFalse(LineGeometry.clipHoughLine(-10, 0, WIDTH, HEIGHT, new double[4]));
+        assertFalse(LineGeometry.clipHoughLine(WIDTH + 10, 0, WIDTH, HEIGHT, new double[4]));
+    }
+
+    @Test
+    public void differentLines_getDifferentLengths() throws Exception {
+        // The old +/-1000 px extension gave every line the same length; clipped lengths differ.
+        double[] corner = new double[4];
+        double[] middle = new double[4];
+        assertTrue(LineGeometry.clipHoughLine(20, Math.PI / 4, WIDTH, HEIGHT, corner));
+        assertTrue(LineGeometry.clipHoughLine(300, Math.PI / 4, WIDTH, HEIGHT, middle));
+        assertTrue(LineGeometry.length(corner[0], corner[1], corner[2], corner[3])
+                < LineGeometry.length(middle[0], middle[1], middle[2], middle[3]));
+    }
+
+    @Test
+    public void segment_isCutAtFrameBorder() throws Exception {
+        double[] segment = new double[4];
+        assertTrue(LineGeometry.clipSegment(-100, 10, 100, 10, WIDTH, HEIGHT, segment));
+        assertEquals(0, segment[0], EPS);
+        assertEquals(100, segment[2], EPS);
+        assertFalse(LineGeometry.clipSegment(-100, -5, -1, -5, WIDTH, HEIGHT, segment));
+    }
+
+    @Test
+    public void largeCoordinates_doNotOverflow() throws Exception {
+        LineInformation line = new LineInformation(new org.opencv.core.Point(0, 0), new org.opencv.core.Point(100000, 100000));
+        assertEquals(2e10, line.getLengthSquared(), 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * LineTracker must follow steady lines without full searches, smooth jitter, and ask for a keyframe when lines are lost.
+ */
+public class LineTrackerTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void steadyLines_skipKeyframes() throws Exception {
+        LineTracker tracker = new LineTracker();
+        tracker.setFrameSize(WIDTH, HEIGHT);
+        LineBuffer detections = new LineBuffer(4);
+        assertTrue(tracker.needsKeyframe());
+
+        int keyframes = 0;
+        for (int frame = 0; frame < LineTracker.KEYFRAME_INTERVAL * 2; frame++) {
+            boolean keyframe = tracker.needsKeyframe();
+            if (keyframe)
+                keyframes++;
+            detections.clear();
+            detections.add(0, 0, 0, 0, 100, 0.1);
+            // Near 180 degrees with a negative rho: the same side of vertical as a small negative angle.
+            detections.add(0, 0, 0, 0, -300, Math.PI - 0.2);
+            tracker.update(detections, keyframe);
+        }
+        assertEquals(2, tracker.getTrackCount());
+        assertEquals(1.0, tracker.getConfidence(), 0);
+        // One keyframe to start, one to confirm the new tracks, then one per interval.
+        assertTrue("keyframes " + keyframes, keyframes <= 4);
+
+        double[] range = new double[2];
+        assertTrue(tracker.getThetaRange(range));
+        assertTrue(range[0] < -0.2 && range[1] > 0.1);
+
+        LineBuffer tracked = new LineBuffer(4);
+        assertEquals(2, tracker.exportTo(tracked, WIDTH, HEIGHT));
+        for (int i = 0; i < tracked.size(); i++) {
+            assertTrue(tracked.getTheta(i) >= 0 && tracked.getTheta(i) < Math.PI);
+            assertTrue(tracked.getLengthSquared(i) > 0);
+        }
+    }
+
+    @Test
+    public void jitter_isSmoothed() throws Exception {
+        LineTracker tracker = new LineTracker();
+        tracker.setFrameSize(WIDTH, HEIGHT);
+        LineBuffer detections = new LineBuffer(4);
+        LineBuffer tracked = new LineBuffer(4);
+        double maxStep = 0;
+        double previousRho = Double.NaN;
+        for (int frame = 0; frame < 40; frame++) {
+            detections.clear();
+            detections.add(0, 0, 0, 0, frame % 2 == 0 ? 196 : 204, 0.05);
+            tracker.update(detections, tracker.needsKeyframe());
+            tracked.clear();
+            if (tracker.exportTo(tracked, WIDTH, HEIGHT) == 0)
+                continue;
+            if (!Double.isNaN(previousRho))
+                maxStep = Math.max(maxStep, Math.abs(tracked.getRho(0) - previousRho));
+            previousRho = tracked.getRho(0);
+        }
+        assertTrue("step " + maxStep, maxStep < 8);
+    }
+
+    @Test
+    public void lostLines_requestKeyframe() throws Exception {
+        LineTracker tracker = new LineTracker();
+        tracker.setFrameSize(WIDTH, HEIGHT);
+        LineBuffer detections = new LineBuffer(4);
+        for (int frame = 0; frame < 3; frame++) {
+            detections.clear();
+            detections.add(0, 0, 0, 0, 100, 0.1);
+            detections.add(0, 0, 0, 0, 400, 0.3);
+            tracker.update(detections, tracker.needsKeyframe());
+        }
+        assertFalse(tracker.needsKeyframe());
+
+        // One of the two lines jumped too far to be matched.
+        detections.clear();
+        detections.add(0, 0, 0, 0, 100, 0.1);
+        detections.add(0, 0, 0, 0, 250, 0.3);
+        tracker.update(detections, false);
+        assertEquals(0.5, tracker.getConfidence(), 1e-9);
+        assertTrue(tracker.needsKeyframe());
+    }
+}
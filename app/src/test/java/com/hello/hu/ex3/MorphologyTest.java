@@ -0,0 +1,92 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Morphology must match a direct min/max over the rectangle, on 8 bit images and on packed BinaryImages.
+ */
+public class MorphologyTest {
+    // Not a multiple of 64, so the last word of a row is partial.
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 53;
+    private static final int[][] KERNELS = {{1, 1}, {3, 3}, {7, 7}, {15, 5}, {1, 21}, {65, 3}};
+
+    @Test
+    public void grayDilateErode_matchDirectMinMax() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 5);
+        Morphology morphology = new Morphology();
+        byte[] dst = new byte[gray.length];
+        for (int[] kernel : KERNELS) {
+            morphology.dilate(gray, dst, WIDTH, HEIGHT, kernel[0], kernel[1]);
+            assertArrayEquals(direct(gray, kernel[0], kernel[1], false), dst);
+            morphology.erode(gray, dst, WIDTH, HEIGHT, kernel[0], kernel[1]);
+            assertArrayEquals(direct(gray, kernel[0], kernel[1], true), dst);
+        }
+    }
+
+    @Test
+    public void packed_matchesGray() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 8);
+        byte[] mask = new byte[gray.length];
+        for (int i = 0; i < gray.length; i++)
+            mask[i] = (gray[i] & 0xFF) > 200 ? (byte) 255 : 0;
+        BinaryImage binary = new BinaryImage(WIDTH, HEIGHT);
+        binary.fromThreshold(gray, 200);
+        BinaryImage result = new BinaryImage(1, 1);
+        Morphology morphology = new Morphology();
+        byte[] expected = new byte[gray.length];
+        byte[] actual = new byte[gray.length];
+        for (int[] kernel : KERNELS) {
+            morphology.dilate(mask, expected, WIDTH, HEIGHT, kernel[0], kernel[1]);
+            morphology.dilate(binary, result, kernel[0], kernel[1]);
+            result.toBytes(actual);
+            assertArrayEquals(expected, actual);
+
+            morphology.gradient(mask, expected, WIDTH, HEIGHT, kernel[0], kernel[1]);
+            morphology.gradient(binary, result, kernel[0], kernel[1]);
+            result.toBytes(actual);
+            assertArrayEquals(expected, actual);
+        }
+        // In place.
+        morphology.close(mask, expected, WIDTH, HEIGHT, 5, 5);
+        morphology.close(binary, binary, 5, 5);
+        binary.toBytes(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void open_removesSpecks_close_fillsHoles() throws Exception {
+        byte[] image = new byte[WIDTH * HEIGHT];
+        for (int r = 10; r < 40; r++)
+            java.util.Arrays.fill(image, r * WIDTH + 20, r * WIDTH + 100, (byte) 255);
+        image[5 * WIDTH + 5] = (byte) 255;
+        image[25 * WIDTH + 60] = 0;
+        Morphology morphology = new Morphology();
+        byte[] opened = new byte[image.length];
+        morphology.open(image, opened, WIDTH, HEIGHT, 5, 5);
+        assertEquals(0, opened[5 * WIDTH + 5]);
+        assertEquals((byte) 255, opened[10 * WIDTH + 20]);
+        byte[] closed = new byte[image.length];
+        morphology.close(image, closed, WIDTH, HEIGHT, 5, 5);
+        assertEquals((byte) 255, closed[25 * WIDTH + 60]);
+    }
+
+    private static byte[] direct(byte[] src, int kernelWidth, int kernelHeight, boolean min) {
+        byte[] dst = new byte[src.length];
+        for (int r = 0; r < HEIGHT; r++) {
+            for (int c = 0; c < WIDTH; c++) {
+                int best = min ? 255 : 0;
+                for (int y = Math.max(0, r - kernelHeight / 2); y <= Math.min(HEIGHT - 1, r + kernelHeight / 2); y++) {
+                    for (int x = Math.max(0, c - kernelWidth / 2); x <= Math.min(WIDTH - 1, c + kernelWidth / 2); x++) {
+                        int value = src[y * WIDTH + x] & 0xFF;
+                        best = min ? Math.min(best, value) : Math.max(best, value);
+                    }
+                }
+                dst[r * WIDTH + c] = (byte) best;
+            }
+        }
+        return dst;
+    }
+}
@@ -0,0 +1,117 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProbabilisticHough must find segments with their real endpoints, bridge small gaps only, and drop short segments.
+ */
+public class ProbabilisticHoughTest {
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    @Test
+    public void findSegments_returnsRealEndpoints() throws Exception {
+        BinaryImage edges = new BinaryImage(WIDTH, HEIGHT);
+        drawLine(edges, 40, 10, 40, 100);
+        drawLine(edges, 60, 30, 140, 70);
+        ProbabilisticHough hough = new ProbabilisticHough(Math.PI / 180);
+        LineBuffer out = new LineBuffer(8);
+        assertEquals(2, hough.findSegments(edges, 20, 30, 3, out));
+        assertTrue(hasSegment(out, 40, 10, 40, 100));
+        assertTrue(hasSegment(out, 60, 30, 140, 70));
+
+        // Ranked by true length, not by the length of the line across the frame.
+        int[] best = new int[1];
+        out.topK(1, best);
+        assertEquals(90 * 90, out.getLengthSquared(best[0]), 0);
+
+        // Same seed every call, and the edges are not changed.
+        LineBuffer again = new LineBuffer(8);
+        hough.findSegments(edges, 20, 30, 3, again);
+        assertEquals(out.size(), again.size());
+        for (int i = 0; i < out.size(); i++)
+            assertEquals(out.getX1(i), again.getX1(i), 0);
+    }
+
+    @Test
+    public void findSegments_bridgesOnlySmallGaps() throws Exception {
+        BinaryImage edges = new BinaryImage(WIDTH, HEIGHT);
+        drawLine(edges, 20, 50, 70, 50);
+        drawLine(edges, 74, 50, 150, 50);
+        ProbabilisticHough hough = new ProbabilisticHough(Math.PI / 180);
+        LineBuffer out = new LineBuffer(8);
+        hough.findSegments(edges, 20, 30, 3, out);
+        assertEquals(1, out.size());
+        assertTrue(hasSegment(out, 20, 50, 150, 50));
+
+        out.clear();
+        hough.findSegments(edges, 20, 30, 2, out);
+        assertEquals(2, out.size());
+        assertTrue(hasSegment(out, 20, 50, 70, 50));
+        assertTrue(hasSegment(out, 74, 50, 150, 50));
+    }
+
+    @Test
+    public void findSegments_dropsShortSegmentsAndSamples() throws Exception {
+        BinaryImage edges = new BinaryImage(WIDTH, HEIGHT);
+        drawLine(edges, 10, 10, 10, 40);
+        drawLine(edges, 100, 5, 100, 115);
+        ProbabilisticHough hough = new ProbabilisticHough(Math.PI / 180);
+        LineBuffer out = new LineBuffer(8);
+        hough.findSegments(edges, 20, 50, 3, out);
+        assertEquals(1, out.size());
+        assertTrue(hasSegment(out, 100, 5, 100, 115));
+
+        // Half the pixels vote, so half the votes are needed.
+        hough.setSamplingRate(0.5);
+        out.clear();
+        hough.findSegments(edges, 10, 50, 3, out);
+        assertEquals(1, out.size());
+        assertTrue(hasSegment(out, 100, 5, 100, 115));
+        assertEquals(0, hough.findSegments(new BinaryImage(WIDTH, HEIGHT), 10, 50, 3, out));
+    }
+
+    @Test
+    public void findSegments_doesNotFollowCurves() throws Exception {
+        // Parameters of Best Segments at half scale. Only chords within a pixel or two of the circle may come out.
+        int size = 400;
+        int radius = 180;
+        BinaryImage edges = new BinaryImage(size, size);
+        for (int i = 0; i < 4000; i++) {
+            double angle = 2 * Math.PI * i / 4000;
+            edges.set((int) Math.round(size / 2 + radius * Math.cos(angle)),
+                    (int) Math.round(size / 2 + radius * Math.sin(angle)), true);
+        }
+        ProbabilisticHough hough = new ProbabilisticHough(Math.PI / 180);
+        LineBuffer out = new LineBuffer(8);
+        hough.findSegments(edges, 20, 40, 4, out);
+        for (int i = 0; i < out.size(); i++)
+            assertTrue(Math.sqrt(out.getLengthSquared(i)) < 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSamplingRate_rejectsZero() throws Exception {
+        new ProbabilisticHough(Math.PI / 180).setSamplingRate(0);
+    }
+
+    private static void drawLine(BinaryImage image, int x1, int y1, int x2, int y2) {
+        int steps = Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1));
+        for (int i = 0; i <= steps; i++)
+            image.set(x1 + Math.round((float) (x2 - x1) * i / steps), y1 + Math.round((float) (y2 - y1) * i / steps), true);
+    }
+
+    private static boolean hasSegment(LineBuffer lines, int x1, int y1, int x2, int y2) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (near(lines.getX1(i), lines.getY1(i), x1, y1) && near(lines.getX2(i), lines.getY2(i), x2, y2)
+                    || near(lines.getX1(i), lines.getY1(i), x2, y2) && near(lines.getX2(i), lines.getY2(i), x1, y1))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean near(double x, double y, int ex, int ey) {
+        return Math.abs(x - ex) <= 1 && Math.abs(y - ey) <= 1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hello.hu.ex3;
+
+import java.util.Random;
+
+/**
+ * Synthetic gray frames for tests and benchmarks, so nothing needs a camera.
+ */
+public final class SyntheticFrames {
+
+    /**
+     * Scene content of a synthetic frame.
+     */
+    public enum Scene {
+        /** Flat gray, no edges at all. */
+        FLAT,
+        /** A few strong near-vertical lines on a smooth gradient. */
+        LINES,
+        /** Uniform noise, an edge at almost every pixel. */
+        NOISE,
+        /** Squares of two gray levels, a corner at every inner grid point. */
+        CHECKERBOARD
+    }
+
+    private SyntheticFrames() {
+    }
+
+    /**
+     * Create a gray frame, values 0-255.
+     * @param width frame width.
+     * @param height frame height.
+     * @param scene scene content.
+     * @param seed random seed, the same seed gives the same frame.
+     * @return row-major gray values.
+     */
+    public static short[] gray(int width, int height, Scene scene, long seed) {
+        short[] gray = new short[width * height];
+        Random random = new Random(seed);
+        switch (scene) {
+            case FLAT:
+                java.util.Arrays.fill(gray, (short) 128);
+                break;
+            case NOISE:
+                for (int i = 0; i < gray.length; i++)
+                    gray[i] = (short) random.nextInt(256);
+                break;
+            case CHECKERBOARD:
+                int square = Math.max(8, width / 12);
+                for (int r = 0; r < height; r++)
+                    for (int c = 0; c < width; c++)
+                        gray[r * width + c] = (short) (((r / square + c / square) & 1) == 0 ? 40 : 215);
+                break;
+            case LINES:
+            default:
+                for (int r = 0; r < height; r++)
+                    for (int c = 0; c < width; c++)
+                        gray[r * width + c] = (short) (64 + 64 * c / width);
+                for (int line = 0; line < 8; line++) {
+                    int x0 = random.nextInt(width);
+                    int x1 = Math.max(0, Math.min(width - 1, x0 + random.nextInt(width / 4 + 1) - width / 8));
+                    for (int r = 0; r < height; r++) {
+                        int c = x0 + (x1 - x0) * r / height;
+                        for (int t = 0; t < 3 && c + t < width; t++)
+                            gray[r * width + c + t] = 250;
+                    }
+                }
+                break;
+        }
+        return gray;
+    }
+
+    /**
+     * Same as gray(), as unsigned bytes.
+     */
+    public static byte[] grayBytes(int width, int height, Scene scene, long seed) {
+        short[] gray = gray(width, height, scene, seed);
+        byte[] bytes = new byte[gray.length];
+        for (int i = 0; i < gray.length; i++)
+            bytes[i] = (byte) gray[i];
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ThresholdSelector must keep the edge pixel budget, split two clusters with Otsu, and smooth across frames.
+ */
+public class ThresholdSelectorTest {
+
+    @Test
+    public void budget_keepsEdgePixelsWithinBudget() throws Exception {
+        ThresholdSelector selector = new ThresholdSelector(ThresholdSelector.METHOD_BUDGET, 0.1, 1, 100);
+        int[] histogram = selector.getHistogram();
+        // 1000 responses, 1 - 1000.
+        for (int t = 1; t <= 1000; t++)
+            histogram[t]++;
+        int threshold = selector.endFrame();
+        assertEquals(900, threshold);
+        for (int bin : selector.getHistogram())
+            assertEquals(0, bin);
+    }
+
+    @Test
+    public void otsu_splitsTwoClusters() throws Exception {
+        ThresholdSelector selector = new ThresholdSelector(ThresholdSelector.METHOD_OTSU, 1, 1, 100);
+        int[] histogram = selector.getHistogram();
+        histogram[40] = 5000;
+        histogram[300] = 500;
+        int threshold = selector.endFrame();
+        assertTrue("threshold " + threshold, threshold >= 40 && threshold < 300);
+    }
+
+    @Test
+    public void otsu_isCappedByBudget() throws Exception {
+        ThresholdSelector selector = new ThresholdSelector(ThresholdSelector.METHOD_OTSU, 0.01, 1, 100);
+        int[] histogram = selector.getHistogram();
+        histogram[40] = 5000;
+        histogram[300] = 500;
+        histogram[600] = 20;
+        // Otsu alone would keep 520 of 5520 pixels, the budget allows 55.
+        assertEquals(300, selector.endFrame());
+    }
+
+    @Test
+    public void smoothing_movesPartWay() throws Exception {
+        ThresholdSelector selector = new ThresholdSelector(ThresholdSelector.METHOD_BUDGET, 0, 0.5, 100);
+        selector.getHistogram()[300] = 10;
+        assertEquals(200, selector.endFrame());
+        assertEquals(200, selector.getThreshold());
+        // A frame without pixels keeps the threshold.
+        assertEquals(200, selector.endFrame());
+    }
+
+    @Test
+    public void edgyRows_parallelHistogramMatchesSequential() throws Exception {
+        int width = 160;
+        int height = 120;
+        byte[] gray = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.NOISE, 9);
+        int[] response = new int[width * height];
+        Convolution.laplacian3x3(gray, response, width, height);
+        int[] expected = new int[ThresholdSelector.MAX_RESPONSE + 1];
+        for (int r = 1; r < height - 1; r++)
+            for (int c = 1; c < width - 1; c++)
+                expected[ThresholdSelector.bin(response[r * width + c])]++;
+
+        ThresholdSelector selector = new ThresholdSelector(ThresholdSelector.METHOD_OTSU, 0.05, 1, 100);
+        MyAlgorithm.EdgyRows rows = new MyAlgorithm.EdgyRows();
+        rows.set(gray, new byte[width * height], width, height, 100, selector);
+        TiledExecutor executor = new TiledExecutor(4);
+        executor.execute(0, height, rows);
+        executor.shutdown();
+        assertArrayEquals(expected, selector.getHistogram());
+    }
+}
@@ -0,0 +1,53 @@
+package com.hello.hu.ex3;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/**
+ * The tiled passes must produce exactly the same output as the sequential ones.
+ */
+public class TiledExecutorTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 243;
+
+    @Test
+    public void everyRowRunsExactlyOnce() throws Exception {
+        final AtomicIntegerArray hits = new AtomicIntegerArray(HEIGHT);
+        TiledExecutor executor = new TiledExecutor(4);
+        executor.execute(1, HEIGHT - 1, new TiledExecutor.RowTask() {
+            @Override
+            public void run(int rowStart, int rowEnd) {
+                for (int r = rowStart; r < rowEnd; r++)
+                    hits.incrementAndGet(r);
+            }
+        });
+        executor.shutdown();
+        for (int r = 0; r < HEIGHT; r++)
+            assertEquals("row " + r, (r == 0 || r == HEIGHT - 1) ? 0 : 1, hits.get(r));
+    }
+
+    @Test
+    public void edgyRows_parallelMatchesSequential() throws Exception {
+        byte[] gray = SyntheticFrames.grayBytes(WIDTH, HEIGHT, SyntheticFrames.Scene.NOISE, 7);
+        byte[] sequential = runEdgy(gray, 1);
+        for (int threads = 2; threads <= 8; threads *= 2)
+            assertArrayEquals("threads " + threads, sequential, runEdgy(gray, threads));
+    }
+
+    private static byte[] runEdgy(byte[] gray, int threads) {
+        byte[] mask = new byte[WIDTH * HEIGHT];
+        // A pooled mask holds the previous frame; the borders must still come out cleared.
+        java.util.Arrays.fill(mask, (byte) 7);
+        MyAlgorithm.EdgyRows rows = new MyAlgorithm.EdgyRows();
+        rows.set(gray, mask, WIDTH, HEIGHT, 100);
+        TiledExecutor executor = new TiledExecutor(threads);
+        executor.execute(0, HEIGHT, rows);
+        executor.shutdown();
+        for (byte value : mask)
+            assertTrue(value == 0 || value == (byte) 255);
+        return mask;
+    }
+}
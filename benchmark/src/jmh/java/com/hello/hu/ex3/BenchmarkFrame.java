@@ -0,0 +1,58 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * A synthetic camera frame for the benchmarks.
+ * Like the camera's frame, every rgba()/gray() call hands out a fresh copy of the picture,
+ * because most filters write into the mat they get.
+ */
+public class BenchmarkFrame implements VideoFrame {
+    private final Mat sourceGray;
+    private final Mat sourceRgba;
+    private final Mat gray = new Mat();
+    private final Mat rgba = new Mat();
+
+    /**
+     * @param width frame width.
+     * @param height frame height.
+     * @param scene scene content.
+     */
+    public BenchmarkFrame(int width, int height, SyntheticFrames.Scene scene) {
+        sourceGray = new Mat(height, width, CvType.CV_8UC1);
+        sourceGray.put(0, 0, SyntheticFrames.grayBytes(width, height, scene, 1));
+        sourceRgba = new Mat();
+        Imgproc.cvtColor(sourceGray, sourceRgba, Imgproc.COLOR_GRAY2RGBA);
+    }
+
+    @Override
+    public Mat rgba() {
+        sourceRgba.copyTo(rgba);
+        return rgba;
+    }
+
+    @Override
+    public Mat gray() {
+        sourceGray.copyTo(gray);
+        return gray;
+    }
+
+    /**
+     * Parse a "640x480" style resolution.
+     * @param resolution width x height.
+     * @return {width, height}.
+     */
+    public static int[] parseResolution(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    public void release() {
+        sourceGray.release();
+        sourceRgba.release();
+        gray.release();
+        rgba.release();
+    }
+}
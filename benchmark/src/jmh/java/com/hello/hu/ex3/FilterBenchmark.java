@@ -0,0 +1,166 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * One benchmark per spinner option of MainActivity.onCameraFrame(), plus the old myEdgy()/myBestLines().
+ * Every invocation is one frame, so avgt is ns/frame and thrpt is frames/s.
+ */
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"FLAT", "LINES", "NOISE"})
+    public String scene;
+
+    /**
+     * Sampling rate of bestSegments() only, so it does not multiply the other benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Sampling {
+        @Param({"1", "0.5", "0.25"})
+        public double samplingRate;
+    }
+
+    private BenchmarkFrame frame;
+    private FrameBufferPool framePool;
+    private BasicFilters basicFilters;
+    private MyAlgorithm myAlgorithm;
+    private TiledExecutor tiledExecutor;
+    private FrameFilter blurCannyHough;
+
+    @Setup
+    public void setUp() {
+        nu.pattern.OpenCV.loadShared();
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        frame = new BenchmarkFrame(size[0], size[1], SyntheticFrames.Scene.valueOf(scene));
+        framePool = new FrameBufferPool();
+        framePool.prepare(size[0], size[1]);
+        basicFilters = new BasicFilters(framePool);
+        tiledExecutor = new TiledExecutor();
+        myAlgorithm = new MyAlgorithm(framePool, tiledExecutor);
+        blurCannyHough = new FilterRegistry(framePool, basicFilters, myAlgorithm).get(FilterMode.BLUR_CANNY_HOUGH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        framePool.release();
+        frame.release();
+        tiledExecutor.shutdown();
+    }
+
+    @Benchmark
+    public Mat random() {
+        return basicFilters.randomMat(frame);
+    }
+
+    @Benchmark
+    public Mat threshold() {
+        return basicFilters.thresholdMat(frame);
+    }
+
+    @Benchmark
+    public Mat meanBlur() {
+        return basicFilters.meanBlurMat(frame);
+    }
+
+    @Benchmark
+    public Mat gaussianBlur() {
+        return basicFilters.gaussianBlurMat(frame);
+    }
+
+    @Benchmark
+    public Mat dilation() {
+        return basicFilters.dilationMat(frame);
+    }
+
+    @Benchmark
+    public Mat erosion() {
+        return basicFilters.erosionMat(frame);
+    }
+
+    @Benchmark
+    public Mat adaptiveThreshold() {
+        return basicFilters.adptThresholdMat(frame);
+    }
+
+    @Benchmark
+    public Mat differenceOfGaussian() {
+        return basicFilters.differenceofGaussianMat(frame);
+    }
+
+    @Benchmark
+    public Mat canny() {
+        return basicFilters.cannyEdgeMat(frame);
+    }
+
+    @Benchmark
+    public Mat sobel() {
+        return basicFilters.sobelMat(frame);
+    }
+
+    @Benchmark
+    public Mat corner() {
+        return basicFilters.cornerMat(frame);
+    }
+
+    @Benchmark
+    public Mat hough() {
+        return basicFilters.houghMat(frame);
+    }
+
+    @Benchmark
+    public Mat edgy() {
+        return myAlgorithm.myEdgy2(frame, 100);
+    }
+
+    @Benchmark
+    public Mat bestLines() {
+        return myAlgorithm.myBestLines2(frame, 100);
+    }
+
+    @Benchmark
+    public Mat edgyAdaptive() {
+        return myAlgorithm.myEdgy2(frame, MyAlgorithm.ADAPTIVE_THRESHOLD);
+    }
+
+    @Benchmark
+    public Mat bestLinesAdaptive() {
+        return myAlgorithm.myBestLines2(frame, MyAlgorithm.ADAPTIVE_THRESHOLD);
+    }
+
+    @Benchmark
+    public Mat bestSegments(Sampling sampling) {
+        myAlgorithm.setSegmentSamplingRate(sampling.samplingRate);
+        return myAlgorithm.myBestSegments(frame);
+    }
+
+    @Benchmark
+    public Mat blurCannyHough() {
+        return blurCannyHough.apply(frame);
+    }
+
+    /**
+     * The first version, one JNI call per pixel. Expect seconds per frame at 1080p.
+     */
+    @Benchmark
+    public Mat edgyV1() {
+        return myAlgorithm.myEdgy(frame, 100);
+    }
+
+    /**
+     * The first version, one JNI call per pixel. Expect seconds per frame at 1080p.
+     */
+    @Benchmark
+    public Mat bestLinesV1() {
+        return myAlgorithm.myBestLines(frame, 100);
+    }
+}
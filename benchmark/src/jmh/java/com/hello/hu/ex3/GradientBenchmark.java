@@ -0,0 +1,102 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Sobel and Canny of GradientField against the OpenCV calls sobelMat() and cannyEdgeMat() used to make.
+ * sobelAndCanny is both filters on one frame, where the gradient is computed once.
+ */
+@State(Scope.Thread)
+public class GradientBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    private int width;
+    private int height;
+    private byte[] gray;
+    private byte[] output;
+    private GradientField field;
+    private Mat grayMat;
+    private Mat gradX;
+    private Mat gradY;
+    private Mat absX;
+    private Mat absY;
+    private Mat outputMat;
+
+    @Setup
+    public void setUp() {
+        nu.pattern.OpenCV.loadShared();
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        width = size[0];
+        height = size[1];
+        gray = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.LINES, 1);
+        output = new byte[width * height];
+        field = new GradientField();
+        grayMat = new Mat(height, width, CvType.CV_8UC1);
+        grayMat.put(0, 0, gray);
+        gradX = new Mat(height, width, CvType.CV_16SC1);
+        gradY = new Mat(height, width, CvType.CV_16SC1);
+        absX = new Mat(height, width, CvType.CV_8UC1);
+        absY = new Mat(height, width, CvType.CV_8UC1);
+        outputMat = new Mat(height, width, CvType.CV_8UC1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        grayMat.release();
+        gradX.release();
+        gradY.release();
+        absX.release();
+        absY.release();
+        outputMat.release();
+    }
+
+    @Benchmark
+    public byte[] fieldSobel() {
+        // computeRegion() never shares, so every call does the full pass.
+        field.computeRegion(gray, width, height, 0, 0, width, height);
+        field.sobel(output);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] fieldCanny() {
+        field.computeRegion(gray, width, height, 0, 0, width, height);
+        field.canny(output, 10, 100);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] fieldSobelAndCanny() {
+        field.computeRegion(gray, width, height, 0, 0, width, height);
+        field.sobel(output);
+        field.canny(output, 10, 100);
+        return output;
+    }
+
+    @Benchmark
+    public Mat opencvSobel() {
+        Imgproc.Sobel(grayMat, gradX, CvType.CV_16S, 1, 0, 3, 1, 0);
+        Imgproc.Sobel(grayMat, gradY, CvType.CV_16S, 0, 1, 3, 1, 0);
+        Core.convertScaleAbs(gradX, absX);
+        Core.convertScaleAbs(gradY, absY);
+        Core.addWeighted(absX, 0.5, absY, 0.5, 1, outputMat);
+        return outputMat;
+    }
+
+    @Benchmark
+    public Mat opencvCanny() {
+        Imgproc.Canny(grayMat, outputMat, 10, 100);
+        return outputMat;
+    }
+}
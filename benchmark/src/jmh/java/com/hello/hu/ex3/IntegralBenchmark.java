@@ -0,0 +1,73 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Adaptive thresholds of IntegralImage against Imgproc.adaptiveThreshold(), as the window grows.
+ * The IntegralImage cost should not depend on the window.
+ */
+@State(Scope.Thread)
+public class IntegralBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"3", "31", "101"})
+    public int window;
+
+    private int width;
+    private int height;
+    private byte[] gray;
+    private byte[] binary;
+    private IntegralImage integral;
+    private Mat grayMat;
+    private Mat binaryMat;
+
+    @Setup
+    public void setUp() {
+        nu.pattern.OpenCV.loadShared();
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        width = size[0];
+        height = size[1];
+        gray = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.LINES, 1);
+        binary = new byte[width * height];
+        integral = new IntegralImage();
+        grayMat = new Mat(height, width, CvType.CV_8UC1);
+        grayMat.put(0, 0, gray);
+        binaryMat = new Mat(height, width, CvType.CV_8UC1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        grayMat.release();
+        binaryMat.release();
+    }
+
+    @Benchmark
+    public byte[] integralMean() {
+        integral.compute(gray, width, height, false);
+        integral.adaptiveMeanThreshold(gray, binary, window / 2, 5);
+        return binary;
+    }
+
+    @Benchmark
+    public byte[] integralSauvola() {
+        integral.compute(gray, width, height, true);
+        integral.sauvolaThreshold(gray, binary, window / 2, 0.34, 128);
+        return binary;
+    }
+
+    @Benchmark
+    public Mat opencvMean() {
+        Imgproc.adaptiveThreshold(grayMat, binaryMat, 255, Imgproc.ADAPTIVE_THRESH_MEAN_C, Imgproc.THRESH_BINARY, window, 5);
+        return binaryMat;
+    }
+}
@@ -0,0 +1,127 @@
+package com.hello.hu.ex3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The pure Java kernels on primitive buffers, without OpenCV or JNI.
+ */
+@State(Scope.Thread)
+public class KernelBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"FLAT", "LINES", "NOISE"})
+    public String scene;
+
+    private int width;
+    private int height;
+    private short[] gray;
+    private byte[] grayBytes;
+    private int[] response;
+    private int[] tmp;
+    private byte[] mask;
+    private MyAlgorithm.EdgyRows edgyRows;
+    private FusedHough fusedHough;
+    private LineBuffer lines;
+    private DifferenceOfGaussian differenceOfGaussian;
+    private BinaryImage edges;
+    private ProbabilisticHough probabilisticHough;
+    private ProbabilisticHough sampledHough;
+
+    @Setup
+    public void setUp() {
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        width = size[0];
+        height = size[1];
+        gray = SyntheticFrames.gray(width, height, SyntheticFrames.Scene.valueOf(scene), 1);
+        response = new int[width * height];
+        tmp = new int[width * height];
+        grayBytes = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.valueOf(scene), 1);
+        mask = new byte[width * height];
+        edgyRows = new MyAlgorithm.EdgyRows();
+        edgyRows.set(grayBytes, mask, width, height, 100);
+        fusedHough = new FusedHough();
+        lines = new LineBuffer(256);
+        differenceOfGaussian = new DifferenceOfGaussian(15, 21, 5);
+        // The edge pixels of fusedHough(), packed.
+        Convolution.laplacian3x3(grayBytes, response, width, height);
+        edges = new BinaryImage(width, height);
+        for (int r = 1; r < height - 1; r++)
+            for (int c = 1; c < width - 1; c++)
+                edges.set(c, r, response[r * width + c] > 100);
+        probabilisticHough = new ProbabilisticHough(Math.PI / 180);
+        sampledHough = new ProbabilisticHough(Math.PI / 180);
+        sampledHough.setSamplingRate(0.25);
+    }
+
+    @Benchmark
+    public int[] laplacian3x3() {
+        Convolution.laplacian3x3(gray, response, width, height);
+        return response;
+    }
+
+    @Benchmark
+    public int[] laplacian3x3Bytes() {
+        Convolution.laplacian3x3(grayBytes, response, width, height);
+        return response;
+    }
+
+    @Benchmark
+    public int[] laplacianGeneric() {
+        Convolution.convolve(gray, response, width, height, new int[][]{{0, 1, 0}, {1, -4, 1}, {0, 1, 0}});
+        return response;
+    }
+
+    @Benchmark
+    public int[] gaussian5x5() {
+        Convolution.gaussian5x5(gray, response, tmp, width, height);
+        return response;
+    }
+
+    @Benchmark
+    public byte[] differenceOfGaussian() {
+        differenceOfGaussian.apply(grayBytes, mask, width, height, 0);
+        return mask;
+    }
+
+    @Benchmark
+    public byte[] edgyRows() {
+        edgyRows.run(0, height);
+        return mask;
+    }
+
+    @Benchmark
+    public LineBuffer fusedHough() {
+        lines.clear();
+        fusedHough.findLines(grayBytes, width, height, 100, Math.min(width, height) / 4, lines);
+        return lines;
+    }
+
+    @Benchmark
+    public LineBuffer binaryHough() {
+        lines.clear();
+        fusedHough.findLines(edges, Math.min(width, height) / 4, -Math.PI / 2, Math.PI / 2, lines);
+        return lines;
+    }
+
+    @Benchmark
+    public LineBuffer probabilisticHough() {
+        lines.clear();
+        int minLength = Math.min(width, height) / 8;
+        probabilisticHough.findSegments(edges, minLength / 2, minLength, 8, lines);
+        return lines;
+    }
+
+    @Benchmark
+    public LineBuffer probabilisticHoughSampled() {
+        lines.clear();
+        int minLength = Math.min(width, height) / 8;
+        sampledHough.findSegments(edges, minLength / 8, minLength, 8, lines);
+        return lines;
+    }
+}
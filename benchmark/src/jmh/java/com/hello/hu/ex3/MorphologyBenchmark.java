@@ -0,0 +1,83 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Rectangular dilation of Morphology, on bytes and packed, against Imgproc.dilate(), as the kernel grows.
+ * The 8 bit Morphology cost should not depend on the kernel; the packed one grows with log3 of it.
+ */
+@State(Scope.Thread)
+public class MorphologyBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"7", "15", "31"})
+    public int kernel;
+
+    private byte[] mask;
+    private byte[] output;
+    private int width;
+    private int height;
+    private BinaryImage binary;
+    private BinaryImage binaryOutput;
+    private Morphology morphology;
+    private Mat maskMat;
+    private Mat outputMat;
+    private Mat element;
+
+    @Setup
+    public void setUp() {
+        nu.pattern.OpenCV.loadShared();
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        width = size[0];
+        height = size[1];
+        byte[] gray = SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.LINES, 1);
+        mask = new byte[width * height];
+        for (int i = 0; i < mask.length; i++)
+            mask[i] = (gray[i] & 0xFF) > 50 ? (byte) 255 : 0;
+        output = new byte[width * height];
+        binary = new BinaryImage(width, height);
+        binary.fromMask(mask);
+        binaryOutput = new BinaryImage(width, height);
+        morphology = new Morphology();
+        maskMat = new Mat(height, width, CvType.CV_8UC1);
+        maskMat.put(0, 0, mask);
+        outputMat = new Mat(height, width, CvType.CV_8UC1);
+        element = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(kernel, kernel));
+    }
+
+    @TearDown
+    public void tearDown() {
+        maskMat.release();
+        outputMat.release();
+        element.release();
+    }
+
+    @Benchmark
+    public byte[] morphologyBytes() {
+        morphology.dilate(mask, output, width, height, kernel, kernel);
+        return output;
+    }
+
+    @Benchmark
+    public BinaryImage morphologyPacked() {
+        morphology.dilate(binary, binaryOutput, kernel, kernel);
+        return binaryOutput;
+    }
+
+    @Benchmark
+    public Mat opencvDilate() {
+        Imgproc.dilate(maskMat, outputMat, element);
+        return outputMat;
+    }
+}
@@ -0,0 +1,154 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Locale;
+
+/**
+ * Speed against accuracy of detecting on a downscaled frame, see ProcessingScale.
+ * The benchmarks time the filters at each scale. The setup also detects lines and corners at this scale
+ * and at full scale, and prints how many of the full scale detections are found again, and how far off they are:
+ *   scale=2 1280x720 lines: F/N found, rho error R px, theta error T deg; corners: F/N found, error E px
+ */
+@State(Scope.Thread)
+public class ScaleBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "2", "4"})
+    public int scale;
+
+    private BenchmarkFrame linesFrame;
+    private BenchmarkFrame cornersFrame;
+    private FrameBufferPool framePool;
+    private BasicFilters basicFilters;
+    private MyAlgorithm myAlgorithm;
+    private TiledExecutor tiledExecutor;
+
+    @Setup
+    public void setUp() {
+        nu.pattern.OpenCV.loadShared();
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        linesFrame = new BenchmarkFrame(size[0], size[1], SyntheticFrames.Scene.LINES);
+        cornersFrame = new BenchmarkFrame(size[0], size[1], SyntheticFrames.Scene.CHECKERBOARD);
+        framePool = new FrameBufferPool();
+        framePool.prepare(size[0], size[1]);
+        basicFilters = new BasicFilters(framePool);
+        basicFilters.setProcessingScale(scale);
+        tiledExecutor = new TiledExecutor();
+        myAlgorithm = new MyAlgorithm(framePool, tiledExecutor);
+        myAlgorithm.setProcessingScale(scale);
+        System.out.println(String.format(Locale.US, "scale=%d %s lines: %s; corners: %s",
+                scale, resolution, lineAccuracy(), cornerAccuracy()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        framePool.release();
+        linesFrame.release();
+        cornersFrame.release();
+        tiledExecutor.shutdown();
+    }
+
+    @Benchmark
+    public Mat bestLines() {
+        return myAlgorithm.myBestLines2(linesFrame, 100);
+    }
+
+    @Benchmark
+    public Mat edgy() {
+        return myAlgorithm.myEdgy2(linesFrame, 100);
+    }
+
+    @Benchmark
+    public Mat hough() {
+        return basicFilters.houghMat(linesFrame);
+    }
+
+    @Benchmark
+    public Mat corners() {
+        return basicFilters.cornerMat(cornersFrame);
+    }
+
+
+    /**
+     * Lines of FusedHough on the full gray frame, found again on the downscaled one.
+     */
+    private String lineAccuracy() {
+        LineBuffer reference = findLines(linesFrame.gray(), ProcessingScale.FULL);
+        LineBuffer scaled = findLines(linesFrame.gray(), scale);
+        int found = 0;
+        double rhoError = 0;
+        double thetaError = 0;
+        for (int i = 0; i < reference.size(); i++) {
+            int best = -1;
+            double bestRho = Double.MAX_VALUE;
+            for (int j = 0; j < scaled.size(); j++) {
+                double dRho = Math.abs(ProcessingScale.toFull(scaled.getRho(j), scale) - reference.getRho(i));
+                double dTheta = Math.abs(scaled.getTheta(j) - reference.getTheta(i));
+                if (dTheta <= Math.toRadians(2) && dRho <= 2 * scale + 2 && dRho < bestRho) {
+                    bestRho = dRho;
+                    best = j;
+                }
+            }
+            if (best < 0)
+                continue;
+            found++;
+            rhoError += bestRho;
+            thetaError += Math.abs(scaled.getTheta(best) - reference.getTheta(i));
+        }
+        return String.format(Locale.US, "%d/%d found, rho error %.1f px, theta error %.1f deg",
+                found, reference.size(), found == 0 ? 0 : rhoError / found,
+                found == 0 ? 0 : Math.toDegrees(thetaError / found));
+    }
+
+    private LineBuffer findLines(Mat gray, int lineScale) {
+        Mat small = ProcessingScale.down(gray, lineScale, framePool);
+        byte[] bytes = new byte[small.rows() * small.cols()];
+        small.get(0, 0, bytes);
+        LineBuffer lines = new LineBuffer(64);
+        new FusedHough().findLines(bytes, small.cols(), small.rows(), 100,
+                Math.min(small.cols(), small.rows()) / 4, lines);
+        return lines;
+    }
+
+    /**
+     * Corners of cornerMat() at full scale, found again at this scale.
+     */
+    private String cornerAccuracy() {
+        BasicFilters full = new BasicFilters(framePool);
+        full.cornerMat(cornersFrame);
+        CornerList reference = full.getCornerList();
+        int[] referenceX = new int[reference.size()];
+        int[] referenceY = new int[reference.size()];
+        for (int i = 0; i < reference.size(); i++) {
+            referenceX[i] = reference.getX(i);
+            referenceY[i] = reference.getY(i);
+        }
+        basicFilters.cornerMat(cornersFrame);
+        CornerList scaled = basicFilters.getCornerList();
+        int found = 0;
+        double error = 0;
+        for (int i = 0; i < referenceX.length; i++) {
+            double best = Double.MAX_VALUE;
+            for (int j = 0; j < scaled.size(); j++) {
+                double dx = ProcessingScale.toFull(scaled.getX(j), scale) - referenceX[i];
+                double dy = ProcessingScale.toFull(scaled.getY(j), scale) - referenceY[i];
+                best = Math.min(best, Math.sqrt(dx * dx + dy * dy));
+            }
+            if (best <= 2 * scale) {
+                found++;
+                error += best;
+            }
+        }
+        return String.format(Locale.US, "%d/%d found, error %.1f px",
+                found, referenceX.length, found == 0 ? 0 : error / found);
+    }
+}
@@ -0,0 +1,50 @@
+package com.hello.hu.ex3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Scaling of the tiled laplacian/threshold pass of myEdgy2() from 1 to 8 threads.
+ * Compare ns/frame across the threads parameter for the speedup.
+ */
+@State(Scope.Thread)
+public class TiledScalingBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "2", "3", "4", "6", "8"})
+    public int threads;
+
+    private int height;
+    private byte[] mask;
+    private MyAlgorithm.EdgyRows edgyRows;
+    private TiledExecutor executor;
+
+    @Setup
+    public void setUp() {
+        int[] size = BenchmarkFrame.parseResolution(resolution);
+        int width = size[0];
+        height = size[1];
+        mask = new byte[width * height];
+        edgyRows = new MyAlgorithm.EdgyRows();
+        edgyRows.set(SyntheticFrames.grayBytes(width, height, SyntheticFrames.Scene.LINES, 1),
+                mask, width, height, 100);
+        executor = new TiledExecutor(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public byte[] edgyRows() {
+        executor.execute(0, height, edgyRows);
+        return mask;
+    }
+}
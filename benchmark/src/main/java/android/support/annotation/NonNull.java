@@ -0,0 +1,7 @@
+package android.support.annotation;
+
+/**
+ * Desktop stand-in for the support library annotation.
+ */
+public @interface NonNull {
+}
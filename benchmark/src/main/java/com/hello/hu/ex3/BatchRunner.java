@@ -0,0 +1,133 @@
+package com.hello.hu.ex3;
+
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Run a recording through one filter on a desktop, without a camera, and report frames/s and per-stage latencies.
+ * Made for regression tests and tuning on a CI box:
+ *   ./gradlew :benchmark:batch -Pargs="recording.nv21 EDGY --size 1280x720 --format nv21 --checksum"
+ *   ./gradlew :benchmark:batch -Pargs="frames/ HOUGH --scale 2 --repeat 3"
+ * The source is a directory of images, a recording of FrameRecorder (size and format are in its header),
+ * or a raw dump of --format gray, rgba or nv21 frames of --size.
+ * The filter is a FilterMode name (EDGY) or spinner label ("Best Lines").
+ * --checksum prints a CRC32 of all outputs, to compare runs bit for bit. It is not timed.
+ */
+public final class BatchRunner {
+
+    private BatchRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BatchRunner <directory, recording or raw file> <filter> [--size WxH] [--format gray|rgba|nv21]"
+                    + " [--scale 1|2|4] [--repeat N] [--checksum]");
+            System.exit(2);
+        }
+        File path = new File(args[0]);
+        FilterMode mode = parseMode(args[1]);
+        int[] size = null;
+        int format = RawFrame.FORMAT_NV21;
+        int scale = ProcessingScale.FULL;
+        int repeat = 1;
+        boolean checksum = false;
+        for (int i = 2; i < args.length; i++) {
+            if ("--size".equals(args[i]))
+                size = parseSize(args[++i]);
+            else if ("--format".equals(args[i]))
+                format = RawFrame.parseFormat(args[++i]);
+            else if ("--scale".equals(args[i]))
+                scale = ProcessingScale.check(Integer.parseInt(args[++i]));
+            else if ("--repeat".equals(args[i]))
+                repeat = Integer.parseInt(args[++i]);
+            else if ("--checksum".equals(args[i]))
+                checksum = true;
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+
+        nu.pattern.OpenCV.loadShared();
+        FrameSource source = open(path, size, format);
+        try {
+            run(source, mode, scale, repeat, checksum);
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Open a directory as an image sequence, and a file as a recording of FrameRecorder or a raw dump.
+     */
+    static FrameSource open(File path, int[] size, int format) throws IOException {
+        if (path.isDirectory())
+            return new ImageSequenceFrameSource(path);
+        if (FrameRecordReader.isRecording(path))
+            return FrameRecordReader.open(path);
+        if (size == null)
+            throw new IllegalArgumentException("A raw dump needs --size");
+        return new MappedFileFrameSource(path, size[0], size[1], format);
+    }
+
+    private static void run(FrameSource source, FilterMode mode, int scale, int repeat, boolean checksum)
+            throws IOException {
+        FrameBufferPool framePool = new FrameBufferPool();
+        framePool.prepare(source.getWidth(), source.getHeight());
+        BasicFilters basicFilters = new BasicFilters(framePool);
+        basicFilters.setProcessingScale(scale);
+        TiledExecutor tiledExecutor = new TiledExecutor();
+        MyAlgorithm myAlgorithm = new MyAlgorithm(framePool, tiledExecutor);
+        myAlgorithm.setProcessingScale(scale);
+        FrameFilter filter = new FilterRegistry(framePool, basicFilters, myAlgorithm).get(mode);
+        CRC32 crc = new CRC32();
+        byte[] output = new byte[0];
+
+        StageTimer.setEnabled(true);
+        StageTimer.reset();
+        int frames = 0;
+        long nanos = 0;
+        for (int pass = 0; pass < repeat; pass++) {
+            for (int i = 0; i < source.getFrameCount(); i++) {
+                VideoFrame frame = source.getFrame(i);
+                long start = System.nanoTime();
+                Mat result = filter.apply(frame);
+                nanos += System.nanoTime() - start;
+                frames++;
+                if (checksum) {
+                    int length = (int) (result.total() * result.elemSize());
+                    if (output.length != length)
+                        output = new byte[length];
+                    result.get(0, 0, output);
+                    crc.update(output, 0, length);
+                }
+            }
+        }
+        framePool.release();
+        tiledExecutor.shutdown();
+
+        System.out.println(String.format(Locale.US, "%s %dx%d scale=%d: %d frames in %.2f s, %.1f frames/s",
+                mode, source.getWidth(), source.getHeight(), scale, frames, nanos / 1e9,
+                nanos == 0 ? 0 : frames * 1e9 / nanos));
+        System.out.println(StageTimer.get(mode).getSummary());
+        for (StageTimer.Stage stage : StageTimer.Stage.values())
+            if (StageTimer.get(stage).getCount() > 0)
+                System.out.println(StageTimer.get(stage).getSummary());
+        if (checksum)
+            System.out.println(String.format(Locale.US, "checksum %08x", crc.getValue()));
+    }
+
+    private static int[] parseSize(String size) {
+        String[] parts = size.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    private static FilterMode parseMode(String name) {
+        for (FilterMode mode : FilterMode.values())
+            if (mode.name().equalsIgnoreCase(name) || mode.getLabel().equals(name))
+                return mode;
+        throw new IllegalArgumentException("Unknown filter " + name);
+    }
+}
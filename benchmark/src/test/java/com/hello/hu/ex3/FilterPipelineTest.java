@@ -0,0 +1,84 @@
+package com.hello.hu.ex3;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Blur + Canny + Hough must run Canny once, and convert the frame between gray and RGBA only once.
+ * Counted with StageTimer: GRADIENT laps once per gradient, CONVERT_COLOR once per conversion of a pipeline stage.
+ */
+public class FilterPipelineTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    private FrameBufferPool framePool;
+    private TiledExecutor tiledExecutor;
+    private FilterRegistry registry;
+    private Mat source;
+    private Mat rgba;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        nu.pattern.OpenCV.loadShared();
+    }
+
+    @Before
+    public void setUp() {
+        framePool = new FrameBufferPool();
+        framePool.prepare(WIDTH, HEIGHT);
+        tiledExecutor = new TiledExecutor(1);
+        registry = new FilterRegistry(framePool, new BasicFilters(framePool),
+                new MyAlgorithm(framePool, tiledExecutor));
+        // One bright vertical bar on black.
+        source = new Mat(HEIGHT, WIDTH, CvType.CV_8UC4, new Scalar(0, 0, 0, 255));
+        source.colRange(150, 170).setTo(new Scalar(255, 255, 255, 255));
+        rgba = new Mat();
+        StageTimer.setEnabled(true);
+        StageTimer.reset();
+    }
+
+    @After
+    public void tearDown() {
+        StageTimer.setEnabled(false);
+        StageTimer.reset();
+        framePool.release();
+        tiledExecutor.shutdown();
+        source.release();
+        rgba.release();
+    }
+
+    @Test
+    public void blurCannyHough_cannyOnceWithoutRoundTrip() {
+        Mat result = registry.get(FilterMode.BLUR_CANNY_HOUGH).apply(new VideoFrame() {
+            @Override
+            public Mat rgba() {
+                source.copyTo(rgba);
+                return rgba;
+            }
+
+            @Override
+            public Mat gray() {
+                throw new AssertionError("The blur stage reads the RGBA frame");
+            }
+        });
+        assertEquals(1, StageTimer.get(StageTimer.Stage.GRADIENT).getCount());
+        // RGBA to gray ahead of Canny, and nothing back: the hough stage reads the 1 channel edges.
+        assertEquals(1, StageTimer.get(StageTimer.Stage.CONVERT_COLOR).getCount());
+        assertEquals(1, StageTimer.get(StageTimer.Stage.HOUGH).getCount());
+        assertEquals(4, result.channels());
+        // The sides of the bar are found and drawn in blue. Imgproc.line() writes alpha 0, so only RGB is compared.
+        boolean blue = false;
+        for (int c = 140; c < 180; c++) {
+            double[] pixel = result.get(HEIGHT / 2, c);
+            blue |= pixel[0] == 0 && pixel[1] == 0 && pixel[2] == 255;
+        }
+        assertTrue(blue);
+    }
+}
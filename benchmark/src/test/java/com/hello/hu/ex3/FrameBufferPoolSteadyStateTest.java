@@ -0,0 +1,102 @@
+package com.hello.hu.ex3;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import static org.junit.Assert.*;
+
+/**
+ * myEdgy2() and myBestLines2() must lease all their buffers from the FrameBufferPool on the first frame,
+ * and allocate none on the frames after it.
+ */
+public class FrameBufferPoolSteadyStateTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int FRAMES = 10;
+
+    private FrameBufferPool framePool;
+    private TiledExecutor tiledExecutor;
+    private MyAlgorithm myAlgorithm;
+    private Mat source;
+    private Mat rgba;
+    private VideoFrame frame;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        nu.pattern.OpenCV.loadShared();
+    }
+
+    @Before
+    public void setUp() {
+        framePool = new FrameBufferPool();
+        framePool.prepare(WIDTH, HEIGHT);
+        tiledExecutor = new TiledExecutor(2);
+        myAlgorithm = new MyAlgorithm(framePool, tiledExecutor);
+        // A vertical bar and a slanted line on black.
+        source = new Mat(HEIGHT, WIDTH, CvType.CV_8UC4, new Scalar(0, 0, 0, 255));
+        source.colRange(150, 170).setTo(new Scalar(255, 255, 255, 255));
+        Imgproc.line(source, new Point(40, 0), new Point(100, HEIGHT - 1), new Scalar(200, 200, 200, 255), 3);
+        rgba = new Mat();
+        frame = new VideoFrame() {
+            @Override
+            public Mat rgba() {
+                source.copyTo(rgba);
+                return rgba;
+            }
+
+            @Override
+            public Mat gray() {
+                throw new AssertionError("myEdgy2() and myBestLines2() read the RGBA frame");
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        framePool.release();
+        tiledExecutor.shutdown();
+        source.release();
+        rgba.release();
+    }
+
+    @Test
+    public void edgy_allocatesOnlyOnFirstFrame() {
+        myAlgorithm.myEdgy2(frame, 100);
+        int allocations = framePool.getAllocationCount();
+        assertTrue(allocations > 0);
+        for (int i = 1; i < FRAMES; i++) {
+            myAlgorithm.myEdgy2(frame, 100);
+            assertEquals("frame " + i, allocations, framePool.getAllocationCount());
+        }
+    }
+
+    @Test
+    public void bestLines_allocatesOnlyOnFirstFrame() {
+        myAlgorithm.myBestLines2(frame, 100);
+        int allocations = framePool.getAllocationCount();
+        assertTrue(allocations > 0);
+        for (int i = 1; i < FRAMES; i++) {
+            myAlgorithm.myBestLines2(frame, 100);
+            assertEquals("frame " + i, allocations, framePool.getAllocationCount());
+        }
+    }
+
+    @Test
+    public void adaptiveThreshold_allocatesOnlyOnFirstFrame() {
+        myAlgorithm.myEdgy2(frame, MyAlgorithm.ADAPTIVE_THRESHOLD);
+        myAlgorithm.myBestLines2(frame, MyAlgorithm.ADAPTIVE_THRESHOLD);
+        int allocations = framePool.getAllocationCount();
+        for (int i = 1; i < FRAMES; i++) {
+            myAlgorithm.myEdgy2(frame, MyAlgorithm.ADAPTIVE_THRESHOLD);
+            myAlgorithm.myBestLines2(frame, MyAlgorithm.ADAPTIVE_THRESHOLD);
+            assertEquals("frame " + i, allocations, framePool.getAllocationCount());
+        }
+    }
+}